@@ -28,7 +28,7 @@ public class ArrayDimensions
     */
    public ArrayDimensions()
    {
-      dims = new Vector<Integer>();
+      dims = new int[0];
    } // constructor
 
 
@@ -39,7 +39,9 @@ public class ArrayDimensions
     */
    public ArrayDimensions(List<Integer> dims_)
    {
-      dims = new Vector<Integer>(dims_);
+      dims = new int[dims_.size()];
+      for(int i = 0; i < dims.length; ++i)
+         dims[i] = dims_.get(i);
    } // copy constructor
 
 
@@ -61,21 +63,43 @@ public class ArrayDimensions
    public int to_offset(
          List<Integer> index_,
          boolean ignore_least_significant)
+   {
+      int[] index = new int[index_.size()];
+      for(int i = 0; i < index.length; ++i)
+         index[i] = index_.get(i);
+      return to_offset(index, index.length, ignore_least_significant);
+   } // to_offset
+
+
+   /**
+    * Calculates the linear offset of an array element in the same way as
+    * {@link #to_offset(List, boolean)} but takes the subscripts as an array
+    * of int.
+    *
+    * @param index  Specifies the subscripts, most significant first
+    * @param index_len  Specifies the number of subscripts in the array
+    * @param ignore_least_significant  Specifies that the least significant
+    * subscript was omitted and is to be taken as one.
+    * @return The linear offset into the array assuming row major ordering and
+    * one based index.
+    */
+   public int to_offset(
+      int[] index,
+      int index_len,
+      boolean ignore_least_significant)
    {
       int rtn = 0;
-      Vector<Integer> index = new Vector<Integer>(index_);
-      
+      int count = index_len;
       if(ignore_least_significant)
-         index.add(1);
-      if(!index.isEmpty() && index.size() == dims.size())
+         ++count;
+      if(count > 0 && count == dims.length)
       {
          int weight = 1;
-         for(int i = dims.size(); i > 0; --i)
+         for(int i = dims.length; i > 0; --i)
          {
-            int dim = dims.get(i - 1);
-            int subscript = index.get(i - 1);
+            int subscript = i - 1 < index_len ? index[i - 1] : 1;
             rtn += (subscript - 1) * weight;
-            weight *= dim;
+            weight *= dims[i - 1];
          }
       }
       return rtn + 1;
@@ -99,18 +123,41 @@ public class ArrayDimensions
       int offset,
       boolean ignore_least_significant)
    {
-      List<Integer> rtn = new Vector<Integer>(dims.size());
+      int[] index = new int[dims.length];
+      int count = to_index(offset, ignore_least_significant, index);
+      List<Integer> rtn = new Vector<Integer>(count);
+      for(int i = 0; i < count; ++i)
+         rtn.add(index[i]);
+      return rtn;
+   } // to_index
+
+
+   /**
+    * Works out the subscripts for the specified linear index in the same way
+    * as {@link #to_index(int, boolean)} but writes them to an array of int.
+    *
+    * @param offset  Specifies the linear offset into the array
+    * @param ignore_least_significant  Specifies that the least significant
+    * dimension is to be left out of the index.
+    * @param index  Receives the subscripts, most significant first.  This must
+    * have room for get_dims_count() elements.
+    * @return the number of subscripts written
+    */
+   public int to_index(
+      int offset,
+      boolean ignore_least_significant,
+      int[] index)
+   {
       int weight = 1;
-      for(int i = dims.size(); i > 0; --i)
+      for(int i = dims.length; i > 0; --i)
       {
-         int dim = dims.get(i - 1);
-         int subscript = ((offset - 1) / weight) % dim + 1;
-         rtn.add(subscript);
+         int dim = dims[i - 1];
+         index[i - 1] = ((offset - 1) / weight) % dim + 1;
          weight *= dim;
       }
-      Collections.reverse(rtn);
-      if(ignore_least_significant)
-         rtn.remove(rtn.size() - 1);
+      int rtn = dims.length;
+      if(ignore_least_significant && rtn > 0)
+         --rtn;
       return rtn;
    } // to_index
    
@@ -124,7 +171,7 @@ public class ArrayDimensions
    public int array_size()
    {
       int rtn = 1;
-      for(Integer dim: dims)
+      for(int dim: dims)
          rtn *= dim;
       return rtn;
    } // array_size
@@ -137,7 +184,12 @@ public class ArrayDimensions
     *  @param dim the size of the dimension to add
     */
    public void add_dimension(int dim)
-   { dims.add(dim); }
+   {
+      int[] temp = new int[dims.length + 1];
+      System.arraycopy(dims, 0, temp, 0, dims.length);
+      temp[dims.length] = dim;
+      dims = temp;
+   } // add_dimension
    
    
    /**
@@ -151,39 +203,58 @@ public class ArrayDimensions
    public boolean for_scalar(boolean ignore_least_significant)
    {
       boolean rtn = false;
-      int dims_count = dims.size();
+      int dims_count = dims.length;
       if(ignore_least_significant)
          --dims_count;
-      if(dims_count == 0 || dims.get(dims_count - 1) == 1)
+      if(dims_count == 0 || dims[dims_count - 1] == 1)
          rtn = true;
       return rtn;
    } // for_scalar
    
    
    /**
-    * @return the array dimensions
+    * @return a copy of the array dimensions
     */
    public List<Integer> values()
-   { return dims; }
+   {
+      List<Integer> rtn = new Vector<Integer>(dims.length);
+      for(int dim: dims)
+         rtn.add(dim);
+      return rtn;
+   } // values
+
+
+   /**
+    * @return the number of dimensions
+    */
+   public int get_dims_count()
+   { return dims.length; }
+
+
+   /**
+    * @param i  Specifies the dimension, most significant first
+    * @return the size of the dimension
+    */
+   public int get_dim(int i)
+   { return dims[i]; }
    
    
    /** 
     * @return the least significant dimension
     */
    public int back()
-   { return dims.get(dims.size() - 1); }
+   { return dims[dims.length - 1]; }
    
    
    /**
     * @return the most significant dimension
     */
    public int front()
-   { return dims.get(0); }
+   { return dims[0]; }
    
    
    /**
     * Holds the array dimensions
     */
-   private Vector<Integer> dims;
+   private int[] dims;
 };
-
@@ -0,0 +1,136 @@
+/* ByteRing.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines a fixed size circular buffer of bytes that can be shared, without
+ * locking, between one thread that writes and one other thread that reads.
+ * The positions of the writer and reader are kept as running counts in
+ * volatile fields so that each side only ever changes its own position.
+ */
+final class ByteRing
+{
+   /**
+    * Constructor
+    *
+    * @param capacity_  Specifies the minimum capacity of the ring.  The actual
+    * capacity will be rounded up to the next power of two.
+    */
+   public ByteRing(int capacity_)
+   {
+      if(capacity_ <= 0)
+         throw new IllegalArgumentException("the capacity must be positive");
+      int capacity = Integer.highestOneBit(capacity_);
+      if(capacity < capacity_)
+         capacity <<= 1;
+      buffer = new byte[capacity];
+      mask = capacity - 1;
+      write_pos = 0;
+      read_pos = 0;
+   } // constructor
+
+
+   /**
+    * Copies as many of the specified bytes as will fit into the ring.  This
+    * method must only be called by the writing thread.
+    *
+    * @param buff  Specifies the bytes to write
+    * @param offset  Specifies the position of the first byte in buff
+    * @param len  Specifies the number of bytes to write
+    * @return the number of bytes that were written
+    */
+   public int write(
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      long head = write_pos;
+      int count = Math.min(len, buffer.length - (int)(head - read_pos));
+      if(count > 0)
+      {
+         int start = (int)(head & mask);
+         int first = Math.min(count, buffer.length - start);
+         System.arraycopy(buff, offset, buffer, start, first);
+         if(first < count)
+            System.arraycopy(buff, offset + first, buffer, 0, count - first);
+         write_pos = head + count;
+      }
+      return count;
+   } // write
+
+
+   /**
+    * Copies as many bytes as are available (up to the specified length) from
+    * the ring.  This method must only be called by the reading thread.
+    *
+    * @param buff  Specifies the buffer that will receive the bytes
+    * @param offset  Specifies the position in buff for the first byte
+    * @param len  Specifies the maximum number of bytes to read
+    * @return the number of bytes that were read
+    */
+   public int read(
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      long tail = read_pos;
+      int count = Math.min(len, (int)(write_pos - tail));
+      if(count > 0)
+      {
+         int start = (int)(tail & mask);
+         int first = Math.min(count, buffer.length - start);
+         System.arraycopy(buffer, start, buff, offset, first);
+         if(first < count)
+            System.arraycopy(buffer, 0, buff, offset + first, count - first);
+         read_pos = tail + count;
+      }
+      return count;
+   } // read
+
+
+   /**
+    * @return the number of bytes that are waiting to be read
+    */
+   public int available()
+   { return (int)(write_pos - read_pos); }
+
+
+   /**
+    * @return the total number of bytes that the ring can hold
+    */
+   public int capacity()
+   { return buffer.length; }
+
+
+   /**
+    * Holds the bytes in the ring
+    */
+   private final byte[] buffer;
+
+
+   /**
+    * Used to convert a running position into an index in the buffer
+    */
+   private final int mask;
+
+
+   /**
+    * Keeps track of the total number of bytes that have been written.  This is
+    * only changed by the writing thread.
+    */
+   private volatile long write_pos;
+
+
+   /**
+    * Keeps track of the total number of bytes that have been read.  This is
+    * only changed by the reading thread.
+    */
+   private volatile long read_pos;
+}
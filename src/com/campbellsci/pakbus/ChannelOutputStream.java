@@ -0,0 +1,172 @@
+/* ChannelOutputStream.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
+
+
+/**
+ * Adapts a writable channel so that it can be used as the output stream for
+ * a {@link Network}.  The channel may be in non-blocking mode (as it must be
+ * when its reading side is registered with a {@link NetworkSelector}).  When
+ * the channel cannot accept any more bytes, this object will wait for it to
+ * become writable using a private selector rather than spinning.  A write
+ * must complete within the write timeout.  If it does not, an IOException is
+ * thrown so that the network fails its link rather than holding up the
+ * thread (and any other networks that it services) while the peer is not
+ * reading.  Once a write has timed out, all further writes will fail.
+ */
+final class ChannelOutputStream extends OutputStream
+{
+   /**
+    * Constructor
+    *
+    * @param channel_  Specifies the channel that will receive all output
+    * @param write_timeout_  Specifies the longest time, in milli-seconds,
+    * that a single write can take
+    */
+   public ChannelOutputStream(
+      WritableByteChannel channel_,
+      int write_timeout_)
+   {
+      channel = channel_;
+      write_timeout = write_timeout_;
+      single = new byte[1];
+      wrapper = null;
+      timed_out = false;
+   } // constructor
+
+
+   @Override
+   public void write(int value) throws IOException
+   {
+      single[0] = (byte)value;
+      write(single, 0, 1);
+   } // write
+
+
+   @Override
+   public void write(
+      byte[] buff,
+      int offset,
+      int len) throws IOException
+   {
+      if(timed_out)
+         throw new IOException("an earlier write timed out");
+      // the frame encoder normally writes from the same buffer each time so
+      // the wrapper is only replaced when the buffer changes.
+      if(wrapper == null || !wrapper.hasArray() || wrapper.array() != buff)
+         wrapper = ByteBuffer.wrap(buff);
+      wrapper.clear();
+      wrapper.position(offset);
+      wrapper.limit(offset + len);
+      ByteBuffer source = wrapper;
+      long started = 0;
+      boolean waiting = false;
+      while(source.hasRemaining())
+      {
+         if(channel.write(source) == 0)
+         {
+            // the deadline is measured in real time (rather than by a Timer
+            // that may be driven by a virtual time source) and is only
+            // started once the channel first refuses output.
+            long now = System.nanoTime();
+            if(!waiting)
+            {
+               started = now;
+               waiting = true;
+            }
+            long remaining = write_timeout - (now - started) / 1000000L;
+            if(remaining <= 0)
+            {
+               timed_out = true;
+               throw new IOException("write timed out");
+            }
+            wait_for_writable(remaining);
+         }
+      }
+   } // write
+
+
+   @Override
+   public void close() throws IOException
+   {
+      if(write_selector != null)
+      {
+         write_selector.close();
+         write_selector = null;
+      }
+   } // close
+
+
+   /**
+    * Waits until the channel can accept more output or until the specified
+    * time has elapsed.  This will only happen when the channel is
+    * non-blocking and its buffers are full.
+    */
+   private void wait_for_writable(long max_wait) throws IOException
+   {
+      if(channel instanceof SelectableChannel)
+      {
+         if(write_selector == null)
+         {
+            write_selector = Selector.open();
+            ((SelectableChannel)channel).register(write_selector, SelectionKey.OP_WRITE);
+         }
+         write_selector.select(max_wait);
+         write_selector.selectedKeys().clear();
+      }
+      else
+         Thread.yield();
+   } // wait_for_writable
+
+
+   /**
+    * Specifies the maximum amount of time in msec that a write can take
+    */
+   private final int write_timeout;
+
+
+   /**
+    * Specifies the channel that will receive the output
+    */
+   private WritableByteChannel channel;
+
+
+   /**
+    * Used to write single bytes without allocating
+    */
+   private byte[] single;
+
+
+   /**
+    * Wraps the buffer that was last written so that a new wrapper need not be
+    * allocated for every write
+    */
+   private ByteBuffer wrapper;
+
+
+   /**
+    * Used to wait for the channel to become writable.  This will be null
+    * until the first time that the channel refuses output.
+    */
+   private Selector write_selector;
+
+
+   /**
+    * Set to true once a write has timed out
+    */
+   private boolean timed_out;
+}
@@ -114,6 +114,25 @@ public class ColumnDef
       int column_no_,
       byte field_type_,
       Packet message) throws Exception
+   { this(column_no_, field_type_, message, null); }
+   
+   
+   /**
+    * This constructor should generally be called only by the table definition
+    * constructor. 
+    *
+    * @param column_no_  Specifies the value for the column number.
+    * @param field_type_  Specifies the data type
+    * @param message     Specifies the message from which the rest of the field
+    * members will be initialised.
+    * @param interner    Specifies the table used to share the strings read
+    * from the message.  May be null if the strings are not to be shared.
+    */
+   protected ColumnDef(
+      int column_no_,
+      byte field_type_,
+      Packet message,
+      StringInterner interner) throws Exception
    {
       String alias = new String();
       int dim;
@@ -121,13 +140,13 @@ public class ColumnDef
       column_no = column_no_;
       data_type = (byte)(field_type_ & 0x7f);
       read_only = (field_type_ & 0x80) != 0;
-      name = message.read_string();
-      alias = message.read_string();
+      name = message.read_string(interner);
+      alias = message.read_string(interner);
       while(alias.length() > 0)
-         alias = message.read_string();
-      processing = message.read_string();
-      units = message.read_string();
-      description = message.read_string();
+         alias = message.read_string(interner);
+      processing = message.read_string(interner);
+      units = message.read_string(interner);
+      description = message.read_string(interner);
       begin_index = message.read_int4();
       piece_size = message.read_int4();
       dims = new ArrayDimensions();
@@ -138,6 +157,31 @@ public class ColumnDef
          dim = message.read_int4();
       }
    } // constructor
+
+
+
+   /**
+    * Moves the read position of the message past a column definition without
+    * creating any of its members.  This is used to index the table
+    * definitions so that the columns of a table need only be created when
+    * they are first needed.
+    *
+    * @param message  Specifies the message positioned just after the field
+    * type of the column definition.
+    */
+   protected static void skip(Packet message) throws Exception
+   {
+      message.skip_string();     // name
+      while(message.skip_string() > 0)
+         ;                       // alias list
+      message.skip_string();     // processing
+      message.skip_string();     // units
+      message.skip_string();     // description
+      message.read_int4();       // begin index
+      message.read_int4();       // piece size
+      while(message.read_int4() != 0)
+         ;                       // dimensions
+   } // skip
    
    
    /**
@@ -172,16 +216,21 @@ public class ColumnDef
       rtn.append(name);
       if(!dims.for_scalar(data_type == type_ascii))
       {
-         List<Integer> index = dims.to_index(offset, data_type == type_ascii);
+         // the offset of a string counts whole strings so it must be
+         // converted to an offset of characters
+         if(data_type == type_ascii)
+            offset = (offset - 1) * dims.back() + 1;
+         int[] index = new int[dims.get_dims_count()];
+         int index_len = dims.to_index(offset, data_type == type_ascii, index);
          boolean add_comma = false;
          rtn.append('(');
-         for(int i = 0; i < index.size(); ++i)
+         for(int i = 0; i < index_len; ++i)
          {
             if(add_comma)
                rtn.append(',');
             else
                add_comma = true;
-            rtn.append(i);
+            rtn.append(index[i]);
          }
          rtn.append(')');
       }
@@ -196,7 +245,31 @@ public class ColumnDef
     * @return linear_index
     */
    public int to_linear_index(List<Integer> array_address)
-   { return dims.to_offset(array_address,data_type == type_ascii); }
+   {
+      int[] address = new int[array_address.size()];
+      for(int i = 0; i < address.length; ++i)
+         address[i] = array_address.get(i);
+      return to_linear_index(address, address.length);
+   } // to_linear_index
+
+
+   /**
+    * Generates a linear index for the specified array address.  For strings,
+    * the index counts whole strings rather than characters.
+    *
+    * @param array_address  Specifies the subscripts, most significant first
+    * @param address_len  Specifies the number of subscripts
+    * @return linear_index
+    */
+   public int to_linear_index(
+      int[] array_address,
+      int address_len)
+   {
+      int rtn = dims.to_offset(array_address, address_len, data_type == type_ascii);
+      if(data_type == type_ascii)
+         rtn = (rtn - 1) / dims.back() + 1;
+      return rtn;
+   } // to_linear_index
    
 
    /**
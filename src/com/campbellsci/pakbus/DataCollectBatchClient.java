@@ -0,0 +1,36 @@
+/* DataCollectBatchClient.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines the call-back interface for a {@link DataCollectTran} client that
+ * receives its data as a column oriented {@link RecordBatch} rather than as a
+ * list of {@link Record} objects.  When the client of a data collect
+ * transaction implements this interface, on_batch() will be called in place
+ * of {@link DataCollectClient#on_records(DataCollectTran, java.util.List)}.
+ */
+public interface DataCollectBatchClient extends DataCollectClient
+{
+   /**
+    * Called when records have become available to be processed by the client.
+    * The client has the option to terminate the transaction by returning
+    * false.
+    *
+    * @param transaction  Specifies the data collection transaction
+    * @param batch  Holds the records that the client can process.  The
+    * transaction will reuse this object for the next set of records so the
+    * client must copy anything that it needs to keep after this call.
+    * @return true if the transaction should continue or false if the
+    * transaction must abort.
+    */
+   public abstract boolean on_batch(
+      DataCollectTran transaction,
+      RecordBatch batch);
+}
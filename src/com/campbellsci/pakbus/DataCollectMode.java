@@ -53,6 +53,38 @@ public abstract class DataCollectMode
    public abstract void on_response(List<Record> records);
    
    
+   /**
+    * Creates a packet for the next command.  The packet will be taken from
+    * the network's pool if the transaction has been added to a network.
+    */
+   protected Packet new_command()
+   {
+      Packet rtn;
+      if(transaction != null)
+         rtn = transaction.new_packet();
+      else
+         rtn = new Packet();
+      return rtn;
+   } // new_command
+   
+   
+   /**
+    * Gives a command packet that was obtained from new_command() back to the
+    * network's packet pool.  A subclass must call this if it decides not to
+    * send the packet (when get_next_command() finds that there is nothing
+    * more to collect and returns null, for instance).  A packet that is
+    * returned from get_next_command() is released by the transaction once it
+    * has been answered and must not be passed to this method.
+    *
+    * @param command  Specifies the unsent command packet
+    */
+   protected void release_command(Packet command)
+   {
+      if(transaction != null && transaction.network != null)
+         transaction.network.release_packet(command);
+   } // release_command
+   
+   
    /**
     * Reference to the data collect transaction
     */
@@ -41,7 +41,7 @@ public class DataCollectModeAllRecords extends DataCollectMode
    @Override
    public Packet get_next_command()
    {
-      Packet rtn = new Packet();
+      Packet rtn = new_command();
       rtn.protocol_type = Packet.protocol_bmp5;
       rtn.message_type = Packet.bmp5_collect_data_cmd;
       rtn.add_uint2(station.get_security_code());
@@ -64,7 +64,10 @@ public class DataCollectModeAllRecords extends DataCollectMode
          table_def.format_column_request(rtn);
       }
       else
+      {
+         release_command(rtn);
          rtn = null;
+      }
       return rtn;
    } // get_next_command
    
@@ -56,7 +56,7 @@ public class DataCollectModeDateRange extends DataCollectMode
    @Override
    public Packet get_next_command()
    {
-      Packet rtn = new Packet();
+      Packet rtn = new_command();
       rtn.protocol_type = Packet.protocol_bmp5;
       rtn.message_type = Packet.bmp5_collect_data_cmd;
       rtn.add_uint2(station.get_security_code());
@@ -88,7 +88,10 @@ public class DataCollectModeDateRange extends DataCollectMode
          table_def.format_column_request(rtn);
       }
       else
+      {
+         release_command(rtn);
          rtn = null;
+      }
       return rtn;
    } // get_next_command
 
@@ -115,8 +118,8 @@ public class DataCollectModeDateRange extends DataCollectMode
          else
          {
             if(newest_record != null && 
-               (begin_date.compareTo(newest_record.get_time_stamp()) < 0 ||
-                end_date.compareTo(newest_record.get_time_stamp()) >= 0))
+               (begin_date.get_elapsed() < newest_record.get_time_stamp_nsec() ||
+                end_date.get_elapsed() >= newest_record.get_time_stamp_nsec()))
                records.clear();
             state = state_type.complete;
          }
@@ -151,8 +154,8 @@ public class DataCollectModeDateRange extends DataCollectMode
          while(index < records.size())
          {
             Record record = records.get(index);
-            if(begin_date.compareTo(record.get_time_stamp()) < 0 ||
-               end_date.compareTo(record.get_time_stamp()) >= 0)
+            if(begin_date.get_elapsed() < record.get_time_stamp_nsec() ||
+               end_date.get_elapsed() >= record.get_time_stamp_nsec())
             {
                records.remove(index);
                state = state_type.complete;
@@ -177,8 +180,8 @@ public class DataCollectModeDateRange extends DataCollectMode
          // if we are done, we need to determine whether the newest record should
          // be added to the response set.
          if(state == state_type.complete &&
-            begin_date.compareTo(newest_record.get_time_stamp()) >= 0 &&
-            end_date.compareTo(newest_record.get_time_stamp()) < 0)
+            begin_date.get_elapsed() >= newest_record.get_time_stamp_nsec() &&
+            end_date.get_elapsed() < newest_record.get_time_stamp_nsec())
             records.add(newest_record);
       }
    } // on_response
@@ -42,7 +42,7 @@ public class DataCollectModeDateToNewest extends DataCollectMode
    @Override
    public Packet get_next_command()
    {
-      Packet rtn = new Packet();
+      Packet rtn = new_command();
       rtn.protocol_type = Packet.protocol_bmp5;
       rtn.message_type = Packet.bmp5_collect_data_cmd;
       rtn.add_uint2(station.get_security_code());
@@ -73,7 +73,10 @@ public class DataCollectModeDateToNewest extends DataCollectMode
          table_def.format_column_request(rtn);
       }
       else
+      {
+         release_command(rtn);
          rtn = null;
+      }
       return rtn;
    } // get_next_command
 
@@ -89,7 +92,7 @@ public class DataCollectModeDateToNewest extends DataCollectMode
          {
             newest_record = records.get(records.size() - 1);
             records.clear();
-            if(begin_date.compareTo(newest_record.get_time_stamp()) <= 0)
+            if(begin_date.get_elapsed() <= newest_record.get_time_stamp_nsec())
                state = state_type.query_date;
             else
                state = state_type.complete;   
@@ -107,7 +110,7 @@ public class DataCollectModeDateToNewest extends DataCollectMode
          else
             state = state_type.complete;
          if(state == state_type.complete &&
-            begin_date.compareTo(newest_record.get_time_stamp()) <= 0)
+            begin_date.get_elapsed() <= newest_record.get_time_stamp_nsec())
             records.add(newest_record);
       }
       else if(state == state_type.collect_holes)
@@ -121,7 +124,7 @@ public class DataCollectModeDateToNewest extends DataCollectMode
          else
             state = state_type.complete;
          if(state == state_type.complete &&
-            begin_date.compareTo(newest_record.get_time_stamp()) <= 0)
+            begin_date.get_elapsed() <= newest_record.get_time_stamp_nsec())
             records.add(newest_record);
       }
    } // on_response
@@ -42,7 +42,7 @@ public class DataCollectModeMostRecent extends DataCollectMode
    @Override
    public Packet get_next_command()
    {
-      Packet rtn = new Packet();
+      Packet rtn = new_command();
       rtn.protocol_type = Packet.protocol_bmp5;
       rtn.message_type = Packet.bmp5_collect_data_cmd;
       if(state == state_type.query_newest)
@@ -66,7 +66,10 @@ public class DataCollectModeMostRecent extends DataCollectMode
          table_def.format_column_request(rtn);
       }
       else
+      {
+         release_command(rtn);
          rtn = null;
+      }
       return rtn;
    } // get_next_command
 
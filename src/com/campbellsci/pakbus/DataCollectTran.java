@@ -44,6 +44,7 @@ public class DataCollectTran extends TransactionBase
       collect_mode.transaction = this;
       response_set = new LinkedList<Record>();
       record_data = new Packet();
+      batch_list = null;
    } // constructor
    
    
@@ -68,8 +69,10 @@ public class DataCollectTran extends TransactionBase
       table_name = table_def.name;
       client = client_;
       collect_mode = collect_mode_;
+      collect_mode.transaction = this;
       response_set = new LinkedList<Record>();
       record_data = new Packet();
+      batch_list = null;
    }
    
    
@@ -179,6 +182,14 @@ public class DataCollectTran extends TransactionBase
          collect_mode.table_def = table_def;
          collect_mode.station = station;
          
+         // a client that takes its data as a batch will be given the batch
+         // that the responses are read into
+         if(client instanceof DataCollectBatchClient)
+         {
+            batch_list = new RecordBatchList(table_def);
+            response_set = batch_list;
+         }
+         
          // get the first command from the collect mode
          Packet command = collect_mode.get_next_command();
          if(command != null)
@@ -233,13 +244,21 @@ public class DataCollectTran extends TransactionBase
                   int block_size = Math.min(
                      required_size, 
                      message.whats_left() - 1);
-                  record_data.add_bytes(message.read_bytes(block_size), block_size);
+                  
+                  // if the entire block is in this message, the records can be read
+                  // directly from the message without first being copied.
+                  if(record_data.whats_left() == 0 && block_size == required_size)
+                  {
+                     read_records(message, begin_record_no, records_count);
+                     continue;
+                  }
+                  record_data.add_bytes(message, block_size);
                   
                   // at this point, we need to determine whether to request more fragments
                   // or whether we can proceed
                   if(partial_record && record_data.whats_left() < required_size)
                   {
-                     Packet command = new Packet();
+                     Packet command = new_packet();
                      command.protocol_type = Packet.protocol_bmp5;
                      command.message_type = Packet.bmp5_collect_data_cmd;
                      command.add_uint2(station.get_security_code());
@@ -252,9 +271,14 @@ public class DataCollectTran extends TransactionBase
                      station.change_transaction_id(this);
                      post_message(command);
                      completing_partial = true;
+                     
+                     // the records already read from this message must not
+                     // refer to it once it has been released
+                     if(batch_list != null)
+                        batch_list.copy_records();
                   }
                   else
-                     read_records(begin_record_no,records_count);
+                     read_records(record_data, begin_record_no, records_count);
                }
                
                // if we are not comleting a partial set, we have now read 
@@ -266,10 +290,18 @@ public class DataCollectTran extends TransactionBase
                   boolean continue_transaction = true;
                   collect_mode.on_response(response_set);
                   if(!response_set.isEmpty() && client != null)
-                     continue_transaction = client.on_records(this, response_set);
-                  for(Record record: response_set)
-                     table_def.cache_record(record);
-                  response_set.clear();
+                     continue_transaction = report_records();
+                  if(batch_list != null)
+                  {
+                     batch_list.cache_records();
+                     batch_list.reset();
+                  }
+                  else
+                  {
+                     for(Record record: response_set)
+                        table_def.cache_record(record);
+                     response_set.clear();
+                  }
                   record_data.clear();
                   
                   // we now need to get the next command
@@ -377,20 +409,51 @@ public class DataCollectTran extends TransactionBase
    
    /**
     * Used to read a collection of records from the record buffer 
-    * into the response set.
+    * into the response set.  If the client takes its data as a batch, the
+    * records will be decoded into the batch behind the response set and
+    * record objects will only be created for those that the collect mode
+    * asks for.
     * 
+    * @param source  Specifies the message or buffer that holds the records
     * @param begin_record_no  Specifies the record number for the first
     * record
     * @param records_count    Specifies the number of records expected
     */
-   private void read_records(long begin_record_no, int records_count) throws Exception
+   private void read_records(
+      Packet source,
+      long begin_record_no,
+      int records_count) throws Exception
    {
-      table_def.read_records(
-         record_data,
-         response_set,
-         begin_record_no,
-         records_count);
+      if(batch_list != null)
+         batch_list.read_records(source, begin_record_no, records_count);
+      else
+         table_def.read_records(
+            source,
+            response_set,
+            begin_record_no,
+            records_count);
    } // read_records
+
+
+   /**
+    * Reports the records selected by the collect mode to the client
+    * 
+    * @return true if the transaction should continue
+    */
+   private boolean report_records()
+   {
+      boolean rtn;
+      if(batch_list != null)
+      {
+         // the batch is given to the client directly once it holds only the
+         // records that the collect mode selected
+         batch_list.select_rows();
+         rtn = ((DataCollectBatchClient)client).on_batch(this, batch_list.get_batch());
+      }
+      else
+         rtn = client.on_records(this, response_set);
+      return rtn;
+   } // report_records
    
    
    /**
@@ -428,4 +491,12 @@ public class DataCollectTran extends TransactionBase
     * Used to accumulate the fragments of record data 
     */
    Packet record_data;
+
+
+   /**
+    * Holds the records read from the current response when the client takes
+    * its data as a batch.  This also serves as the response set in that
+    * case.
+    */
+   private RecordBatchList batch_list;
 }
@@ -104,6 +104,7 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
    {
       // we will set up the timer so that future attempts will retry even if polling does not work here
       time_since_last = new Timer();
+      schedule_poll();
       try
       {
          // we will create the poller now that will drive the first collection.
@@ -131,7 +132,7 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
       }
       
       // this transaction uses others so it does not want to keep focus. 
-      if(station.get_focus() == this)
+      if(has_focus())
          release_focus();
    }
 
@@ -149,6 +150,7 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
    {
       boolean first_poll_complete = true;
       poller = null;
+      schedule_poll();
       if(outcome == DataCollectTran.outcome_success)
       {
          if(waiting_for_first && relative_to_newest)
@@ -165,6 +167,10 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
       else if(outcome == DataCollectTran.outcome_invalid_table_defs ||
               outcome == DataCollectTran.outcome_invalid_table_name)
       {
+         // the cached table definitions (if any) can no longer be trusted
+         TableDefsCache cache = station.get_table_defs_cache();
+         if(cache != null)
+            cache.remove(station);
          station.start_get_table_defs();
          first_poll_complete = false;
       }
@@ -187,7 +193,7 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
          if(waiting_for_first && !start_at_newest && relative_to_newest && !records.isEmpty())
          {
             Record first = records.get(0);
-            LoggerDate new_start_time = new LoggerDate(first.get_time_stamp());
+            LoggerDate new_start_time = new LoggerDate(first.get_time_stamp_nsec());
             new_start_time.add_nsec(-1 * start_time.get_elapsed());
             start_time = new_start_time;
          }
@@ -198,6 +204,11 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
             {
                newest_record_no = last.get_record_no();
                client.on_records(this, records);
+               
+               // a client that has been wrapped by a dispatcher can ask us to
+               // stop this poll.  The next poll will start after the newest record.
+               if(client instanceof RecordDispatcher.UpdaterWrapper)
+                  rtn = !((RecordDispatcher.UpdaterWrapper)client).is_congested();
             }
          }
       }
@@ -246,6 +257,17 @@ public class DataUpdater extends TransactionBase implements DataCollectClient
          station.get_network().add_comment("Data updater poll failed: " + e.toString());
          poller = null;
       }
+      schedule_poll();
+   }
+   
+   
+   /**
+    * Schedules the station to check this transaction when the next poll is due
+    */
+   private void schedule_poll()
+   {
+      if(time_since_last != null && poller == null)
+         schedule_check((int)Math.min(poll_interval - time_since_last.elapsed() + 1, Integer.MAX_VALUE));
    }
    
    
@@ -52,10 +52,14 @@ public final class Datalogger implements GetTableDefsClient
       last_tran_no = (short)generator.nextInt(255);
       max_packet_size = 998;
       round_trip_time = 5000;
-      table_defs = new Vector<TableDef>();
+      table_defs = Collections.emptyList();
+      tables_by_name = Collections.emptyMap();
       value_factory = new ValueFactory();
       one_way_data_handlers = new LinkedList<OneWayDataHandler>();
       check_for_shutdown = false;
+      check_list = new ArrayList<TransactionBase>();
+      string_interner = null;
+      table_defs_cache = null;
    } // constructor
 
 
@@ -75,10 +79,14 @@ public final class Datalogger implements GetTableDefsClient
       last_tran_no = (short)generator.nextInt(255);
       round_trip_time = 5000;
       max_packet_size = 998;
-      table_defs = new Vector<TableDef>();
+      table_defs = Collections.emptyList();
+      tables_by_name = Collections.emptyMap();
       value_factory = new ValueFactory();
       one_way_data_handlers = new LinkedList<OneWayDataHandler>();
       check_for_shutdown = false;
+      check_list = new ArrayList<TransactionBase>();
+      string_interner = null;
+      table_defs_cache = null;
    } // constructor
       
 
@@ -104,7 +112,32 @@ public final class Datalogger implements GetTableDefsClient
     * @param network_  Specifies the network reference
     */
    public void set_network(Network network_)
-   { network = network_; }
+   {
+      // the check entry belongs to the timer wheel of the network so we will
+      // need a new one if the network changes
+      if(network_ != network)
+         check_entry = null;
+      network = network_;
+   } // set_network
+   
+   
+   /**
+    * Schedules the next time that the network should call check_state() for
+    * this station.  If a check is already scheduled to take place sooner,
+    * that time will be kept.
+    * 
+    * @param delay  Specifies the time in msec before the check should take
+    * place.
+    */
+   void schedule_check(int delay)
+   {
+      if(network != null)
+      {
+         if(check_entry == null)
+            check_entry = new TimerWheel.Entry(this);
+         network.timers.schedule(check_entry, delay);
+      }
+   } // schedule_check
 
 
    /**
@@ -147,6 +180,8 @@ public final class Datalogger implements GetTableDefsClient
     * Adds the specified transaction to the map managed by this device.  At the
     * same time, assigns that transaction a unique identifier and assigns its
     * network and station fields.  Finally, focus is requested for the transaction. 
+    * This method should only be called from the thread that services the
+    * network.  Other threads should use Network.post_transaction() instead.
     * 
     * @param transaction  The transaction to be added. 
     */
@@ -172,6 +207,7 @@ public final class Datalogger implements GetTableDefsClient
          transaction.network = network;
          transaction.station = this;
          transactions.put(transaction.tran_no, transaction);
+         schedule_check(0);
          network.add_comment(
             "Transaction added: \"" + 
             transaction.get_name() +
@@ -196,6 +232,7 @@ public final class Datalogger implements GetTableDefsClient
          {
             target.is_satisfied = true;
             defunct_transactions.add(tran_no);
+            schedule_check(0);
             if(!target.will_close())
                check_for_shutdown = true;
             network.add_comment(
@@ -228,6 +265,49 @@ public final class Datalogger implements GetTableDefsClient
    { return security_code; }
 
 
+   /**
+    * Specifies the table that will be used to share the strings in this
+    * station's table definitions.  The same interner can be given to several
+    * stations so that the names, units, and processing strings that they have
+    * in common are kept only once.  This will take effect the next time that
+    * table definitions are parsed.
+    *
+    * @param string_interner_  Specifies the interner or null if strings are
+    * not to be shared.
+    */
+   public void set_string_interner(StringInterner string_interner_)
+   { string_interner = string_interner_; }
+   
+   
+   /**
+    * @return the table used to share the strings in the table definitions
+    * (may be null)
+    */
+   public StringInterner get_string_interner()
+   { return string_interner; }
+
+
+   /**
+    * Specifies the cache in which this station's table definitions will be
+    * kept between sessions.  If the cache holds table definitions for the
+    * program that the station reports, these will be used instead of reading
+    * the table definitions file from the station.
+    *
+    * @param table_defs_cache_  Specifies the cache or null if table
+    * definitions are always to be read from the station.
+    */
+   public void set_table_defs_cache(TableDefsCache table_defs_cache_)
+   { table_defs_cache = table_defs_cache_; }
+
+
+   /**
+    * @return the cache used to keep table definitions between sessions (may
+    * be null)
+    */
+   public TableDefsCache get_table_defs_cache()
+   { return table_defs_cache; }
+
+
    /**
     * @return Returns the raw table definitions or a null object if 
     * table definitions have not been assigned or read.
@@ -256,39 +336,49 @@ public final class Datalogger implements GetTableDefsClient
    
    /**
     * Sets the value of the raw table defs member and causes the new table 
-    * definitions to be parsed into the table_defs structure. 
+    * definitions to be indexed into the table_defs structure.  Only the
+    * header of each table is read at this time.  The column definitions of a
+    * table are created from the raw table definitions when they are first
+    * needed so the packet must not be changed after this call.
     * 
     * @param raw_table_defs_  Specifies the packet for the raw table definitions. 
     */
    public void set_raw_table_defs(Packet raw_table_defs_)
    {
-      // make the initial assignments
-      raw_table_defs = raw_table_defs_;
-      table_defs.clear();
-      
+      // the new index is built on the side and then published so that other
+      // threads will see either the old tables or all of the new ones
+      List<TableDef> new_table_defs = new ArrayList<TableDef>();
+      Map<String, TableDef> new_tables_by_name = new HashMap<String, TableDef>();
       try
       {
-         // we now need to parse the table defs structure
-         if(raw_table_defs != null)
+         // we now need to index the table defs structure
+         if(raw_table_defs_ != null)
          {
-            raw_table_defs.reset();
-            byte fsl_version = raw_table_defs.read_byte();
+            raw_table_defs_.reset();
+            byte fsl_version = raw_table_defs_.read_byte();
             if(fsl_version == 1)
             {
                int table_no = 1;
-               while(raw_table_defs.whats_left() > 0)
+               while(raw_table_defs_.whats_left() > 0)
                {
-                  TableDef table_def = new TableDef(table_no++, raw_table_defs, this);
-                  table_defs.add(table_def);
+                  TableDef table_def = new TableDef(table_no++, raw_table_defs_, this);
+                  new_table_defs.add(table_def);
+                  String key = table_key(table_def.name);
+                  if(!new_tables_by_name.containsKey(key))
+                     new_tables_by_name.put(key, table_def);
                }
             }
          }
+         raw_table_defs = raw_table_defs_;
       }
       catch(Exception e)
       {
          raw_table_defs = null;
-         table_defs.clear();
+         new_table_defs.clear();
+         new_tables_by_name.clear();
       }
+      table_defs = Collections.unmodifiableList(new_table_defs);
+      tables_by_name = new_tables_by_name;
       
       // we need to let each transaction know that table definitions may have changed
       synchronized(transactions)
@@ -310,14 +400,8 @@ public final class Datalogger implements GetTableDefsClient
    public TableDef get_table(String name)
    {
       TableDef rtn = null;
-      for(TableDef table: table_defs)
-      {
-         if(name != null && table.name.compareToIgnoreCase(name) == 0)
-         {
-            rtn = table;
-            break;
-         }
-      }
+      if(name != null)
+         rtn = tables_by_name.get(table_key(name));
       try
       {
          if(table_defs.isEmpty())
@@ -343,16 +427,26 @@ public final class Datalogger implements GetTableDefsClient
    public TableDef get_table(int table_no)
    {
       TableDef rtn = null;
+      List<TableDef> tables = table_defs;
       try
       {
-         if(table_defs.isEmpty())
+         if(tables.isEmpty())
             start_get_table_defs();
-         rtn = table_defs.get(table_no - 1);
+         if(table_no >= 1 && table_no <= tables.size())
+            rtn = tables.get(table_no - 1);
       }
       catch(Exception e)
       { }
       return rtn;
    }
+
+
+   /**
+    * Forms the key under which a table is found by name.  Table names are
+    * compared without regard to case.
+    */
+   private static String table_key(String name)
+   { return name.toLowerCase(Locale.ENGLISH); }
    
    
    /**
@@ -483,11 +577,12 @@ public final class Datalogger implements GetTableDefsClient
    { one_way_data_handlers.remove(handler); }
    
    /**
-    * Get the network transaction that currently has focus
-    * @return The network transaction object that currently has focus.
+    * Get the transaction for this station that currently has focus
+    * @return The transaction for this station that has held focus the longest
+    * or null if none of this station's transactions has focus.
     */
    public TransactionBase get_focus()
-   { return network.get_focus(); }
+   { return network.get_focus(this); }
 
    
    /**
@@ -608,10 +703,14 @@ public final class Datalogger implements GetTableDefsClient
    {
       synchronized(transactions)
       {
-         // check the state of all transactions
-         List<TransactionBase> temp_transactions = new LinkedList<TransactionBase>(transactions.values());
-         for(TransactionBase transaction: temp_transactions)
+         // check the state of all transactions.  The transactions are copied
+         // to a list that is kept between calls because they may add or remove
+         // transactions as they are checked.
+         check_list.clear();
+         check_list.addAll(transactions.values());
+         for(TransactionBase transaction: check_list)
             transaction.check_state();
+         check_list.clear();
          
          // if there are no active transactions, but there have been, we will need to post a shut down transaction.
          if(check_for_shutdown)
@@ -726,18 +825,16 @@ public final class Datalogger implements GetTableDefsClient
       try
       {
          int table_no = message.read_uint2();
-         for(TableDef table: table_defs)
+         List<TableDef> tables = table_defs;
+         if(table_no >= 1 && table_no <= tables.size())
          {
-            if(table.table_no == table_no)
+            TableDef table = tables.get(table_no - 1);
+            List<Record> records = new LinkedList<Record>();
+            table.on_one_way_data_fragment(records, message);
+            for(Record record: records)
             {
-               List<Record> records = new LinkedList<Record>();
-               table.on_one_way_data_fragment(records, message);
-               for(Record record: records)
-               {
-                  for(OneWayDataHandler handler: one_way_data_handlers)
-                     handler.on_one_way_record(this, record);
-               }
-               break;
+               for(OneWayDataHandler handler: one_way_data_handlers)
+                  handler.on_one_way_record(this, record);
             }
          }
       }
@@ -855,6 +952,13 @@ public final class Datalogger implements GetTableDefsClient
    private short last_tran_no;
    
    
+   /**
+    * Keeps track of the number of transactions for this station that have
+    * focus
+    */
+   int focus_count;
+   
+   
    /**
     * Specifies the list of transactions that should be deleted at the end of the state check cycle.
     */
@@ -876,9 +980,17 @@ public final class Datalogger implements GetTableDefsClient
 
 
    /**
-    * Stores the parsed table definitions for this datalogger.
+    * Stores the table definitions for this datalogger in the order of their
+    * table numbers.  This list is replaced, rather than changed, when new
+    * table definitions are assigned.
+    */
+   private volatile List<TableDef> table_defs;
+
+
+   /**
+    * Indexes the table definitions by their names converted to lower case
     */
-   private List<TableDef> table_defs;
+   private volatile Map<String, TableDef> tables_by_name;
 
 
    /**
@@ -887,6 +999,18 @@ public final class Datalogger implements GetTableDefsClient
    private Packet raw_table_defs;
    
    
+   /**
+    * Specifies the table used to share the strings in the table definitions
+    */
+   private StringInterner string_interner;
+
+
+   /**
+    * Specifies the cache used to keep table definitions between sessions
+    */
+   private TableDefsCache table_defs_cache;
+   
+   
    /**
     * Specifies the maximum packet size that can be used for messages sent to this datalogger. 
     */
@@ -908,5 +1032,17 @@ public final class Datalogger implements GetTableDefsClient
     * Used to flag that the check_state()  method should check to see if a shut down transaction should be posted.
     */
    boolean check_for_shutdown;
+   
+   
+   /**
+    * Used by check_state() to hold the transactions that are being checked
+    */
+   private List<TransactionBase> check_list;
+   
+   
+   /**
+    * Used to schedule the times at which the network will call check_state()
+    */
+   private TimerWheel.Entry check_entry;
 };
 
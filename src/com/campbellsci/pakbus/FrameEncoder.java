@@ -0,0 +1,142 @@
+/* FrameEncoder.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines an object that lays out a packet as a complete low level frame
+ * (including synch bytes, quoting, and the signature nullifier) in a buffer
+ * that is reused from one packet to the next.  This allows the network to
+ * hand each frame to its output stream in a single write.  Each link owns its
+ * own encoder so the buffers are not shared between links.
+ */
+final class FrameEncoder
+{
+   /**
+    * Constructor
+    */
+   public FrameEncoder()
+   {
+      raw = new byte[initial_size];
+      frame = new byte[initial_size * 2 + 8];
+      frame_len = 0;
+   } // constructor
+
+
+   /**
+    * Encodes the specified packet using the framing that is appropriate for
+    * its sub-protocol.  The frame can be obtained using get_frame() and
+    * get_frame_len().
+    *
+    * @param packet  Specifies the packet to encode
+    * @return the number of bytes in the frame or zero if the packet
+    * sub-protocol cannot be framed.
+    */
+   public int encode(Packet packet)
+   {
+      frame_len = 0;
+      if(packet.sub_protocol == Packet.sub_control ||
+         packet.sub_protocol == Packet.sub_link_state)
+      {
+         // the packet is written to the raw buffer so that its signature can
+         // be calculated.  In the worst case, every byte will be quoted so we
+         // need room for twice the packet and signature plus both synch bytes
+         int raw_len = packet.get_serial_packet_len();
+         reserve(raw_len, raw_len * 2 + 6);
+         packet.write_serial_packet(raw, 0);
+         int sig_null = Utils.calc_sig_nullifier(Utils.calc_sig(raw, raw_len));
+
+         frame[frame_len++] = (byte)LowLevelDecoder.synch_byte;
+         for(int i = 0; i < raw_len; ++i)
+            add_quoted(raw[i] & 0xff);
+         add_quoted((sig_null & 0xFF00) >> 8);
+         add_quoted(sig_null & 0x00FF);
+         frame[frame_len++] = (byte)LowLevelDecoder.synch_byte;
+      }
+      else if(packet.sub_protocol == Packet.sub_unquoted)
+      {
+         // the unquoted packet can be written directly into the frame
+         int raw_len = packet.get_unquoted_packet_len();
+         reserve(0, raw_len + 3);
+         frame[0] = (byte)LowLevelDecoder.synch_byte;
+         frame[1] = (byte)0xf0;
+         frame_len = 2 + packet.write_unquoted_packet(frame, 2);
+         frame[frame_len++] = (byte)LowLevelDecoder.synch_byte;
+      }
+      return frame_len;
+   } // encode
+
+
+   /**
+    * @return the buffer that holds the last frame encoded.  This buffer will
+    * be overwritten by the next call to encode().
+    */
+   public byte[] get_frame()
+   { return frame; }
+
+
+   /**
+    * @return the number of bytes in the last frame encoded
+    */
+   public int get_frame_len()
+   { return frame_len; }
+
+
+   /**
+    * Appends the specified byte to the frame, quoting it if needed.
+    */
+   private void add_quoted(int ch)
+   {
+      if(ch == LowLevelDecoder.synch_byte || ch == LowLevelDecoder.quote_byte)
+      {
+         frame[frame_len++] = (byte)LowLevelDecoder.quote_byte;
+         frame[frame_len++] = (byte)(ch + 0x20);
+      }
+      else
+         frame[frame_len++] = (byte)ch;
+   } // add_quoted
+
+
+   /**
+    * Ensures that the raw and frame buffers have at least the specified
+    * lengths.
+    */
+   private void reserve(int raw_len, int frame_needed)
+   {
+      if(raw.length < raw_len)
+         raw = new byte[Math.max(raw_len, raw.length * 2)];
+      if(frame.length < frame_needed)
+         frame = new byte[Math.max(frame_needed, frame.length * 2)];
+   } // reserve
+
+
+   /**
+    * Specifies the initial size of the raw buffer.  This is large enough for
+    * most PakBus messages.
+    */
+   private static final int initial_size = 1024;
+
+
+   /**
+    * Holds the unquoted packet while its signature is calculated
+    */
+   private byte[] raw;
+
+
+   /**
+    * Holds the most recently encoded frame
+    */
+   private byte[] frame;
+
+
+   /**
+    * Specifies the number of bytes in the frame buffer
+    */
+   private int frame_len;
+}
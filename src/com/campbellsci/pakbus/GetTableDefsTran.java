@@ -100,6 +100,7 @@ public class GetTableDefsTran extends TransactionBase
       if(outcome_ == GetFileTran.outcome_success)
       {
          station.set_raw_table_defs(raw_table_defs);
+         store_table_defs();
          on_complete(outcome_success);
       }
       else
@@ -158,15 +159,50 @@ public class GetTableDefsTran extends TransactionBase
    {
       if(outcome == GetProgStatsTran.outcome_success)
       {
-         file_reader = new GetFileTran(".TDF",this);
-         station.add_transaction_without_focus(file_reader);
-         file_reader.on_focus_start();
+         // if the program has not changed since its table definitions were
+         // cached, we can use those rather than reading the file again
+         TableDefsCache cache = station.get_table_defs_cache();
+         Packet cached_table_defs = null;
+         if(cache != null)
+            cached_table_defs = cache.load(station);
+         if(cached_table_defs != null)
+            station.set_raw_table_defs(cached_table_defs);
+         if(cached_table_defs != null && station.get_raw_table_defs() != null)
+            on_complete(outcome_success);
+         else
+         {
+            file_reader = new GetFileTran(".TDF",this);
+            station.add_transaction_without_focus(file_reader);
+            file_reader.on_focus_start();
+         }
       }
       else
          on_complete(outcome);
    } // on_complete
    
 
+   /**
+    * Stores the table definitions that were just read in the station's cache
+    * (if any).  A failure to store them is reported as a comment.
+    */
+   private void store_table_defs()
+   {
+      TableDefsCache cache = station.get_table_defs_cache();
+      if(cache != null && station.get_raw_table_defs() != null)
+      {
+         try
+         {
+            cache.store(station, raw_table_defs);
+         }
+         catch(Exception e)
+         {
+            station.get_network().add_comment(
+               "unable to cache table definitions: " + e.toString());
+         }
+      }
+   } // store_table_defs
+
+
    /**
     * Called when this transaction has completed
     */
@@ -184,7 +184,7 @@ public class GetValuesTran extends TransactionBase
                
                // we can now create the record
                record = table_def.make_record();
-               record.read(0, new LoggerDate(), message);
+               record.read(0, 0, message);
                on_complete(outcome_success);
             }  
             else
@@ -39,6 +39,9 @@ final class Link
       watch_dog = new Timer();
       sub_protocol = Packet.sub_link_state;
       link_state = link_state_offline;
+      encoder = new FrameEncoder();
+      timer_entry = new TimerWheel.Entry(this);
+      network.timers.schedule(timer_entry, 0);
    } // constructor
 
 
@@ -52,19 +55,49 @@ final class Link
          send_ring(false);
       if(before_finish_timer != null)
          send_finished();
-      if(sub_protocol != Packet.sub_unquoted && watch_dog.elapsed() > 40000)
+      if(sub_protocol != Packet.sub_unquoted && watch_dog.elapsed() > Network.link_timeout)
          link_state = link_state_offline;
       if(sub_protocol != Packet.sub_unquoted && 
          link_state == link_state_finished && 
-         watch_dog.elapsed() > 5000)
+         watch_dog.elapsed() > finished_timeout)
          link_state = link_state_offline;
       if(sub_protocol == Packet.sub_unquoted && close)
          link_state = link_state_offline;
       if(link_state == link_state_offline)
          network.on_link_offline(neighbour_address);
+      else
+         schedule_check();
    } // check_status
    
    
+   /**
+    * Schedules the next time that check_status() needs to be called based
+    * upon the timers that are currently running for this link.
+    */
+   public void schedule_check()
+   {
+      int delay = Network.link_timeout;
+      if(sub_protocol != Packet.sub_unquoted)
+      {
+         if(link_state == link_state_finished)
+            delay = finished_timeout;
+         delay -= watch_dog.elapsed();
+      }
+      if(ring_timer != null)
+      {
+         // once all of the rings have been sent, send_ring() will report
+         // the failure on the next check
+         if(ringing_retry_count > 4)
+            delay = 0;
+         else
+            delay = Math.min(delay, get_ring_timeout() - ring_timer.elapsed());
+      }
+      if(before_finish_timer != null)
+         delay = Math.min(delay, before_finish_delay - before_finish_timer.elapsed());
+      network.timers.schedule(timer_entry, delay + 1);
+   } // schedule_check
+   
+   
    /**
     * Updates the internal state of this link based upo the contents of the
     * incoming message.  Fields that will be updated include the link state as
@@ -97,6 +130,7 @@ final class Link
       }
       else if(frame.sub_protocol == Packet.sub_unquoted)
          link_state = link_state_ready;
+      schedule_check();
    } // process_incoming_frame
 
    
@@ -109,6 +143,7 @@ final class Link
          on_ready_to_send(false);
       else if(link_state == link_state_offline)
          send_ring(true);
+      schedule_check();
    } // on_message_ready
    
 
@@ -210,7 +245,7 @@ final class Link
       packet.neighbour_dest_address = neighbour_address;
       packet.link_state = send_link_state;
       packet.sub_protocol = sub_protocol;
-      network.send_packet(packet);
+      network.send_packet(packet, encoder);
    } // send_serial_packet
 
    
@@ -236,9 +271,10 @@ final class Link
             link_state = link_state_ready;
             if(waiting_to_send_count() == 0)
             {
-               Packet empty = new Packet();
+               Packet empty = network.acquire_empty_packet();
                empty.short_header = true;
                send_serial_packet(empty,Packet.link_ready);
+               network.release_packet(empty);
             }
             else
                on_ready_to_send(false); 
@@ -275,11 +311,12 @@ final class Link
          }
          else
          {
-            Packet empty = new Packet();
+            Packet empty = network.acquire_empty_packet();
             empty.short_header = true;
             empty.neighbour_dest_address = neighbour_address;
             empty.link_state = Packet.link_off_line;
-            network.send_packet(empty);
+            network.send_packet(empty, encoder);
+            network.release_packet(empty);
             link_state = link_state_offline;
             network.on_link_offline(neighbour_address);
          }
@@ -288,16 +325,18 @@ final class Link
       case Packet.link_pause:
          if(link_state != link_state_finished)
          {
-            Packet empty = new Packet();
+            Packet empty = network.acquire_empty_packet();
             empty.short_header = true;
             send_serial_packet(empty,Packet.link_finished);
+            network.release_packet(empty);
             link_state = link_state_finished;
          }
          else if(link_state == link_state_offline)
          {
-            Packet empty = new Packet();
+            Packet empty = network.acquire_empty_packet();
             empty.short_header = true;
             send_serial_packet(empty,Packet.link_off_line);
+            network.release_packet(empty);
          }
          break;
       }
@@ -364,11 +403,7 @@ final class Link
    {
       if(sub_protocol != Packet.sub_unquoted)
       {
-         int ring_timeout = Math.min(
-            2000,
-            Math.max(
-               600,
-               network.get_link_delay()));
+         int ring_timeout = get_ring_timeout();
          if(first_ring || ring_timer == null)
          {
             ring_timer = new Timer();
@@ -377,12 +412,13 @@ final class Link
          if((first_ring || ring_timer.elapsed() >= ring_timeout) && ringing_retry_count++ <= 4)
          {
             // send the ring packet
-            Packet empty = new Packet();
+            Packet empty = network.acquire_empty_packet();
          
             link_state = link_state_ringing;
             empty.capabilities = 0x09; // indicate support for both link state and unquoted protocols
             empty.short_header = true;
             send_serial_packet(empty,Packet.link_ring);
+            network.release_packet(empty);
             ring_timer = new Timer();
          }
          else if(ringing_retry_count > 4)
@@ -400,6 +436,20 @@ final class Link
    } // send_ring
 
 
+   /**
+    * @return the amount of time in msec that we will wait for a response to a
+    * ring before sending another.
+    */
+   private int get_ring_timeout()
+   {
+      return Math.min(
+         2000,
+         Math.max(
+            600,
+            network.get_link_delay()));
+   } // get_ring_timeout
+
+
    /**
     * Either sends a finish message or sets up the conditions to send one in
     * the future.
@@ -411,12 +461,13 @@ final class Link
          link_state = link_state_finished;
          if(before_finish_timer == null)
             before_finish_timer = new Timer();
-         else if(before_finish_timer.elapsed() >= 1000)
+         else if(before_finish_timer.elapsed() >= before_finish_delay)
          {
-            Packet empty = new Packet();
+            Packet empty = network.acquire_empty_packet();
             empty.short_header = true;
             before_finish_timer = null;
             send_serial_packet(empty,Packet.link_finished);
+            network.release_packet(empty);
          }
       }
    } // send_finished
@@ -431,6 +482,28 @@ final class Link
     * Specifies the remote PakBus address for this link
     */
    short neighbour_address;
+   
+   /**
+    * Used to frame the packets sent on this link
+    */
+   private FrameEncoder encoder;
+
+   /**
+    * Specifies the time in msec that a link can remain in a finished state
+    * before it is considered off-line.
+    */
+   private static final int finished_timeout = 5000;
+   
+   /**
+    * Specifies the time in msec that the link will wait before sending a
+    * finished packet.
+    */
+   private static final int before_finish_delay = 1000;
+   
+   /**
+    * Used to schedule the times at which check_status() needs to be called
+    */
+   private TimerWheel.Entry timer_entry;
 
    // the following constants define the internal values of the link_state
    // member.
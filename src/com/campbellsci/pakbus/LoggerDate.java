@@ -13,6 +13,7 @@
 package com.campbellsci.pakbus;
 
 
+import java.time.Instant;
 import java.util.*;
 
 
@@ -194,37 +195,11 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     */
    public long[] to_date()
    {
-      // we need both the days elapsed as well as the positive remainder in nano-seconds
-      long year, month, day;
-      long days_since_1990 = Utils.truediv(elapsed, nsec_per_day)[0];
-      
-      // we can now apply julian day calculations
-      long clock = jul_day_1990 - jul_day_0 + days_since_1990;
-      year = (4 * clock - 1)/146097L;
-      clock = 4*clock - 1 - year*146097;
-
-      // we can now strip off the month and day
-      long d = clock/4;
-      clock = (4*d + 3)/1461;
-      d = 4*d + 3 - clock/1461;
-      d = (d + 4)/4;
-      month = (5*d - 3)/153;
-      d = 5*d - 3 - month*153;
-      day = (d + 5)/5;
-      year = 100*year + clock;
-      if(month < 10)
-         month += 3;
-      else
-      {
-         month -= 9;
-         year++;
-      } 
-      
-      // set up the return values
+      int date = civil_date(get_days_since_1990());
       long[] rtn = new long[3];
-      rtn[0] = year;
-      rtn[1] = month;
-      rtn[2] = day;
+      rtn[0] = civil_year(date);
+      rtn[1] = civil_month(date);
+      rtn[2] = civil_day(date);
       return rtn;
    } // to_date
 
@@ -236,16 +211,11 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     */
    public long[] to_time()
    {
-      long[] temp = Utils.truediv(elapsed, nsec_per_sec);
       long[] rtn = new long[4];
-      
-      rtn[3] = rtn[1];
-      temp = Utils.truediv(temp[0], 60);
-      rtn[2] = temp[1];
-      temp = Utils.truediv(temp[0], 60);
-      rtn[1] = temp[1];
-      temp = Utils.truediv(temp[0], 24);
-      rtn[0] = temp[1];
+      rtn[0] = get_hour();
+      rtn[1] = get_minute();
+      rtn[2] = get_second();
+      rtn[3] = get_nsec();
       return rtn;
    } // to_time
 
@@ -254,58 +224,148 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     * @return the year
     */
    public long get_year()
-   {
-      long[] components = to_date();
-      return components[0];
-   } // get_year
+   { return civil_year(civil_date(get_days_since_1990())); }
      
 
    /**
     * @return the month
     */
    public long get_month()
-   {
-      long[] components = to_date();
-      return components[1];
-   } // get_month
+   { return civil_month(civil_date(get_days_since_1990())); }
 
 
    /**
     * @return the day
     */
    public long get_day()
-   {
-      long[] components = to_date();
-      return components[2];
-   } // get_day
+   { return civil_day(civil_date(get_days_since_1990())); }
 
 
    /**
     * @return the hour
     */
    public long get_hour()
-   { return to_time()[0]; }
+   { return Utils.floor_mod(elapsed, nsec_per_day) / nsec_per_hour; }
 
 
    /**
     * @return the minute
     */
    public long get_minute()
-   { return to_time()[1]; }
+   { return Utils.floor_mod(elapsed, nsec_per_hour) / nsec_per_min; }
 
 
    /**
     * @return the second
     */
    public long get_second()
-   { return to_time()[2]; }
+   { return Utils.floor_mod(elapsed, nsec_per_min) / nsec_per_sec; }
 
 
    /**
     * @return the nanoseconds into the second
     */
    public long get_nsec()
-   { return to_time()[3]; }
+   { return Utils.floor_mod(elapsed, nsec_per_sec); }
+
+
+   /**
+    * @return the number of whole days elapsed since 1 January 1990.  This
+    * will be negative for earlier dates.
+    */
+   public long get_days_since_1990()
+   { return Utils.floor_div(elapsed, nsec_per_day); }
+
+
+   /**
+    * Returns the year, month, and day of the specified day packed into an
+    * integer that can be separated using civil_year(), civil_month(), and
+    * civil_day().  No objects are allocated.  Consecutive time stamps usually
+    * fall on the same day so the last day converted is remembered.
+    *
+    * @param days_since_1990  Specifies the day
+    * @return the packed date
+    */
+   static int civil_date(long days_since_1990)
+   {
+      int rtn;
+      long cache = civil_cache;
+      if((cache >> 32) == days_since_1990)
+         rtn = (int)cache;
+      else
+      {
+         rtn = make_civil_date(days_since_1990);
+         civil_cache = (days_since_1990 << 32) | (rtn & 0xffffffffL);
+      }
+      return rtn;
+   } // civil_date
+
+
+   /**
+    * @return the year from a packed date
+    */
+   static int civil_year(int date)
+   { return date >> 9; }
+
+
+   /**
+    * @return the month (january = 1) from a packed date
+    */
+   static int civil_month(int date)
+   { return (date >> 5) & 0x0f; }
+
+
+   /**
+    * @return the day of the month from a packed date
+    */
+   static int civil_day(int date)
+   { return date & 0x1f; }
+
+
+   /**
+    * Calculates the packed year, month, and day for the specified day using
+    * the proleptic Gregorian calendar.  The calculation works on 400 year
+    * eras that begin on 1 March so that the leap day falls at the end of
+    * each year.
+    */
+   private static int make_civil_date(long days_since_1990)
+   {
+      long days = days_since_1990 + days_since_1970 + days_from_0000_to_1970;
+      long era = Utils.floor_div(days, days_per_era);
+      long day_of_era = days - era * days_per_era;
+      long year_of_era =
+         (day_of_era - day_of_era / 1460 + day_of_era / 36524 - day_of_era / 146096) / 365;
+      long day_of_year = day_of_era - (365 * year_of_era + year_of_era / 4 - year_of_era / 100);
+      long month_from_march = (5 * day_of_year + 2) / 153;
+      long day = day_of_year - (153 * month_from_march + 2) / 5 + 1;
+      long month = month_from_march < 10 ? month_from_march + 3 : month_from_march - 9;
+      long year = year_of_era + era * 400 + (month <= 2 ? 1 : 0);
+      return (int)((year << 9) | (month << 5) | day);
+   } // make_civil_date
+
+
+   /**
+    * Calculates the number of days since 1 January 1990 for a date in the
+    * proleptic Gregorian calendar.
+    *
+    * @param year  Specifies the year
+    * @param month  Specifies the month (january = 1)
+    * @param day  Specifies the day of the month (starts at 1)
+    * @return the number of days since 1 January 1990
+    */
+   static long days_from_civil(
+      long year,
+      long month,
+      long day)
+   {
+      if(month <= 2)
+         --year;
+      long era = Utils.floor_div(year, 400);
+      long year_of_era = year - era * 400;
+      long day_of_year = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+      long day_of_era = year_of_era * 365 + year_of_era / 4 - year_of_era / 100 + day_of_year;
+      return era * days_per_era + day_of_era - days_from_0000_to_1970 - days_since_1970;
+   } // days_from_civil
 
 
    /**
@@ -313,8 +373,8 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     */
    public long get_day_of_week()
    {
-      long days = elapsed/nsec_per_day + jul_day_1990 - jul_day_0;
-      return ((days + 2) % 7) + 1;
+      long days = get_days_since_1990() + jul_day_1990 - jul_day_0;
+      return Utils.floor_mod(days + 2, 7) + 1;
    } // get_day_of_week
 
 
@@ -323,9 +383,9 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     */
    public long day_of_year()
    {
-      LoggerDate year_start = new LoggerDate();
-      year_start.set_date(get_year(),1L,1L);
-      return ((elapsed - year_start.elapsed) / nsec_per_day) + 1;
+      long days = get_days_since_1990();
+      int date = civil_date(days);
+      return days - days_from_civil(civil_year(date), 1, 1) + 1;
    } // day_of_year
 
 
@@ -335,6 +395,20 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
    public long get_secs_since_1990()
    { return elapsed / nsec_per_sec; }
 
+
+   /**
+    * Converts this date to an instant without using a Calendar.  Since this
+    * date does not specify a time zone, it is taken to be UTC.
+    *
+    * @return the instant that has the same date and time in UTC
+    */
+   public Instant to_instant()
+   {
+      return Instant.ofEpochSecond(
+         Utils.floor_div(elapsed, nsec_per_sec) + days_since_1970 * 86400,
+         Utils.floor_mod(elapsed, nsec_per_sec));
+   } // to_instant
+
    
    /**
     * Sets the date information in this time stamp but leaves the time alone
@@ -548,101 +622,26 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     *     <td>Prints the '%' character</td>
     *   </tr>
     * </table>
+    *
+    * <p>The format is compiled by a {@link LoggerDateFormatter}.  An
+    * application that formats many dates with the same format can create its
+    * own formatter.</p>
     */
    public String format(String spec)
-   {
-      StringBuilder rtn = new StringBuilder();
-      char last_ch = 0;
-      Calendar calendar = to_calendar();
-      int exp, divisor;
-      long[] time = to_time();
-      
-      for(int i = 0; i < spec.length(); ++i)
-      {
-         if(last_ch == '%' && spec.charAt(i) == '%')
-            rtn.append('%');
-         else if(last_ch == '%')
-         {
-            boolean flagged = spec.charAt(i) == '#';
-            if(flagged && i + 1 < spec.length())
-               ++i;
-            switch(spec.charAt(i))
-            {
-            case 'a':
-            case 'A':
-            case 'b':
-            case 'B':
-            case 'c':
-            case 'd':
-            case 'H':
-            case 'I':
-            case 'j':
-            case 'm':
-            case 'M':
-            case 'n':
-            case 'p':
-            case 'S':
-            case 'U':
-            case 'w':
-            case 'X':
-            case 'y':
-            case 'Y':
-            case 'Z':
-            {
-               StringBuilder format_buff = new StringBuilder();
-               format_buff.append("%1$t");
-               if(flagged)
-                  format_buff.append('#');
-               format_buff.append(spec.charAt(i) == 'n' ? 'z' : spec.charAt(i));
-               rtn.append(
-                  String.format(format_buff.toString(), calendar));
-               break;
-            }
-            
-            case '1':              // tenths of seconds
-            case '2':              // hundredths of seconds
-            case '3':              // thousandths of seconds
-            case '4':              // 1/10000 of seconds
-            case '5':              // 1/100000 of seconds
-            case '6':              // micro-seconds
-            case '7':              // 1/10000000 of seconds
-            case '8':              // 1/100000000 of seconds
-            case '9':              // nano-seconds
-               exp = 9 - (spec.charAt(i) - '0');
-               divisor = 1;
-               for(int j = 0; j< exp; ++j)
-                  divisor *= 10;
-               rtn.append(
-                  String.format(
-                     "%1$02d",
-                     time[3] / divisor));
-               break;
-
-            case 'x':
-               if(time[3] > 0)
-               {
-                  StringBuilder temp = new StringBuilder();
-                  temp.append(
-                     String.format(
-                        ".%1$09u",
-                        time[3]));
-                  for(int digit = 8; digit >= 0 && rtn.charAt(digit) == '0'; --digit)
-                     temp.deleteCharAt(digit);
-                  rtn.append(temp);
-               }
-               break;
-
-            case '%':
-               rtn.append('%');
-               break;
-            }
-         }
-         else if(spec.charAt(i) != '%')
-            rtn.append(spec.charAt(i));
-         last_ch = spec.charAt(i); 
-      }
-      return rtn.toString();
-   } // format
+   { return LoggerDateFormatter.for_spec(spec).format(this); }
+
+
+   /**
+    * Formats the date in the same way as {@link #format(String)} but appends
+    * the result to the specified buffer.
+    *
+    * @param spec  Specifies the format
+    * @param dest  Specifies the buffer to which the date will be appended
+    */
+   public void format(
+      String spec,
+      StringBuilder dest)
+   { LoggerDateFormatter.for_spec(spec).format(this, dest); }
 
    
    @Override
@@ -714,4 +713,24 @@ public class LoggerDate implements Cloneable, Comparable<LoggerDate>
     * Holds the time elapsed since midnight 1 Jan 1990 in nano-seconds
     */
    private long elapsed;
+
+
+   /**
+    * Specifies the number of days in each 400 year era of the Gregorian
+    * calendar
+    */
+   private static final long days_per_era = 146097;
+
+
+   /**
+    * Specifies the number of days from 1 March 0000 to 1 January 1970
+    */
+   private static final long days_from_0000_to_1970 = 719468;
+
+
+   /**
+    * Remembers the last day converted by civil_date() in the upper 32 bits
+    * and its packed date in the lower 32 bits
+    */
+   private static volatile long civil_cache = make_civil_date(0) & 0xffffffffL;
 }
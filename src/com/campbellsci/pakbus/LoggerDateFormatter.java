@@ -0,0 +1,425 @@
+/* LoggerDateFormatter.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.Calendar;
+
+
+/**
+ * <p>Defines an object that formats time stamps using a format string of the
+ * kind accepted by {@link LoggerDate#format(String)}.  The format string is
+ * compiled when the formatter is created.  The numeric codes (%d, %H, %I, %j,
+ * %m, %M, %S, %w, %y, %Y, %1 through %9, and %x) are then formatted directly
+ * from the nano-seconds elapsed since 1990 without creating any objects.  The
+ * codes that depend upon the locale or time zone are formatted as they always
+ * have been, through a Calendar in the system time zone.</p>
+ *
+ * <p>A formatter does not change once it has been created and can be shared
+ * by any number of threads.</p>
+ */
+public class LoggerDateFormatter
+{
+   /**
+    * Constructor
+    *
+    * @param spec_  Specifies the format string
+    */
+   public LoggerDateFormatter(String spec_)
+   {
+      spec = spec_;
+
+      // we will work out the operations in two passes: the first counts them
+      // and the second fills them in.
+      int count = compile(null, null, null);
+      ops = new byte[count];
+      starts = new int[count];
+      ends = new int[count];
+      compile(ops, starts, ends);
+   } // constructor
+
+
+   /**
+    * Returns a formatter for the specified format string.  The last formatter
+    * returned is kept so that a format string that is used repeatedly with
+    * {@link LoggerDate#format(String)} is only compiled once.
+    *
+    * @param spec  Specifies the format string
+    * @return the formatter
+    */
+   public static LoggerDateFormatter for_spec(String spec)
+   {
+      LoggerDateFormatter rtn = last_formatter;
+      if(rtn == null || !rtn.spec.equals(spec))
+      {
+         rtn = new LoggerDateFormatter(spec);
+         last_formatter = rtn;
+      }
+      return rtn;
+   } // for_spec
+
+
+   /**
+    * @return the format string
+    */
+   public String get_spec()
+   { return spec; }
+
+
+   /**
+    * @param date  Specifies the time stamp to format
+    * @return the formatted time stamp
+    */
+   public String format(LoggerDate date)
+   {
+      StringBuilder rtn = new StringBuilder();
+      format(date.get_elapsed(), rtn);
+      return rtn.toString();
+   } // format
+
+
+   /**
+    * Appends a formatted time stamp to the specified buffer
+    *
+    * @param date  Specifies the time stamp to format
+    * @param dest  Specifies the buffer to which the time stamp is appended
+    */
+   public void format(
+      LoggerDate date,
+      StringBuilder dest)
+   { format(date.get_elapsed(), dest); }
+
+
+   /**
+    * Appends a formatted time stamp to the specified buffer
+    *
+    * @param elapsed  Specifies the time stamp in nano-seconds since 1990
+    * @param dest  Specifies the buffer to which the time stamp is appended
+    */
+   public void format(
+      long elapsed,
+      StringBuilder dest)
+   {
+      long days = Utils.floor_div(elapsed, LoggerDate.nsec_per_day);
+      long nsec_of_day = elapsed - days * LoggerDate.nsec_per_day;
+      long nsec = nsec_of_day % LoggerDate.nsec_per_sec;
+      int date = 0;
+      Calendar calendar = null;
+      for(int i = 0; i < ops.length; ++i)
+      {
+         if(ops[i] >= op_day && ops[i] <= op_year && date == 0)
+            date = LoggerDate.civil_date(days);
+         switch(ops[i])
+         {
+         case op_literal:
+            dest.append(spec, starts[i], ends[i]);
+            break;
+
+         case op_day:
+            append_padded(dest, LoggerDate.civil_day(date), 2);
+            break;
+
+         case op_day_of_year:
+            append_padded(
+               dest,
+               days - LoggerDate.days_from_civil(LoggerDate.civil_year(date), 1, 1) + 1,
+               3);
+            break;
+
+         case op_month:
+            append_padded(dest, LoggerDate.civil_month(date), 2);
+            break;
+
+         case op_year_of_century:
+            append_padded(dest, Utils.floor_mod(LoggerDate.civil_year(date), 100), 2);
+            break;
+
+         case op_year:
+            dest.append(LoggerDate.civil_year(date));
+            break;
+
+         case op_hour:
+            append_padded(dest, nsec_of_day / LoggerDate.nsec_per_hour, 2);
+            break;
+
+         case op_hour_12:
+         {
+            long hour = (nsec_of_day / LoggerDate.nsec_per_hour) % 12;
+            append_padded(dest, hour == 0 ? 12 : hour, 2);
+            break;
+         }
+
+         case op_minute:
+            append_padded(dest, (nsec_of_day / LoggerDate.nsec_per_min) % 60, 2);
+            break;
+
+         case op_second:
+            append_padded(dest, (nsec_of_day / LoggerDate.nsec_per_sec) % 60, 2);
+            break;
+
+         case op_day_of_week:
+            // 1 January 1990 was a Monday
+            dest.append(Utils.floor_mod(days + 1, 7));
+            break;
+
+         case op_fraction:
+         {
+            long divisor = 1;
+            for(int j = starts[i]; j < 9; ++j)
+               divisor *= 10;
+            append_padded(dest, nsec / divisor, starts[i]);
+            break;
+         }
+
+         case op_sub_second:
+            if(nsec > 0)
+            {
+               int digits = 9;
+               long value = nsec;
+               while(value % 10 == 0)
+               {
+                  value /= 10;
+                  --digits;
+               }
+               dest.append('.');
+               append_padded(dest, value, digits);
+            }
+            break;
+
+         case op_percent:
+            dest.append('%');
+            break;
+
+         case op_calendar:
+         {
+            if(calendar == null)
+               calendar = new LoggerDate(elapsed).to_calendar();
+            StringBuilder format_buff = new StringBuilder();
+            format_buff.append("%1$t");
+            if(ends[i] != 0)
+               format_buff.append('#');
+            format_buff.append((char)starts[i]);
+            dest.append(String.format(format_buff.toString(), calendar));
+            break;
+         }
+         }
+      }
+   } // format
+
+
+   /**
+    * Works out the operations for the format string.  If the arrays are
+    * null, the operations will only be counted.
+    *
+    * @return the number of operations
+    */
+   private int compile(
+      byte[] ops_,
+      int[] starts_,
+      int[] ends_)
+   {
+      int rtn = 0;
+      int literal_start = 0;
+      int i = 0;
+      while(i < spec.length())
+      {
+         if(spec.charAt(i) != '%')
+            ++i;
+         else
+         {
+            if(literal_start < i)
+               rtn = add_op(ops_, starts_, ends_, rtn, op_literal, literal_start, i);
+            ++i;
+            if(i < spec.length())
+            {
+               boolean flagged = spec.charAt(i) == '#';
+               if(flagged && i + 1 < spec.length())
+                  ++i;
+               char code = spec.charAt(i++);
+               switch(code)
+               {
+               case 'd':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_day, 0, 0);
+                  break;
+
+               case 'j':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_day_of_year, 0, 0);
+                  break;
+
+               case 'm':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_month, 0, 0);
+                  break;
+
+               case 'y':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_year_of_century, 0, 0);
+                  break;
+
+               case 'Y':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_year, 0, 0);
+                  break;
+
+               case 'H':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_hour, 0, 0);
+                  break;
+
+               case 'I':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_hour_12, 0, 0);
+                  break;
+
+               case 'M':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_minute, 0, 0);
+                  break;
+
+               case 'S':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_second, 0, 0);
+                  break;
+
+               case 'w':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_day_of_week, 0, 0);
+                  break;
+
+               case '1':
+               case '2':
+               case '3':
+               case '4':
+               case '5':
+               case '6':
+               case '7':
+               case '8':
+               case '9':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_fraction, code - '0', 0);
+                  break;
+
+               case 'x':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_sub_second, 0, 0);
+                  break;
+
+               case '%':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_percent, 0, 0);
+                  break;
+
+               case 'a':
+               case 'A':
+               case 'b':
+               case 'B':
+               case 'c':
+               case 'p':
+               case 'U':
+               case 'X':
+               case 'Z':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_calendar, code, flagged ? 1 : 0);
+                  break;
+
+               case 'n':
+                  rtn = add_op(ops_, starts_, ends_, rtn, op_calendar, 'z', flagged ? 1 : 0);
+                  break;
+               }
+            }
+            literal_start = i;
+         }
+      }
+      if(literal_start < spec.length())
+         rtn = add_op(ops_, starts_, ends_, rtn, op_literal, literal_start, spec.length());
+      return rtn;
+   } // compile
+
+
+   /**
+    * Stores an operation if the arrays have been allocated
+    *
+    * @return the number of operations including the one added
+    */
+   private static int add_op(
+      byte[] ops_,
+      int[] starts_,
+      int[] ends_,
+      int index,
+      byte op,
+      int start,
+      int end)
+   {
+      if(ops_ != null)
+      {
+         ops_[index] = op;
+         starts_[index] = start;
+         ends_[index] = end;
+      }
+      return index + 1;
+   } // add_op
+
+
+   /**
+    * Appends a non-negative value padded with leading zeroes to the
+    * specified width
+    */
+   private static void append_padded(
+      StringBuilder dest,
+      long value,
+      int width)
+   {
+      long limit = 10;
+      for(int i = 1; i < width; ++i)
+      {
+         if(value < limit)
+            dest.append('0');
+         limit *= 10;
+      }
+      dest.append(value);
+   } // append_padded
+
+
+   // the following codes identify the operations.  The codes that need the
+   // date follow each other so that they can be recognised by range.
+   private static final byte op_literal = 0;
+   private static final byte op_day = 1;
+   private static final byte op_day_of_year = 2;
+   private static final byte op_month = 3;
+   private static final byte op_year_of_century = 4;
+   private static final byte op_year = 5;
+   private static final byte op_hour = 6;
+   private static final byte op_hour_12 = 7;
+   private static final byte op_minute = 8;
+   private static final byte op_second = 9;
+   private static final byte op_day_of_week = 10;
+   private static final byte op_fraction = 11;
+   private static final byte op_sub_second = 12;
+   private static final byte op_percent = 13;
+   private static final byte op_calendar = 14;
+
+
+   /**
+    * Specifies the format string
+    */
+   private final String spec;
+
+
+   /**
+    * Specifies the code for each operation
+    */
+   private final byte[] ops;
+
+
+   /**
+    * Specifies the start of the literal text, the number of fraction digits,
+    * or the calendar conversion character for each operation
+    */
+   private final int[] starts;
+
+
+   /**
+    * Specifies the end of the literal text or whether the calendar
+    * conversion is flagged for each operation
+    */
+   private final int[] ends;
+
+
+   /**
+    * Keeps the last formatter returned by for_spec()
+    */
+   private static volatile LoggerDateFormatter last_formatter;
+}
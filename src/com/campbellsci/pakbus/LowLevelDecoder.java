@@ -14,6 +14,7 @@ package com.campbellsci.pakbus;
 
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 
@@ -22,7 +23,9 @@ import java.util.*;
  * Defines an object that is able to decode a byte stream into various types of
  * PakBus related PakBus packets.  The decode() method can be called to test
  * the stream for the presence of packets and will return as validated packet
- * object when it encounters one.
+ * object when it encounters one.  Alternatively, blocks of bytes that have
+ * already been read can be passed to the buffer versions of decode() which
+ * will report every packet in the block to a {@link LowLevelDecoderClient}.
  */
 public class LowLevelDecoder
 {
@@ -31,17 +34,42 @@ public class LowLevelDecoder
       state = state_wait_for_synch;
       storage = new byte[1026];
       storage_len = 0;
+      single = new byte[1];
+      this_client = new StreamClient();
+      make_views = false;
+      pool = null;
    } // constructor
 
 
+   /**
+    * Controls whether the serial and unquoted packets reported to the client
+    * will be views of this decoder's buffer rather than copies.  A view will
+    * only be valid until the client's on_packet() method returns.  A client
+    * that needs to keep the packet after that must call Packet.detach().
+    *
+    * @param make_views_  Set to true if views are to be reported.
+    */
+   public void set_make_views(boolean make_views_)
+   { make_views = make_views_; }
+
+
+   /**
+    * Specifies a pool from which the reported packets will be taken.  If views
+    * are being made, each packet that is still a view when the client's
+    * on_packet() method returns will be released back to the pool.
+    *
+    * @param pool_  Specifies the pool or null if packets are to be allocated
+    */
+   void set_packet_pool(PacketPool pool_)
+   { pool = pool_; }
+
+
    // the following fields define values for quoted bytes
    public static final int synch_byte = 0xbd;
    public static final int quoted_synch_byte = 0xdd;
    public static final int quote_byte = 0xbc;
    public static final int quoted_quote_byte = 0xdc;
 
-   // the following fields define the 
-   
    /**
     * Called by the network to decode data from the stream.  This method will
     * only process the data that is currently available on the stream and will
@@ -57,24 +85,69 @@ public class LowLevelDecoder
       List<LowLevelLogger> loggers) throws Exception
    {
       int available = input.available();
-      Packet rtn = null;
 
-      for(int i = 0; rtn == null && i < available; ++i)
+      last_packet = null;
+      for(int i = 0; last_packet == null && i < available; ++i)
+      {
+         single[0] = (byte)input.read();
+         decode(single, 0, 1, loggers, this_client);
+      }
+      return last_packet;
+   } // decode
+   
+   
+   /**
+    * Decodes a block of bytes that has already been read from the underlying
+    * transport.  Every complete packet that is found in the block will be
+    * passed to the client in the order that it was received.  Any partial
+    * packet at the end of the block will be retained so that it can be
+    * completed by the next block.  
+    *
+    * @param buff     Specifies the buffer that holds the received bytes
+    * @param offset   Specifies the offset of the first received byte
+    * @param len      Specifies the number of bytes that were received
+    * @param loggers  The collection of low level loggers that will receive
+    * notification of characters received.
+    * @param client   Specifies the object that will receive decoded packets
+    */
+   public void decode(
+      byte[] buff,
+      int offset,
+      int len,
+      List<LowLevelLogger> loggers,
+      LowLevelDecoderClient client) throws Exception
+   {
+      int end = offset + len;
+      int i = offset;
+
+      if(!loggers.isEmpty())
+      {
+         for(int j = offset; j < end; ++j)
+         {
+            for(LowLevelLogger logger: loggers)
+               logger.on_io(buff[j] & 0xff, false);
+         }
+      }
+      while(i < end)
       {
-         int temp = input.read();
-         int high_nibble = (temp & 0xf0) >> 4;
-         for(LowLevelLogger logger: loggers)
-            logger.on_io(temp, false);
          switch(state)
          {
          case state_wait_for_synch:
-            if(temp == synch_byte)
+            while(i < end && (buff[i] & 0xff) != synch_byte)
+               ++i;
+            if(i < end)
+            {
                state = state_synch_found;
+               ++i;
+            }
             break;
             
          case state_synch_found:
+         {
+            int temp = buff[i++] & 0xff;
+            int high_nibble = (temp & 0xf0) >> 4;
             if(temp == synch_byte)
-               continue;
+               break;
             else if(high_nibble == Packet.control_ring ||
                high_nibble == Packet.control_reserved ||
                high_nibble == Packet.control_capabilities)
@@ -82,6 +155,7 @@ public class LowLevelDecoder
                state = state_control;
                storage_len = 1;
                storage[0] = (byte)temp;
+               sig = Utils.calc_sig_byte(0xAAAA, temp);
             }
             else if(high_nibble == Packet.link_off_line ||
                     high_nibble == Packet.link_ready ||
@@ -91,6 +165,7 @@ public class LowLevelDecoder
                state = state_serpkt;
                storage_len = 1;
                storage[0] = (byte)temp;
+               sig = Utils.calc_sig_byte(0xAAAA, temp);
             }
             else if(temp == 0xF0)
             {
@@ -102,47 +177,78 @@ public class LowLevelDecoder
                state = state_devconfig;
                storage_len = 1;
                storage[0] = (byte)temp;
+               sig = Utils.calc_sig_byte(0xAAAA, temp);
             }
             else
                state = state_wait_for_synch;
             break;
+         }
             
          case state_serpkt:
          case state_control:
          case state_devconfig:
-            try
+         {
+            // we will copy the run of bytes that need no special handling up
+            // to the next synch or quote byte in one operation
+            int run_end = i;
+            while(run_end < end)
             {
-               if(temp == quote_byte)
-                  state = state_serpkt_quoted;
-               else if(temp == synch_byte)
+               int ch = buff[run_end] & 0xff;
+               if(ch == synch_byte || ch == quote_byte)
+                  break;
+               ++run_end;
+            }
+            if(run_end > i)
+            {
+               int run_len = run_end - i;
+               if(storage_len + run_len > storage.length)
                {
-                  int sig = Utils.calc_sig(storage,storage_len);
-                  if(sig == 0)
-                     rtn = make_packet();
                   state = state_wait_for_synch;
+                  i = run_end;
+                  break;
                }
-               else
+               System.arraycopy(buff, i, storage, storage_len, run_len);
+               sig = Utils.calc_sig(buff, i, run_len, sig);
+               storage_len += run_len;
+               i = run_end;
+            }
+            if(i < end)
+            {
+               int temp = buff[i++] & 0xff;
+               if(temp == quote_byte)
                {
-                  // store the byte as part of the packet
-                  if(storage_len >= storage.length)
-                     state = state_wait_for_synch;
+                  if(state == state_serpkt)
+                     state = state_serpkt_quoted;
+                  else if(state == state_control)
+                     state = state_control_quoted;
                   else
-                     storage[storage_len++] = (byte)temp;
+                     state = state_devconfig_quoted;
+               }
+               else
+               {
+                  // this is the closing synch byte.  The signature has been
+                  // maintained as the bytes were stored so it can be checked
+                  // immediately.
+                  Packet packet = null;
+                  if(sig == 0)
+                     packet = make_packet();
+                  state = state_wait_for_synch;
+                  if(packet != null)
+                     report_packet(packet, loggers, client);
                }
-            }
-            catch(Exception e)
-            {
-               rtn = null;
-               state = state_wait_for_synch;
             }
             break;
+         }
             
          case state_serpkt_quoted:
          case state_control_quoted:
          case state_devconfig_quoted:
+         {
+            int temp = buff[i++] & 0xff;
             if(storage_len < storage.length)
             {
                storage[storage_len++] = (byte)(temp - 0x20);
+               sig = Utils.calc_sig_byte(sig, temp - 0x20);
                switch(state)
                {
                case state_serpkt_quoted:
@@ -161,9 +267,10 @@ public class LowLevelDecoder
             else
                state = state_wait_for_synch;
             break;
+         }
             
          case state_unquoted_len:
-            storage[storage_len++] = (byte)temp;
+            storage[storage_len++] = buff[i++];
             if(storage_len == 2)
             {
                state = state_unquoted_body;
@@ -175,35 +282,98 @@ public class LowLevelDecoder
             break;
             
          case state_unquoted_body:
-            storage[storage_len++] = (byte)temp;
+         {
+            // the body length is known so we can copy as much of it as is
+            // available in one operation
+            int copy_len = Math.min(end - i, unquoted_body_len - storage_len);
+            System.arraycopy(buff, i, storage, storage_len, copy_len);
+            storage_len += copy_len;
+            i += copy_len;
             if(storage_len == unquoted_body_len)
             {
-               rtn = make_packet();
+               Packet packet = make_packet();
                state = state_wait_for_synch;
+               if(packet != null)
+                  report_packet(packet, loggers, client);
             }
             break;
          }
+         }
       }
-      return rtn;
    } // decode
    
    
+   /**
+    * Decodes the remaining bytes in the specified buffer.  The buffer position
+    * will be advanced to its limit.
+    *
+    * @param buff     Specifies the buffer that holds the received bytes
+    * @param loggers  The collection of low level loggers that will receive
+    * notification of characters received.
+    * @param client   Specifies the object that will receive decoded packets
+    */
+   public void decode(
+      ByteBuffer buff,
+      List<LowLevelLogger> loggers,
+      LowLevelDecoderClient client) throws Exception
+   {
+      if(buff.hasArray())
+      {
+         int len = buff.remaining();
+         int offset = buff.arrayOffset() + buff.position();
+         buff.position(buff.limit());
+         decode(buff.array(), offset, len, loggers, client);
+      }
+      else
+      {
+         if(scratch == null)
+            scratch = new byte[storage.length];
+         while(buff.hasRemaining())
+         {
+            int len = Math.min(buff.remaining(), scratch.length);
+            buff.get(scratch, 0, len);
+            decode(scratch, 0, len, loggers, client);
+         }
+      }
+   } // decode
+   
+   
+   /**
+    * Implements the client interface for the stream version of decode() so
+    * that the first packet can be returned to the caller.
+    */
+   private final class StreamClient implements LowLevelDecoderClient
+   {
+      public void on_packet(Packet packet)
+      {
+         packet.detach();
+         last_packet = packet;
+      }
+   }
+   
+   
    /**
     * Creates a packet and sets its fields to appropriate values depending upon the state.
     */
    private Packet make_packet()
    {
-      Packet rtn = new Packet();
+      Packet rtn = (pool != null ? pool.acquire_empty() : new Packet());
       try
       {
          switch(state)
          {
          case state_serpkt:
-            rtn.read_serial_packet(storage, storage_len - 2);
+            if(make_views)
+               rtn.view_serial_packet(storage, 0, storage_len - 2);
+            else
+               rtn.read_serial_packet(storage, storage_len - 2);
             break;
             
          case state_control:
-            rtn.read_control_packet(storage,storage_len - 2);
+            if(make_views)
+               rtn.view_control_packet(storage, 0, storage_len - 2);
+            else
+               rtn.read_control_packet(storage,storage_len - 2);
             break;
             
          case state_devconfig:
@@ -211,15 +381,51 @@ public class LowLevelDecoder
             break;
             
          case state_unquoted_body:
-            rtn.read_unquoted_packet(storage,storage_len);
+            if(make_views)
+               rtn.view_unquoted_packet(storage, 0, storage_len);
+            else
+               rtn.read_unquoted_packet(storage,storage_len);
             break;
          }
          return rtn;
       }
       catch(Exception e)
-      { rtn = null; }
+      {
+         if(pool != null)
+            pool.release(rtn);
+         rtn = null;
+      }
       return rtn;
    } // make_serial_packet
+   
+   
+   /**
+    * Passes the packet to the client and then releases it to the pool if the
+    * client has not detached it.  The rest of the block has already been read
+    * from the transport so a failure in the client is reported to the low
+    * level loggers as a comment rather than being allowed to abandon the
+    * packets that follow.
+    */
+   private void report_packet(
+      Packet packet,
+      List<LowLevelLogger> loggers,
+      LowLevelDecoderClient client)
+   {
+      try
+      {
+         client.on_packet(packet);
+      }
+      catch(Exception e)
+      {
+         for(LowLevelLogger logger: loggers)
+            logger.on_comment("packet processing failed: " + e.toString());
+      }
+      finally
+      {
+         if(pool != null && packet.get_is_view())
+            pool.release(packet);
+      }
+   } // report_packet
 
 
    public static final int state_wait_for_synch = 0;     
@@ -256,4 +462,46 @@ public class LowLevelDecoder
     * Holds the expected body length for the unquoted sub-protocol
     */
    int unquoted_body_len;
+   
+   
+   /**
+    * Holds the signature of the bytes that have been stored for a quoted frame
+    */
+   private int sig;
+   
+   
+   /**
+    * Used by the stream version of decode() to present one byte at a time
+    */
+   private byte[] single;
+   
+   
+   /**
+    * Used to copy the contents of buffers that cannot be accessed as arrays
+    */
+   private byte[] scratch;
+   
+   
+   /**
+    * Receives the packets decoded by the stream version of decode()
+    */
+   private StreamClient this_client;
+   
+   
+   /**
+    * Holds the last packet decoded by the stream version of decode()
+    */
+   private Packet last_packet;
+   
+   
+   /**
+    * Set to true if packets are to be reported as views of the storage buffer
+    */
+   private boolean make_views;
+   
+   
+   /**
+    * Specifies the pool from which packets are taken (if any)
+    */
+   private PacketPool pool;
 }
@@ -0,0 +1,25 @@
+/* LowLevelDecoderClient.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines the call-back interface used by {@link LowLevelDecoder} to report
+ * packets that have been framed from a block of received bytes.
+ */
+public interface LowLevelDecoderClient
+{
+   /**
+    * Called for each complete and validated packet that the decoder finds.
+    * Packets are reported in the order in which they were received.
+    *
+    * @param packet  Specifies the packet that was decoded
+    */
+   public abstract void on_packet(Packet packet) throws Exception;
+}
@@ -40,6 +40,8 @@ final class Neighbour
       delay_timer = null;
       verification_interval = 300000;
       delay_timeout = 0;
+      verify_entry = new TimerWheel.Entry(this);
+      network.timers.schedule(verify_entry, 0);
    } // constructor
 
 
@@ -79,8 +81,7 @@ final class Neighbour
          rtn = true;
       else
       {
-         int verify_timeout = 2 * verification_interval + verification_interval / 2;
-         if(verify_timer.elapsed() >= verify_timeout)
+         if(verify_timer.elapsed() >= get_verify_timeout())
             rtn = true;
       }
       if(rtn && delay_timer != null)
@@ -94,6 +95,29 @@ final class Neighbour
    } // needs_verify
 
 
+   /**
+    * Schedules the time at which the network should next consider whether
+    * this neighbour needs to be verified.
+    */
+   public void schedule_verify()
+   {
+      int delay = 0;
+      if(verify_timer != null)
+         delay = get_verify_timeout() - verify_timer.elapsed();
+      if(delay_timer != null)
+         delay = Math.max(delay, delay_timeout - delay_timer.elapsed());
+      network.timers.schedule(verify_entry, delay);
+   } // schedule_verify
+   
+   
+   /**
+    * @return the time in msec after the last verification that this
+    * neighbour will need to be verified again
+    */
+   private int get_verify_timeout()
+   { return 2 * verification_interval + verification_interval / 2; }
+
+
    /**
     * Sets the delay timer up for a random amount of delay (up to one minute)
     */
@@ -168,5 +192,18 @@ final class Neighbour
     * Keeps track of the time since the verification was started
     */
    Timer elapsed_timer;
+   
+   
+   /**
+    * Used to schedule the time at which this neighbour will need verification
+    */
+   private TimerWheel.Entry verify_entry;
+   
+   
+   /**
+    * Keeps track of the number of transactions that have focus through this
+    * neighbour
+    */
+   int focus_count;
 }
 
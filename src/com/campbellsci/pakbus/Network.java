@@ -16,7 +16,9 @@ package com.campbellsci.pakbus;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 
@@ -28,11 +30,18 @@ import java.util.*;
  * byte delivery services).</p>
  *
  * <p>This class also manages a collection of transactions and provides a
- * synchronisation service that allows one transaction to have have "focus" at
- * a time.  These transaction objects will allow the application to send and
- * receive PakBus messages.</p>
+ * synchronisation service that allows one transaction (or a limited number of
+ * transactions) to have have "focus" at a time.  These transaction objects will
+ * allow the application to send and receive PakBus messages.</p>
+ *
+ * <p>With the exception of {@link #post_transaction(Datalogger, TransactionBase)}
+ * and {@link #post_close(TransactionBase)}, the methods of this class and of
+ * the stations and transactions that it manages should only be called from the
+ * thread that calls check_state().  Other threads can use those two methods to
+ * submit work that will be carried out by that thread the next time that the
+ * network state is checked.</p>
  */
-public class Network
+public class Network implements LowLevelDecoderClient
 {
    /**
     * Specifies the value of the broadcast address
@@ -62,15 +71,33 @@ public class Network
       pakbus_address = pakbus_address_;
       input = input_;
       output = output_;
+      timers = new TimerWheel(timer_tick);
+      expired_timers = new ArrayList<Object>();
+      due_neighbours = new LinkedHashSet<Neighbour>();
       links = new HashMap<Short, Link>();
       defunct_links = new LinkedList<Short>();
       stations = new HashMap<Short, Datalogger>();
-      unsent_messages = new LinkedList<Packet>();
+      outbound = new HashMap<Short, OutboundQueue>();
+      unsent_count = 0;
       focus_queue = new LinkedList<TransactionBase>();
+      posted_commands = new ConcurrentLinkedQueue<PostedCommand>();
+      selector = null;
+      driver = null;
+      pipeline = null;
+      focused = new ArrayList<TransactionBase>();
+      max_focus = 1;
+      max_neighbour_focus = 1;
+      max_station_focus = 1;
       low_level_logs = new LinkedList<LowLevelLogger>();
+      packet_pool = new PacketPool(packet_pool_size);
       decoder = new LowLevelDecoder();
+      decoder.set_make_views(true);
+      decoder.set_packet_pool(packet_pool);
+      input_buffer = new byte[input_buffer_size];
+      encoder = new FrameEncoder();
       neighbours = new HashMap<Short, Neighbour>();
-      current_verify = null;
+      verifying = new LinkedHashMap<Short, Neighbour>();
+      expired_verifies = new ArrayList<Neighbour>();
       comms_attempts = 0;
       comms_retries = 0;
       random = new Random();
@@ -92,6 +119,8 @@ public class Network
       input = input_;
       output = output_;
       decoder = new LowLevelDecoder();
+      decoder.set_make_views(true);
+      decoder.set_packet_pool(packet_pool);
       comms_attempts = 0;
       comms_retries = 0;
       links.clear();
@@ -129,64 +158,67 @@ public class Network
    {
       synchronized(stations)
       {
-         // we'll first check to see if there is anything available from the input stream
+         // we'll first carry out any commands posted by other threads and then
+         // check to see if there is anything available from the input stream
+         process_posted_commands();
          check_incoming();
-         for(Link link : links.values())
-            link.check_status(close_open_links);
-      
-         // we also need to check the state of all of the station
-         for(Datalogger station: stations.values())
-            station.check_state();
          
-         // we need to check the state of our known neighbours
-         if(current_verify != null)
+         // we will now check the links, stations, and neighbours whose timers
+         // have expired.  If all links are to be closed, we will need to check
+         // every link.
+         expired_timers.clear();
+         timers.advance(expired_timers);
+         if(close_open_links)
          {
-            if(current_verify.get_elapsed() > 5000)
-            {  
-               // if this was the third attempt, we need to get rid of this neighbour. 
-               if(++current_verify.verification_attempts >= 3)
-               {  
-                  short neighbour_address = current_verify.neighbour_address;
-                  links.remove(neighbour_address);
-                  neighbours.remove(neighbour_address);
-                  on_link_failure(neighbour_address);
-               }
-               else
-                  current_verify.verify_timer = null;
-               current_verify = null;
-            }
+            for(Link link : links.values())
+               link.check_status(close_open_links);
          }
-         else if(current_focus == null)
+         for(Object owner: expired_timers)
          {
-            // we need to choose the neighbour that needs verification but has the least number of attempts.
-            for(Neighbour neighbour: neighbours.values())
+            if(owner instanceof Link)
             {
-               if(neighbour.needs_verify())
-               {
-                  if(current_verify == null)
-                     current_verify = neighbour;
-                  else if(neighbour.verification_attempts < current_verify.verification_attempts)
-                     current_verify = neighbour;
-               }
+               Link link = (Link)owner;
+               if(!close_open_links && links.get(link.neighbour_address) == link)
+                  link.check_status(close_open_links);
+            }
+            else if(owner instanceof Datalogger)
+            {
+               Datalogger station = (Datalogger)owner;
+               if(stations.get(station.get_pakbus_address()) == station)
+                  station.check_state();
+            }
+            else if(owner instanceof Neighbour)
+            {
+               Neighbour neighbour = (Neighbour)owner;
+               if(neighbours.get(neighbour.neighbour_address) == neighbour)
+                  due_neighbours.add(neighbour);
             }
-            if(current_verify != null)
-               current_verify.start_verify();
          }
+         expired_timers.clear();
+         
+         // we need to check the state of the neighbours that are being
+         // verified.  New verifications will only be started if there is room
+         // for them within the focus limits.
+         if(!check_verifying() && focused.size() + verifying.size() < max_focus)
+            start_verifying();
          
-         // we need to ensure that the current focus is still a valid transaction
-         if(current_focus != null)
+         // we need to ensure that the transactions with focus are still valid
+         int i = 0;
+         while(i < focused.size())
          {
-            if(current_focus.get_is_satisfied())
-               current_focus = null;
-            else if(!current_focus.station.transactions.containsKey(current_focus.tran_no))
+            TransactionBase transaction = focused.get(i);
+            if(transaction.get_is_satisfied())
+               end_focus(transaction);
+            else if(!transaction.station.transactions.containsKey(transaction.tran_no))
             {
                this.add_comment(
-                  "The current focus, " + current_focus.get_name() + ", is no longer kept by its station");
-               current_focus = null;
+                  "The current focus, " + transaction.get_name() + ", is no longer kept by its station");
+               end_focus(transaction);
             }
+            else
+               ++i;
          }
-         if(current_focus == null && current_verify == null)
-            set_next_focus();
+         set_next_focus();
          
          // we need to kick the low level loggers as well
          for(LowLevelLogger log: low_level_logs)
@@ -197,20 +229,29 @@ public class Network
          {
             Link link = links.get(neighbour_address);
             if(link != null && link.is_off_line())
+            {
+               // the queue for the neighbour is kept while it has messages
+               // so that they will start a new link below
                links.remove(neighbour_address);
+               OutboundQueue queue = outbound.get(neighbour_address);
+               if(queue != null && queue.size() == 0)
+                  outbound.remove(neighbour_address);
+            }
          }
          defunct_links.clear();
          
-         // we also need to scan through the queue of unsent messages.  if there are any messages 
+         // we also need to scan through the queues of unsent messages.  if there are any messages 
          // waiting for which a link does not exist, we will need to start that link
-         for(Packet message: unsent_messages)
+         if(unsent_count > 0)
          {
-            Link link = links.get(message.neighbour_dest_address);
-            if(link == null)
+            for(OutboundQueue queue: outbound.values())
             {
-               link = new Link(this, message.neighbour_dest_address);
-               links.put(message.neighbour_dest_address, link);
-               link.on_message_ready();
+               if(queue.size() > 0 && !links.containsKey(queue.neighbour_address))
+               {
+                  Link link = new Link(this, queue.neighbour_address);
+                  links.put(queue.neighbour_address, link);
+                  link.on_message_ready();
+               }
             }
          }
       }
@@ -241,10 +282,170 @@ public class Network
          stations.put(
             station.get_pakbus_address(),
             station);
+         station.schedule_check(0);
       }
    } // add_station
 
 
+   /**
+    * Posts a request to add the specified transaction to the specified station.
+    * Unlike Datalogger.add_transaction(), this method can be safely called from
+    * any thread.  The transaction will be added and will request focus when the
+    * thread that services this network next checks the network state.  If the
+    * network is serviced by a {@link NetworkSelector}, a {@link NetworkDriver},
+    * or a {@link NetworkPipeline}, that object will be woken so that the transaction can be started without
+    * delay.
+    *
+    * @param station  Specifies the station that will own the transaction.  This
+    * station should already have been added to this network.
+    * @param transaction  Specifies the transaction to add.
+    */
+   public void post_transaction(
+      Datalogger station,
+      TransactionBase transaction)
+   {
+      if(station == null || transaction == null)
+         throw new IllegalArgumentException("the station and transaction must be specified");
+      post_command(new PostedCommand(PostedCommand.add_transaction, station, transaction, null));
+   } // post_transaction
+   
+   
+   /**
+    * Posts a request to close the specified transaction.  This method can be
+    * safely called from any thread.  The transaction will be closed when the
+    * thread that services this network next checks the network state.  The
+    * request will be ignored if the transaction has already been closed.
+    *
+    * @param transaction  Specifies the transaction to close.  This transaction
+    * should have been added directly or by post_transaction().
+    */
+   public void post_close(TransactionBase transaction)
+   {
+      if(transaction == null)
+         throw new IllegalArgumentException("the transaction must be specified");
+      post_command(new PostedCommand(PostedCommand.close_transaction, null, transaction, null));
+   } // post_close
+   
+   
+   /**
+    * Posts a comment that will be added to the low level logs.  Unlike
+    * add_comment(), this method can be safely called from any thread.  The
+    * comment will be added when the thread that services this network next
+    * checks the network state.
+    *
+    * @param comment  Specifies the comment string to be added
+    */
+   public void post_comment(String comment)
+   {
+      if(comment == null)
+         throw new IllegalArgumentException("the comment must be specified");
+      post_command(new PostedCommand(PostedCommand.add_comment, null, null, comment));
+   } // post_comment
+   
+   
+   /**
+    * Carries out the commands that have been posted by other threads.  This
+    * method is called by check_state().  A command that fails will be
+    * reported as a comment and will not prevent the remaining commands from
+    * being carried out.
+    */
+   void process_posted_commands()
+   {
+      if(!posted_commands.isEmpty())
+      {
+         synchronized(stations)
+         {
+            PostedCommand command;
+            while((command = posted_commands.poll()) != null)
+            {
+               try
+               {
+                  TransactionBase transaction = command.transaction;
+                  if(command.type == PostedCommand.add_comment)
+                     add_comment(command.comment);
+                  else if(command.type == PostedCommand.add_transaction)
+                     command.station.add_transaction(transaction);
+                  else if(transaction.station != null &&
+                          transaction.station.transactions.get(transaction.tran_no) == transaction)
+                     transaction.close();
+               }
+               catch(Exception e)
+               { add_comment("posted command failed: " + e.toString()); }
+            }
+         }
+      }
+   } // process_posted_commands
+   
+   
+   /**
+    * Sets the selector that services this network.  The selector will be woken
+    * when commands are posted.
+    */
+   void set_selector(NetworkSelector selector_)
+   { selector = selector_; }
+   
+   
+   /**
+    * Sets the driver that services this network.  The driver will be woken
+    * when commands are posted.
+    */
+   void set_driver(NetworkDriver driver_)
+   { driver = driver_; }
+   
+   
+   /**
+    * Sets the pipeline that services this network.  The pipeline's protocol
+    * thread will be woken when commands are posted.
+    */
+   void set_pipeline(NetworkPipeline pipeline_)
+   { pipeline = pipeline_; }
+   
+   
+   /**
+    * Calculates how long the thread that services this network can wait before
+    * it next needs to call check_state() if no input arrives in the meantime.
+    *
+    * @param max_delay  Specifies the longest delay, in msec, that should be
+    * returned.
+    * @return the delay in msec
+    */
+   int get_check_delay(int max_delay)
+   {
+      long rtn = max_delay;
+      synchronized(stations)
+      {
+         // verification time outs and defunct links are checked on every call
+         // rather than being scheduled so we will need to check often while
+         // they are pending.
+         if(!verifying.isEmpty() || !defunct_links.isEmpty() || !posted_commands.isEmpty())
+            rtn = Math.min(rtn, timer_tick);
+         long next_wake = timers.get_next_wake();
+         if(next_wake != Long.MAX_VALUE)
+            rtn = Math.min(rtn, next_wake - Timer.now());
+      }
+      return (int)Math.max(rtn, 0);
+   } // get_check_delay
+   
+   
+   /**
+    * Adds the command to the posted queue and wakes the selector, driver, or
+    * pipeline (if any)
+    */
+   private void post_command(PostedCommand command)
+   {
+      posted_commands.add(command);
+      NetworkSelector current_selector = selector;
+      NetworkDriver current_driver = driver;
+      NetworkPipeline current_pipeline = pipeline;
+      if(current_selector != null)
+         current_selector.wakeup(this);
+      if(current_driver != null)
+         current_driver.wakeup();
+      if(current_pipeline != null)
+         current_pipeline.wakeup();
+   } // post_command
+   
+   
    /**
     * Looks up the associated station address.
     *
@@ -271,6 +472,16 @@ public class Network
             stations.remove(station_pakbus_address);
             for(TransactionBase tran: station.transactions.values())
                on_transaction_close(tran);
+            
+            // the messages still waiting for the station will not be sent
+            Iterator<OutboundQueue> qi = outbound.values().iterator();
+            while(qi.hasNext())
+            {
+               OutboundQueue queue = qi.next();
+               unsent_count -= queue.remove_station(station_pakbus_address);
+               if(queue.size() == 0)
+                  qi.remove();
+            }
          }
       }
    } // remove_station
@@ -285,15 +496,13 @@ public class Network
    public int waiting_to_send_count(short neighbour_address)
    {
       int rtn = 0;
-      if(pakbus_address == 0)
-         rtn = unsent_messages.size();
+      if(neighbour_address == 0)
+         rtn = unsent_count;
       else
       {
-         for(Packet message: unsent_messages)
-         {
-            if(message.neighbour_dest_address == neighbour_address)
-               ++rtn;
-         }
+         OutboundQueue queue = outbound.get(neighbour_address);
+         if(queue != null)
+            rtn = queue.size();
       }
       return rtn;
    }  // waiting_to_send_count
@@ -406,19 +615,9 @@ public class Network
     */
    protected void on_transaction_close(TransactionBase transaction)
    {
-      // we need to make sure that this transaction is removed from the
-      // focus queue
-      int i = 0; 
-      while(i < focus_queue.size())
-      {
-         TransactionBase waiting = focus_queue.get(i);
-         if(waiting == transaction)
-            focus_queue.remove(i);
-         else
-            ++i;
-      }
-      if(current_focus == transaction)
-         current_focus = null;
+      // we need to make sure that this transaction no longer has focus and
+      // is removed from the focus queue
+      end_focus(transaction);
       
       // we also need to update the comms and retries attempts
       comms_retries += transaction.total_retries;
@@ -428,10 +627,142 @@ public class Network
    
    
    /**
-    * @return The transaction that currently has focus
+    * @return The transaction that has held focus for the longest time or null
+    * if no transaction has focus
     */
    public TransactionBase get_focus()
-   { return current_focus; }
+   {
+      TransactionBase rtn = null;
+      if(!focused.isEmpty())
+         rtn = focused.get(0);
+      return rtn;
+   } // get_focus
+   
+   
+   /**
+    * @param station  Specifies the station
+    * @return The transaction for the specified station that has held focus for
+    * the longest time or null if no transaction for that station has focus
+    */
+   public TransactionBase get_focus(Datalogger station)
+   {
+      TransactionBase rtn = null;
+      for(int i = 0; rtn == null && i < focused.size(); ++i)
+      {
+         TransactionBase transaction = focused.get(i);
+         if(transaction.station == station)
+            rtn = transaction;
+      }
+      return rtn;
+   } // get_focus
+   
+   
+   /**
+    * @return The number of transactions that currently have focus
+    */
+   public int get_focus_count()
+   { return focused.size(); }
+   
+   
+   /**
+    * @return The total number of packets that the network has had to allocate
+    * for received frames, link control frames, and pooled command messages.
+    * Once polling has reached a steady state, this count should stop growing.
+    */
+   public long get_packets_allocated()
+   { return packet_pool.get_allocated_count(); }
+   
+   
+   /**
+    * @return The total number of times that a packet has been reused rather
+    * than allocated
+    */
+   public long get_packets_reused()
+   { return packet_pool.get_reused_count(); }
+   
+   
+   /**
+    * Takes a packet for a message from the pool.  This must only be called
+    * by the thread that is servicing the network.
+    */
+   Packet acquire_packet()
+   { return packet_pool.acquire(); }
+   
+   
+   /**
+    * Takes a packet that will carry only a header from the pool.  This must
+    * only be called by the thread that is servicing the network.
+    */
+   Packet acquire_empty_packet()
+   { return packet_pool.acquire_empty(); }
+   
+   
+   /**
+    * Returns a packet to the pool once it has been written or consumed.
+    * Packets that did not come from the pool are ignored.
+    */
+   void release_packet(Packet packet)
+   { packet_pool.release(packet); }
+   
+   
+   /**
+    * @return The maximum number of transactions that can have focus at the same
+    * time
+    */
+   public int get_max_focus()
+   { return max_focus; }
+   
+   
+   /**
+    * @return The maximum number of transactions that can have focus at the same
+    * time through any one neighbour
+    */
+   public int get_max_neighbour_focus()
+   { return max_neighbour_focus; }
+   
+   
+   /**
+    * @return The maximum number of transactions that can have focus at the same
+    * time for any one station
+    */
+   public int get_max_station_focus()
+   { return max_station_focus; }
+   
+   
+   /**
+    * <p>Sets the limits on the number of transactions that can have focus at
+    * the same time.  By default, all of these limits are set to one which means
+    * that only one transaction in the network can have focus at a time.
+    * Raising these limits will allow transactions for stations that are
+    * reached through different neighbours (and, optionally, several
+    * transactions for the same station) to proceed in parallel.</p>
+    *
+    * <p>The verification of a neighbour link counts against the total limit and
+    * will prevent transactions that use that neighbour from being given focus
+    * until the verification is complete.  It will not affect transactions that
+    * use other neighbours.</p>
+    *
+    * @param max_focus_  Specifies the total number of transactions and
+    * neighbour verifications that can be active at the same time.
+    * @param max_neighbour_focus_  Specifies the number of transactions that can
+    * have focus at the same time through any one neighbour.
+    * @param max_station_focus_  Specifies the number of transactions that can
+    * have focus at the same time for any one station.  This value cannot
+    * exceed 255 (the number of transaction numbers available to a station).
+    */
+   public void set_focus_limits(
+      int max_focus_,
+      int max_neighbour_focus_,
+      int max_station_focus_)
+   {
+      if(max_focus_ < 1 || max_neighbour_focus_ < 1 || max_station_focus_ < 1)
+         throw new IllegalArgumentException("focus limits must be at least one");
+      if(max_station_focus_ > 255)
+         throw new IllegalArgumentException("the station focus limit cannot exceed 255");
+      max_focus = max_focus_;
+      max_neighbour_focus = max_neighbour_focus_;
+      max_station_focus = max_station_focus_;
+   } // set_focus_limits
 
    
    /**
@@ -445,7 +776,14 @@ public class Network
       // add the message to the queue
       message.source_address = pakbus_address;
       message.neighbour_source_address = pakbus_address;
-      unsent_messages.add(message);
+      OutboundQueue queue = outbound.get(message.neighbour_dest_address);
+      if(queue == null)
+      {
+         queue = new OutboundQueue(message.neighbour_dest_address);
+         outbound.put(message.neighbour_dest_address, queue);
+      }
+      queue.add(message);
+      ++unsent_count;
       
       // we now need to look up or create the link to carry the message.
       Link link = links.get(message.neighbour_dest_address);
@@ -523,6 +861,20 @@ public class Network
     * by the link.
     */
    protected void send_packet(Packet packet) throws Exception
+   { send_packet(packet, encoder); }
+   
+   
+   /**
+    * Called to transmit a packet using the buffers of the specified encoder.
+    * The entire frame will be written to the output stream in one operation.
+    * 
+    * @param packet   Specifies the packet to send
+    * @param encoder_ Specifies the encoder that will frame the packet.  Each
+    * link has its own encoder.
+    */
+   void send_packet(
+      Packet packet,
+      FrameEncoder encoder_) throws Exception
    {
       // we need to ensure that packet's source address fields are filled in
       packet.source_address = pakbus_address;
@@ -530,63 +882,9 @@ public class Network
       
       try
       {
-         if(packet.sub_protocol == Packet.sub_control ||
-            packet.sub_protocol == Packet.sub_link_state)
-         {
-            // we can now stream the packet to an array of bytes which can then be quoted and sent
-            // to the output stream
-            byte[] serial_packet = packet.write_serial_packet();
-            low_level_write(LowLevelDecoder.synch_byte);
-            for(int i = 0; i < serial_packet.length; ++i)
-            {
-               int ch = (serial_packet[i] & 0x000000ff);
-               if(ch == LowLevelDecoder.synch_byte ||
-                  ch == LowLevelDecoder.quote_byte)
-               {
-                  low_level_write(LowLevelDecoder.quote_byte);
-                  low_level_write(ch + 0x20);
-               }
-            else
-               low_level_write(ch);
-            }
-            
-            // we need to output the quoted version of the frame signature as well
-            int sig_null = Utils.calc_sig_nullifier(
-               Utils.calc_sig(
-                  serial_packet,
-                  serial_packet.length));
-            int sig_byte1 = (sig_null & 0xFF00) >> 8;
-            int sig_byte2 = (sig_null & 0x00FF);
-            if(sig_byte1 == LowLevelDecoder.quote_byte ||
-               sig_byte1 == LowLevelDecoder.synch_byte)
-            {
-               low_level_write(LowLevelDecoder.quote_byte);
-               low_level_write(sig_byte1 + 0x20);
-            }
-            else
-               low_level_write(sig_byte1);
-            if(sig_byte2 == LowLevelDecoder.quote_byte ||
-               sig_byte2 == LowLevelDecoder.synch_byte)
-            {
-               low_level_write(LowLevelDecoder.quote_byte);
-               low_level_write(sig_byte2 + 0x20);
-            }
-            else
-               low_level_write(sig_byte2);
-            low_level_write(LowLevelDecoder.synch_byte);
-         }
-         else if(packet.sub_protocol == Packet.sub_unquoted)
-         {
-            byte[] unquoted_packet = packet.write_unquoted_packet();
-            low_level_write(LowLevelDecoder.synch_byte);
-            low_level_write(0xf0);
-            for(int i = 0; i < unquoted_packet.length; ++i)
-            {
-               int ch = (unquoted_packet[i] & 0x000000ff);
-               low_level_write(ch);
-            }
-            low_level_write(LowLevelDecoder.synch_byte);
-         }
+         int frame_len = encoder_.encode(packet);
+         if(frame_len > 0)
+            low_level_write(encoder_.get_frame(), frame_len);
       }
       catch(IOException e)
       { 
@@ -623,12 +921,14 @@ public class Network
          // clear out the i/o streams
          input = null;
          output = null;
-         unsent_messages.clear();
+         outbound.clear();
+         unsent_count = 0;
          links.clear();
          
          // propogate the error to all stations and erase the neighbours
          neighbours.clear();
-         current_verify = null;
+         due_neighbours.clear();
+         verifying.clear();
          synchronized(stations)
          {
             for(Datalogger station: stations.values())
@@ -638,22 +938,13 @@ public class Network
       else
       {
          // we need to clear out the neighbour
-         if(current_verify != null && current_verify.neighbour_address == neighbour_address)
-         {
+         if(verifying.remove(neighbour_address) != null)
             neighbours.remove(neighbour_address);
-            current_verify = null;
-         }
          
          // we need to clear out any remaining messages that rely on this link address
-         int i = 0;
-         while(i < unsent_messages.size())
-         {
-            Packet message = unsent_messages.get(i);
-            if(message.neighbour_dest_address == neighbour_address)
-               unsent_messages.remove(i);
-            else
-               ++i;
-         }
+         OutboundQueue queue = outbound.remove(neighbour_address);
+         if(queue != null)
+            unsent_count -= queue.size();
          
          // we also need to notify any stations that use this link of the failure
          synchronized(stations)
@@ -687,21 +978,19 @@ public class Network
    {
       // we need to choose a message from those not yet sent.
       Packet rtn = null;
-      for(Packet message: unsent_messages)
-      {
-         if(message.neighbour_dest_address == neighbour_address)
-         {
-            if(rtn == null || message.priority > rtn.priority)
-               rtn = message;
-         }
-      }
+      OutboundQueue queue = outbound.get(neighbour_address);
+      if(queue != null)
+         rtn = queue.poll();
       
       // we will inform the owning station that the message is being sent
       if(rtn != null)
       {
-         if(rtn.message_type == Packet.pakctrl_hello_cmd && current_verify != null)
+         Neighbour verify = null;
+         if(rtn.message_type == Packet.pakctrl_hello_cmd)
+            verify = verifying.get(neighbour_address);
+         if(verify != null)
          {
-            current_verify.elapsed_timer = new Timer();
+            verify.elapsed_timer = new Timer();
          }
          else
          {
@@ -712,7 +1001,7 @@ public class Network
                   station.on_message_being_sent(rtn);
             }
          }
-         unsent_messages.remove(rtn);
+         --unsent_count;
       }
       return rtn;
    } // get_next_out_message
@@ -830,15 +1119,12 @@ public class Network
          }
          neighbour.verify_timer = new Timer();
          neighbour.verification_interval = verify_interval * 1000; // convert secs to msecs
+         neighbour.schedule_verify();
          add_comment("verify interval for " + neighbour.neighbour_address + " is " + verify_interval + " seconds");
 
          // this command should also satisfy our own need for verification as well
-         if(current_verify != null &&
-            current_verify.neighbour_address == neighbour.neighbour_address)
-         {
-            current_verify = null;
+         if(verifying.remove(neighbour.neighbour_address) != null)
             set_next_focus();
-         }
       }
       catch(Exception e)
       { } 
@@ -875,15 +1161,12 @@ public class Network
          }
          neighbour.verify_timer = new Timer();
          neighbour.verification_interval = verify_interval * 1000; // convert secs to msecs
+         neighbour.schedule_verify();
          add_comment("verify interval for " + neighbour.neighbour_address + " is " + verify_interval + " seconds");
 
          // this response should also satisfy our own need for verification as well
-         if(current_verify != null &&
-            current_verify.neighbour_address == neighbour.neighbour_address)
-         {
-            current_verify = null;
+         if(verifying.remove(neighbour.neighbour_address) != null)
             set_next_focus();
-         }
       }
       catch(Exception e)
       { }
@@ -913,49 +1196,27 @@ public class Network
          neighbour.delay_timer = new Timer();
          neighbour.delay_timeout = random.nextInt(15000);;
       }
+      neighbour.schedule_verify();
    } // on_hello_req
 
 
    private void check_incoming() throws Exception
    {
+      if(input == null)
+         return;
       try
       {
-         while(input.available() > 0)
+         // we will read the input in blocks so that the decoder can process
+         // all of the packets in each block in a single pass
+         int available = input.available();
+         while(available > 0)
          {
-            Packet packet = decoder.decode(input,low_level_logs);
-            if(packet == null ||
-               !(packet.neighbour_dest_address == broadcast_address ||
-                 packet.neighbour_dest_address == pakbus_address))
-               continue;
-            if(allow_unquoted && packet.sub_protocol == Packet.sub_control)
-            {
-               if(packet.supports_unquoted())
-               {
-                  Link link = links.get(packet.neighbour_source_address);
-                  if(link == null)
-                  {
-                     link = new Link(this,packet.neighbour_source_address);
-                     links.put(packet.neighbour_source_address, link);
-                  }
-                  link.set_sub_protocol(Packet.sub_unquoted);
-               }
-               else if(packet.control_type == Packet.control_ring)
-                  packet.sub_protocol = Packet.sub_link_state;
-            }
-            if(packet.sub_protocol == Packet.sub_link_state ||
-               packet.sub_protocol == Packet.sub_unquoted)
-            {
-               // we need to look up or create the link
-               Link link = links.get(packet.neighbour_source_address);
-               if(link == null)
-               {
-                  link = new Link(this,packet.neighbour_source_address);
-                  links.put(
-                     packet.neighbour_source_address,
-                     link);
-               }
-               link.process_incoming_frame(packet);
-            }
+            int bytes_read = input.read(
+               input_buffer, 0, Math.min(available, input_buffer.length));
+            if(bytes_read <= 0)
+               break;
+            decoder.decode(input_buffer, 0, bytes_read, low_level_logs, this);
+            available = input.available();
          }
       }
       catch(IOException e)
@@ -967,82 +1228,301 @@ public class Network
    
    
    /**
-    * Places the specified transaction on the focus queue
+    * Processes a block of bytes that has been read from the transport by a
+    * driver other than the input stream (a {@link NetworkSelector}, for
+    * example).  The bytes will be decoded and any complete packets will be
+    * processed in the same manner as those read by check_state().
+    * 
+    * @param buff    Specifies the buffer that holds the received bytes
+    * @param offset  Specifies the offset of the first byte in the buffer
+    * @param len     Specifies the number of bytes received
+    */
+   public void process_incoming(
+      byte[] buff,
+      int offset,
+      int len) throws Exception
+   {
+      synchronized(stations)
+      {
+         decoder.decode(buff, offset, len, low_level_logs, this);
+      }
+   } // process_incoming
+   
+   
+   /**
+    * Processes the bytes remaining in a buffer that has been filled by a driver
+    * other than the input stream.  The buffer position will be advanced to its
+    * limit.
+    * 
+    * @param buff  Specifies the buffer that holds the received bytes.  This
+    * buffer should be flipped before this method is called.
+    */
+   public void process_incoming(ByteBuffer buff) throws Exception
+   {
+      synchronized(stations)
+      {
+         decoder.decode(buff, low_level_logs, this);
+      }
+   } // process_incoming
+   
+   
+   /**
+    * Called by the decoder when a complete packet has been received.  This
+    * method will route the packet to the appropriate link.
+    * 
+    * @param packet  The packet that was decoded.  This packet may be a view of
+    * the decoder's buffer and will only be valid until this method returns.
+    */
+   public void on_packet(Packet packet) throws Exception
+   {
+      if(!(packet.neighbour_dest_address == broadcast_address ||
+           packet.neighbour_dest_address == pakbus_address))
+         return;
+      if(allow_unquoted && packet.sub_protocol == Packet.sub_control)
+      {
+         if(packet.supports_unquoted())
+         {
+            Link link = links.get(packet.neighbour_source_address);
+            if(link == null)
+            {
+               link = new Link(this,packet.neighbour_source_address);
+               links.put(packet.neighbour_source_address, link);
+            }
+            link.set_sub_protocol(Packet.sub_unquoted);
+         }
+         else if(packet.control_type == Packet.control_ring)
+            packet.sub_protocol = Packet.sub_link_state;
+      }
+      if(packet.sub_protocol == Packet.sub_link_state ||
+         packet.sub_protocol == Packet.sub_unquoted)
+      {
+         // we need to look up or create the link
+         Link link = links.get(packet.neighbour_source_address);
+         if(link == null)
+         {
+            link = new Link(this,packet.neighbour_source_address);
+            links.put(
+               packet.neighbour_source_address,
+               link);
+         }
+         link.process_incoming_frame(packet);
+      }
+   } // on_packet
+   
+   
+   /**
+    * Places the specified transaction on the focus queue.  A transaction that
+    * already has focus or that is already waiting for it will not be added
+    * again.
     */
    protected void request_focus(TransactionBase transaction) throws Exception
    {
-      focus_queue.add(transaction);
-      if(current_focus == null)
-         set_next_focus();
+      if(!focused.contains(transaction) && !focus_queue.contains(transaction))
+         focus_queue.add(transaction);
+      set_next_focus();
    } // request_focus
    
    
    
    /** 
-    * Release focus for the current transaction(if that is the one specified) or removes the transaction from the focus queue.
+    * Release focus for the specified transaction (if it has focus) or removes the transaction from the focus queue.
     */
    protected void release_focus(TransactionBase transaction)  throws Exception
    {
-      if(transaction == current_focus)
-         current_focus = null;
-      else
-         focus_queue.remove(transaction);
+      end_focus(transaction);
       set_next_focus();
    } // release_focus
    
    
    /**
-    * Prepares the set the next focus
+    * Awards focus to waiting transactions for as long as the focus limits
+    * allow.
     */
    private void set_next_focus() throws Exception
    {
-      if(current_focus == null && current_verify == null)
+      boolean found = true;
+      while(found && focused.size() + verifying.size() < max_focus)
       {
-         // we need to iterate the focus queue to find the highest priority transaction that has been waiting the longest time
+         // we need to iterate the focus queue to find the highest priority
+         // transaction that has been waiting the longest time and that is not
+         // held back by the limits for its neighbour or station.
+         TransactionBase next = null;
          for(TransactionBase transaction: focus_queue)
          {
-            if(current_focus == null || transaction.priority > current_focus.priority)
-               current_focus = transaction;
+            if((next == null || transaction.priority > next.priority) && can_focus(transaction))
+               next = transaction;
          }
-
-         if(current_focus != null)
+         
+         found = next != null;
+         if(found)
          {
             // we've found the next candidate but we need to make make sure
             // that the neighbour link is verified before focus is awarded.
-            Neighbour neighbour = neighbours.get(current_focus.get_neighbour_address());
+            Neighbour neighbour = neighbours.get(next.get_neighbour_address());
             if(neighbour == null)
             {
-               neighbour = new Neighbour(current_focus.get_neighbour_address(), this);
+               neighbour = new Neighbour(next.get_neighbour_address(), this);
                neighbours.put(
-                  current_focus.get_neighbour_address(),
+                  next.get_neighbour_address(),
                   neighbour);
             }
             // if the neighbour has not been verified, we need to first verify
             // it before we can allow the focus to take place.  
             if(neighbour.verify_timer == null)
             {
-               current_focus = null;
-               current_verify = neighbour;
+               verifying.put(neighbour.neighbour_address, neighbour);
                neighbour.start_verify();
             }
             else
             {
-               focus_queue.remove(current_focus);
-               current_focus.on_focus_start();
+               focus_queue.remove(next);
+               focused.add(next);
+               next.focus_neighbour = neighbour;
+               ++neighbour.focus_count;
+               ++next.station.focus_count;
+               next.on_focus_start();
             }
          }
       }
    } // set_next_focus
+   
+   
+   /**
+    * @return true if the specified transaction could be given focus without
+    * exceeding the limits for its neighbour or station
+    */
+   private boolean can_focus(TransactionBase transaction)
+   {
+      short neighbour_address = transaction.get_neighbour_address();
+      Neighbour neighbour = neighbours.get(neighbour_address);
+      boolean rtn = !verifying.containsKey(neighbour_address);
+      if(rtn && neighbour != null && neighbour.focus_count >= max_neighbour_focus)
+         rtn = false;
+      if(rtn && transaction.station.focus_count >= max_station_focus)
+         rtn = false;
+      return rtn;
+   } // can_focus
+   
+   
+   /**
+    * Removes focus from the specified transaction if it has focus and removes
+    * it from the focus queue if it is waiting.  Every path that ends a focus
+    * or a request for focus (release, close, or failure) comes through here
+    * so that the focus counts kept by the neighbours and stations are only
+    * decremented in one place.
+    *
+    * @return true if the transaction had focus
+    */
+   private boolean end_focus(TransactionBase transaction)
+   {
+      focus_queue.remove(transaction);
+      boolean rtn = focused.remove(transaction);
+      if(rtn)
+      {
+         --transaction.focus_neighbour.focus_count;
+         --transaction.station.focus_count;
+         transaction.focus_neighbour = null;
+      }
+      return rtn;
+   } // end_focus
+   
+   
+   /**
+    * Checks the neighbours that are being verified and handles those whose
+    * verification has timed out.
+    *
+    * @return true if any verification timed out
+    */
+   private boolean check_verifying() throws Exception
+   {
+      expired_verifies.clear();
+      for(Neighbour neighbour: verifying.values())
+      {
+         if(neighbour.get_elapsed() > 5000)
+            expired_verifies.add(neighbour);
+      }
+      for(Neighbour neighbour: expired_verifies)
+      {
+         // if this was the third attempt, we need to get rid of this neighbour. 
+         verifying.remove(neighbour.neighbour_address);
+         if(++neighbour.verification_attempts >= 3)
+         {  
+            short neighbour_address = neighbour.neighbour_address;
+            links.remove(neighbour_address);
+            neighbours.remove(neighbour_address);
+            on_link_failure(neighbour_address);
+         }
+         else
+         {
+            neighbour.verify_timer = null;
+            neighbour.schedule_verify();
+         }
+      }
+      boolean rtn = !expired_verifies.isEmpty();
+      expired_verifies.clear();
+      return rtn;
+   } // check_verifying
+   
+   
+   /**
+    * Starts verification for the neighbours whose verification timers have
+    * expired for as long as the focus limits allow.  The neighbours with the
+    * least number of attempts will be chosen first.  A neighbour will not be
+    * verified while any transaction that uses it has focus.
+    */
+   private void start_verifying() throws Exception
+   {
+      Neighbour next;
+      do
+      {
+         next = null;
+         Iterator<Neighbour> ni = due_neighbours.iterator();
+         while(ni.hasNext())
+         {
+            Neighbour neighbour = ni.next();
+            if(neighbours.get(neighbour.neighbour_address) != neighbour)
+               ni.remove();
+            else if(neighbour.needs_verify())
+            {
+               if(neighbour.focus_count == 0 &&
+                  !verifying.containsKey(neighbour.neighbour_address) &&
+                  (next == null || neighbour.verification_attempts < next.verification_attempts))
+                  next = neighbour;
+            }
+            else
+            {
+               ni.remove();
+               neighbour.schedule_verify();
+            }
+         }
+         if(next != null)
+         {
+            due_neighbours.remove(next);
+            verifying.put(next.neighbour_address, next);
+            next.start_verify();
+         }
+      }
+      while(next != null && focused.size() + verifying.size() < max_focus);
+   } // start_verifying
 
 
    /**
-    * Writes the specified byte and sends it to all loggers
+    * Writes the specified frame and sends its bytes to all loggers
     */
-   private void low_level_write(int value) throws Exception
+   private void low_level_write(
+      byte[] frame,
+      int frame_len) throws Exception
    {
-      output.write(value);
-      for(LowLevelLogger logger: low_level_logs)
-         logger.on_io(value,true);
+      output.write(frame, 0, frame_len);
+      if(!low_level_logs.isEmpty())
+      {
+         for(int i = 0; i < frame_len; ++i)
+         {
+            int value = frame[i] & 0xff;
+            for(LowLevelLogger logger: low_level_logs)
+               logger.on_io(value,true);
+         }
+      }
    } // low_level_write
    
    
@@ -1071,6 +1551,65 @@ public class Network
    private LowLevelDecoder decoder;
    
    
+   /**
+    * Specifies the resolution, in msec, of the timer wheel
+    */
+   private static final int timer_tick = 50;
+   
+   
+   /**
+    * Keeps track of the times at which links, stations, and neighbours need to
+    * be checked.
+    */
+   TimerWheel timers;
+   
+   
+   /**
+    * Used to collect the owners of timers that have expired.  This is kept so
+    * that it does not need to be allocated each time that the state is checked.
+    */
+   private List<Object> expired_timers;
+   
+   
+   /**
+    * Holds the neighbours whose verification timers have expired and that may
+    * need to be verified.
+    */
+   private Set<Neighbour> due_neighbours;
+   
+   
+   /**
+    * Specifies the size of the block used to read from the input stream
+    */
+   private static final int input_buffer_size = 4096;
+   
+   
+   /**
+    * Used to read blocks of bytes from the input stream so that they can be
+    * passed to the decoder
+    */
+   private byte[] input_buffer;
+   
+   
+   /**
+    * Used to frame packets that are not sent on behalf of a link
+    */
+   private FrameEncoder encoder;
+   
+   
+   /**
+    * Specifies the number of free packets of each kind that will be kept
+    */
+   private static final int packet_pool_size = 32;
+   
+   
+   /**
+    * Holds the packets that can be reused for received frames, link control
+    * frames and command messages.
+    */
+   private PacketPool packet_pool;
+   
+   
    /**
     * Maintains the list of active links keyed by their neighbour addresses.
     */
@@ -1091,9 +1630,105 @@ public class Network
 
 
    /**
-    * Holds the list of messages that are waiting to be sent.
+    * Holds the queues of messages that are waiting to be sent keyed by their
+    * neighbour addresses.
+    */
+   private Map<Short, OutboundQueue> outbound;
+   
+   
+   /**
+    * Keeps track of the total number of messages that are waiting to be sent
     */
-   private List<Packet> unsent_messages;
+   private int unsent_count;
+   
+   
+   /**
+    * Describes a command that has been posted by another thread
+    */
+   private static final class PostedCommand
+   {
+      /**
+       * Identifies a command that adds a transaction to a station
+       */
+      static final int add_transaction = 1;
+      
+      
+      /**
+       * Identifies a command that closes a transaction
+       */
+      static final int close_transaction = 2;
+      
+      
+      /**
+       * Identifies a command that adds a comment to the low level logs
+       */
+      static final int add_comment = 3;
+      
+      
+      /**
+       * Constructor
+       */
+      PostedCommand(
+         int type_,
+         Datalogger station_,
+         TransactionBase transaction_,
+         String comment_)
+      {
+         type = type_;
+         station = station_;
+         transaction = transaction_;
+         comment = comment_;
+      } // constructor
+      
+      
+      /**
+       * Specifies the type of command
+       */
+      final int type;
+      
+      
+      /**
+       * Specifies the station for an add command
+       */
+      final Datalogger station;
+      
+      
+      /**
+       * Specifies the transaction that the command acts upon
+       */
+      final TransactionBase transaction;
+      
+      
+      /**
+       * Specifies the comment for an add comment command
+       */
+      final String comment;
+   }
+   
+   
+   /**
+    * Holds the commands that have been posted by other threads and that will
+    * be carried out by the thread that checks the network state.
+    */
+   private ConcurrentLinkedQueue<PostedCommand> posted_commands;
+   
+   
+   /**
+    * Specifies the selector, if any, that services this network
+    */
+   private volatile NetworkSelector selector;
+   
+   
+   /**
+    * Specifies the driver, if any, that services this network
+    */
+   private volatile NetworkDriver driver;
+   
+   
+   /**
+    * Specifies the pipeline, if any, that services this network
+    */
+   private volatile NetworkPipeline pipeline;
    
    
    /**
@@ -1103,9 +1738,31 @@ public class Network
    
    
    /**
-    * Holds a reference to the transaction that currently has focus
+    * Holds the transactions that currently have focus in the order in which
+    * focus was granted.
+    */
+   private List<TransactionBase> focused;
+   
+   
+   /**
+    * Specifies the maximum number of transactions and verifications that can
+    * be active at the same time.
     */
-   private TransactionBase current_focus;
+   private int max_focus;
+   
+   
+   /**
+    * Specifies the maximum number of transactions that can have focus at the
+    * same time through any one neighbour.
+    */
+   private int max_neighbour_focus;
+   
+   
+   /**
+    * Specifies the maximum number of transactions that can have focus at the
+    * same time for any one station.
+    */
+   private int max_station_focus;
 
 
    /**
@@ -1121,11 +1778,18 @@ public class Network
 
 
    /**
-    * Keeps track of the neighbour that the router is trying to verify at this
-    * time.  Will be null if there is no such neighbour.  If this value is
-    * non-null, transaction focus will not be allowed until it is cleared.
+    * Keeps track of the neighbours that the router is trying to verify at this
+    * time keyed by their address.  Transactions that use one of these
+    * neighbours will not be given focus until its verification is complete.
+    */
+   private Map<Short, Neighbour> verifying;
+   
+   
+   /**
+    * Used by check_verifying() to hold the neighbours whose verification has
+    * timed out.
     */
-   private Neighbour current_verify;
+   private List<Neighbour> expired_verifies;
    
    
    /**
@@ -0,0 +1,288 @@
+/* NetworkDriver.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * <p>Defines an object that services a single {@link Network} using blocking
+ * i/o and no polling.  The driver uses two threads.  The reader thread blocks
+ * in the input stream's read() method and decodes the bytes as soon as they
+ * arrive.  The checker thread calls check_state() and then parks until the
+ * network's next deadline (the time at which a link, station, or transaction
+ * will next need attention), until the maximum wait expires, or until it is
+ * woken because input has been processed or a command has been posted.</p>
+ *
+ * <p>The threads are created by a caller supplied thread factory.  An
+ * application that runs many connections in one JVM on Java 21 or later can
+ * pass the factory returned by Thread.ofVirtual().factory() so that each
+ * connection costs two virtual threads rather than a platform thread that
+ * wakes up to poll.</p>
+ *
+ * <p>The reader and checker threads are serialised by the network's own
+ * lock.  Once the driver has been started, the application should use
+ * {@link Network#post_transaction(Datalogger, TransactionBase)} and
+ * {@link Network#post_close(TransactionBase)} from other threads.</p>
+ */
+public class NetworkDriver
+{
+   /**
+    * Constructor
+    *
+    * @param network_  Specifies the network to be serviced.  The network's
+    * input stream will be replaced by the reader thread.
+    * @param input_  Specifies the stream that the reader thread will read
+    * @param output_  Specifies the stream to which the network will write
+    * @param thread_factory_  Specifies the factory used to create the threads.
+    * If null, ordinary threads will be created.
+    */
+   public NetworkDriver(
+      Network network_,
+      InputStream input_,
+      OutputStream output_,
+      ThreadFactory thread_factory_)
+   {
+      network = network_;
+      input = input_;
+      output = output_;
+      thread_factory = thread_factory_;
+      max_wait = 1000;
+      running = false;
+      failure = null;
+      reader_thread = null;
+      checker_thread = null;
+   } // constructor
+
+
+   /**
+    * Sets the longest time that the checker thread will wait between calls to
+    * check_state().
+    *
+    * @param max_wait_  Specifies the time in milli-seconds.  This value must be
+    * greater than zero.
+    */
+   public void set_max_wait(int max_wait_)
+   {
+      if(max_wait_ <= 0)
+         throw new IllegalArgumentException("the maximum wait must be positive");
+      max_wait = max_wait_;
+   } // set_max_wait
+
+
+   /**
+    * Starts the reader and checker threads.
+    */
+   public synchronized void start()
+   {
+      if(!running)
+      {
+         running = true;
+         failure = null;
+         network.set_io_streams(null, output);
+         network.set_driver(this);
+         checker_thread = new_thread(new Checker());
+         reader_thread = new_thread(new Reader());
+         checker_thread.start();
+         reader_thread.start();
+      }
+   } // start
+
+
+   /**
+    * Stops the checker thread and waits for it to exit.  The reader thread
+    * will exit the next time that its read returns.  Closing the input stream
+    * will cause that to happen immediately.
+    */
+   public void stop() throws InterruptedException
+   {
+      Thread thread;
+      synchronized(this)
+      {
+         running = false;
+         thread = checker_thread;
+         network.set_driver(null);
+      }
+      if(thread != null)
+      {
+         LockSupport.unpark(thread);
+         if(thread != Thread.currentThread())
+            thread.join();
+      }
+   } // stop
+
+
+   /**
+    * @return true if the driver threads are running
+    */
+   public boolean is_running()
+   { return running; }
+
+
+   /**
+    * Causes the checker thread to check the network state as soon as
+    * possible.  This method can be called from any thread.
+    */
+   public void wakeup()
+   {
+      Thread thread = checker_thread;
+      if(thread != null)
+         LockSupport.unpark(thread);
+   } // wakeup
+
+
+   /**
+    * Creates a thread using the thread factory (if any)
+    */
+   private Thread new_thread(Runnable worker)
+   {
+      Thread rtn;
+      if(thread_factory != null)
+         rtn = thread_factory.newThread(worker);
+      else
+         rtn = new Thread(worker);
+      return rtn;
+   } // new_thread
+
+
+   /**
+    * Defines the work done by the reader thread
+    */
+   private final class Reader implements Runnable
+   {
+      public void run()
+      {
+         byte[] buff = new byte[read_size];
+         try
+         {
+            while(running)
+            {
+               int bytes_read = input.read(buff, 0, buff.length);
+               if(bytes_read < 0)
+                  throw new IOException("end of stream");
+               if(bytes_read > 0)
+               {
+                  try
+                  {
+                     network.process_incoming(buff, 0, bytes_read);
+                  }
+                  catch(IOException e)
+                  { throw e; }
+                  catch(Exception e)
+                  { network.add_comment("input processing failed: " + e.toString()); }
+
+                  // processing the input may have changed the deadlines
+                  wakeup();
+               }
+            }
+         }
+         catch(IOException e)
+         {
+            failure = e;
+            wakeup();
+         }
+      }
+   }
+
+
+   /**
+    * Defines the work done by the checker thread
+    */
+   private final class Checker implements Runnable
+   {
+      public void run()
+      {
+         while(running)
+         {
+            try
+            {
+               if(failure != null)
+               {
+                  running = false;
+                  network.add_comment("input failed: " + failure.toString());
+                  network.on_link_failure((short)0);
+               }
+               else
+                  network.check_state();
+            }
+            catch(Exception e)
+            { network.add_comment("check_state failed: " + e.toString()); }
+            int delay = network.get_check_delay(max_wait);
+            if(running && delay > 0)
+               LockSupport.parkNanos(delay * 1000000L);
+         }
+      }
+   }
+
+
+   /**
+    * Specifies the size of the blocks read from the input stream
+    */
+   private static final int read_size = 4096;
+
+
+   /**
+    * Specifies the network being serviced
+    */
+   private final Network network;
+
+
+   /**
+    * Specifies the stream read by the reader thread
+    */
+   private final InputStream input;
+
+
+   /**
+    * Specifies the stream written by the network
+    */
+   private final OutputStream output;
+
+
+   /**
+    * Specifies the factory used to create the threads
+    */
+   private final ThreadFactory thread_factory;
+
+
+   /**
+    * Specifies the longest time, in milli-seconds, that the checker thread
+    * will park.
+    */
+   private volatile int max_wait;
+
+
+   /**
+    * Set to true while the driver threads should keep running
+    */
+   private volatile boolean running;
+
+
+   /**
+    * Holds the error that stopped the reader thread.  This will be reported
+    * by the checker thread.
+    */
+   private volatile IOException failure;
+
+
+   /**
+    * The thread that reads the input stream
+    */
+   private Thread reader_thread;
+
+
+   /**
+    * The thread that checks the network state
+    */
+   private volatile Thread checker_thread;
+}
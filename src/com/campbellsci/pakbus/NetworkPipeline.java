@@ -0,0 +1,333 @@
+/* NetworkPipeline.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * <p>Defines an object that services a {@link Network} using two threads.  The
+ * input thread does nothing but read bytes from the input stream and place
+ * them in a lock-free ring buffer.  The protocol thread takes the bytes from
+ * the ring, decodes them, and checks the network state.  When there is no
+ * input, the protocol thread sleeps until the network's next timer is due or
+ * until a command is posted to the network.
+ * This keeps the blocking reads of the input stream away from the protocol
+ * logic so that a stalled stream cannot delay retries and time outs.</p>
+ *
+ * <p>If the ring fills because the protocol thread is falling behind, the
+ * input thread will stop reading until space is available.  This leaves the
+ * unread bytes with the stream (and, for a socket, with the transport's own
+ * flow control) rather than buffering them without limit.</p>
+ *
+ * <p>Once the pipeline has been started, all of the methods of the network and
+ * of its stations and transactions should only be called from the protocol
+ * thread (in client call-backs, for instance).  Other threads should use
+ * {@link Network#post_transaction(Datalogger, TransactionBase)} and
+ * {@link Network#post_close(TransactionBase)}.  Client call-backs can be moved
+ * off of the protocol thread using a {@link RecordDispatcher}.</p>
+ */
+public class NetworkPipeline
+{
+   /**
+    * Constructor
+    *
+    * @param network_  Specifies the network to be serviced.  The network's
+    * input stream will be replaced by the ring buffer.
+    * @param input_  Specifies the stream from which the input thread will read
+    * @param output_  Specifies the stream to which the network will write
+    * @param ring_size  Specifies the number of bytes that can be buffered
+    * between the input and protocol threads.
+    */
+   public NetworkPipeline(
+      Network network_,
+      InputStream input_,
+      OutputStream output_,
+      int ring_size)
+   {
+      network = network_;
+      input = input_;
+      output = output_;
+      ring = new ByteRing(ring_size);
+      check_interval = 1000;
+      running = false;
+      stopped = false;
+      failure = null;
+      check_due = false;
+      input_thread = null;
+      protocol_thread = null;
+   } // constructor
+
+
+   /**
+    * Sets the longest interval that the protocol thread will wait before
+    * invoking check_state() for the network when no bytes have been received.
+    * The thread will normally be woken sooner by the network's timers or by
+    * posted commands.
+    *
+    * @param check_interval_  Specifies the interval in milli-seconds.  This
+    * value must be greater than zero.  The default is one second.
+    */
+   public void set_check_interval(int check_interval_)
+   {
+      if(check_interval_ <= 0)
+         throw new IllegalArgumentException("the check interval must be positive");
+      check_interval = check_interval_;
+   } // set_check_interval
+
+
+   /**
+    * Starts the input and protocol threads.
+    */
+   public synchronized void start()
+   {
+      if(stopped)
+         throw new IllegalStateException("the pipeline has been stopped");
+      if(!running)
+      {
+         running = true;
+         failure = null;
+         network.set_io_streams(null, output);
+         network.set_pipeline(this);
+         protocol_thread = new Thread(new ProtocolWorker(), "pakbus-protocol");
+         input_thread = new Thread(new InputWorker(), "pakbus-input");
+         protocol_thread.start();
+         input_thread.start();
+      }
+   } // start
+
+
+   /**
+    * Stops the input and protocol threads and waits for them to exit.  A read
+    * that is blocked cannot be relied upon to return when its thread is
+    * interrupted so the input stream will also be closed.  The pipeline
+    * cannot be started again once it has been stopped.
+    */
+   public void stop() throws InterruptedException
+   {
+      Thread protocol;
+      Thread reader;
+      synchronized(this)
+      {
+         running = false;
+         stopped = true;
+         protocol = protocol_thread;
+         reader = input_thread;
+         input_thread = null;
+      }
+      network.set_pipeline(null);
+      if(reader != null)
+      {
+         reader.interrupt();
+         try
+         {
+            input.close();
+         }
+         catch(IOException e)
+         { }
+         if(reader != Thread.currentThread())
+            reader.join();
+      }
+      if(protocol != null)
+      {
+         LockSupport.unpark(protocol);
+         if(protocol != Thread.currentThread())
+            protocol.join();
+      }
+   } // stop
+
+
+   /**
+    * Wakes the protocol thread so that it will check the network state without
+    * waiting for its current delay to expire.  This is called by the network
+    * when a command is posted.
+    */
+   public void wakeup()
+   {
+      check_due = true;
+      LockSupport.unpark(protocol_thread);
+   } // wakeup
+
+
+   /**
+    * @return true if the pipeline threads are running
+    */
+   public boolean is_running()
+   { return running; }
+
+
+   /**
+    * @return the number of received bytes that are waiting for the protocol
+    * thread
+    */
+   public int get_pending_count()
+   { return ring.available(); }
+
+
+   /**
+    * Defines the work done by the input thread
+    */
+   private final class InputWorker implements Runnable
+   {
+      public void run()
+      {
+         byte[] buff = new byte[read_size];
+         try
+         {
+            while(running)
+            {
+               int bytes_read = input.read(buff, 0, buff.length);
+               if(bytes_read < 0)
+                  throw new IOException("end of stream");
+               int written = 0;
+               while(running && written < bytes_read)
+               {
+                  written += ring.write(buff, written, bytes_read - written);
+                  LockSupport.unpark(protocol_thread);
+                  if(written < bytes_read)
+                     LockSupport.parkNanos(full_wait);
+               }
+            }
+         }
+         catch(IOException e)
+         {
+            failure = e;
+            LockSupport.unpark(protocol_thread);
+         }
+      }
+   }
+
+
+   /**
+    * Defines the work done by the protocol thread
+    */
+   private final class ProtocolWorker implements Runnable
+   {
+      public void run()
+      {
+         byte[] buff = new byte[read_size];
+         long next_check = Timer.now();
+         while(running)
+         {
+            try
+            {
+               int count = ring.read(buff, 0, buff.length);
+               if(count > 0)
+                  network.process_incoming(buff, 0, count);
+               if(failure != null && ring.available() == 0)
+               {
+                  running = false;
+                  network.add_comment("input failed: " + failure.toString());
+                  network.on_link_failure((short)0);
+               }
+               else if(check_due || count > 0 || Timer.now() - next_check >= 0)
+               {
+                  // the input that was just processed may have started timers
+                  // so the delay is worked out again after every check
+                  check_due = false;
+                  network.check_state();
+                  next_check = Timer.now() + network.get_check_delay(check_interval);
+               }
+               else
+               {
+                  long wait = next_check - Timer.now();
+                  if(wait > 0)
+                     LockSupport.parkNanos(wait * 1000000L);
+               }
+            }
+            catch(Exception e)
+            { network.add_comment("protocol processing failed: " + e.toString()); }
+         }
+      }
+   }
+
+
+   /**
+    * Specifies the size of the blocks read from the stream and from the ring
+    */
+   private static final int read_size = 4096;
+
+
+   /**
+    * Specifies the time, in nano-seconds, that the input thread will wait for
+    * space when the ring is full
+    */
+   private static final long full_wait = 1000000L;
+
+
+   /**
+    * Specifies the network being serviced
+    */
+   private final Network network;
+
+
+   /**
+    * Specifies the stream read by the input thread
+    */
+   private final InputStream input;
+
+
+   /**
+    * Specifies the stream written by the network
+    */
+   private final OutputStream output;
+
+
+   /**
+    * Holds the bytes that have been read but not yet decoded
+    */
+   private final ByteRing ring;
+
+
+   /**
+    * Specifies the interval, in milli-seconds, at which the network state will
+    * be checked.
+    */
+   private volatile int check_interval;
+
+
+   /**
+    * Set to true when a command has been posted and the network state should
+    * be checked without waiting for the next timer
+    */
+   private volatile boolean check_due;
+
+
+   /**
+    * Set to true while the pipeline threads should keep running
+    */
+   private volatile boolean running;
+
+
+   /**
+    * Set to true once stop() has been called
+    */
+   private boolean stopped;
+
+
+   /**
+    * Holds the error that stopped the input thread
+    */
+   private volatile IOException failure;
+
+
+   /**
+    * The thread that reads the input stream
+    */
+   private Thread input_thread;
+
+
+   /**
+    * The thread that decodes the input and checks the network state
+    */
+   private volatile Thread protocol_thread;
+}
@@ -0,0 +1,476 @@
+/* NetworkSelector.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * <p>Defines an object that drives one or more {@link Network} objects from a
+ * single thread using a {@link java.nio.channels.Selector}.  Rather than
+ * calling each network's check_state() method in a polling loop, the
+ * application registers the channel that carries each network's traffic
+ * (a SocketChannel or the source side of a Pipe, for instance) and then calls
+ * {@link #run()} or {@link #select(long)}.  The calling thread will sleep in
+ * the selector until bytes arrive on one of the channels or until the
+ * earliest time at which one of the networks next needs its state checked
+ * (as given by the network's timers).  Bytes that are received are read in
+ * blocks and passed directly to the network's decoder.  Only the networks
+ * that have received input, have had commands posted, or whose deadlines
+ * have arrived will have check_state() called.</p>
+ *
+ * <p>All of the networks managed by this selector must be serviced by the
+ * thread that calls run() or select().  Other threads may call
+ * {@link #wakeup()} or {@link #stop()}.  Transactions posted to a network
+ * using {@link Network#post_transaction(Datalogger, TransactionBase)} will wake
+ * the selector and will be started as soon as the selector returns.</p>
+ */
+public class NetworkSelector
+{
+   /**
+    * Constructor
+    */
+   public NetworkSelector() throws IOException
+   {
+      selector = Selector.open();
+      networks = new HashMap<Network, SelectionKey>();
+      read_buffer = ByteBuffer.allocate(read_buffer_size);
+      due_times = new HashMap<Network, Long>();
+      due_queue = new PriorityQueue<DueEntry>();
+      due_networks = new ArrayList<Network>();
+      woken = new ConcurrentLinkedQueue<Network>();
+      check_interval = 1000;
+      write_timeout = 5000;
+      stopped = false;
+   } // constructor
+
+
+   /**
+    * Registers a network whose input and output are both carried by the
+    * specified channel (a SocketChannel, for instance).  The channel will
+    * be placed in non-blocking mode and will also become the output for the
+    * network.
+    *
+    * @param network  Specifies the network to be serviced
+    * @param channel  Specifies the channel.  This must also implement both
+    * ReadableByteChannel and WritableByteChannel.
+    */
+   public void add_network(
+      Network network,
+      SelectableChannel channel) throws IOException
+   { add_network(network, channel, (WritableByteChannel)channel); }
+
+
+   /**
+    * Registers a network whose input and output are carried on separate
+    * channels (the source and sink channels of a pair of pipes, for
+    * instance).
+    *
+    * @param network  Specifies the network to be serviced
+    * @param input    Specifies the channel from which the network's input
+    * will be read.  This must also implement ReadableByteChannel and will be
+    * placed in non-blocking mode.
+    * @param output   Specifies the channel to which the network's output will
+    * be written.
+    */
+   public void add_network(
+      Network network,
+      SelectableChannel input,
+      WritableByteChannel output) throws IOException
+   {
+      if(!(input instanceof ReadableByteChannel))
+         throw new IllegalArgumentException("the input channel must be readable");
+      input.configureBlocking(false);
+      network.set_io_streams(null, new ChannelOutputStream(output, write_timeout));
+      SelectionKey key = input.register(selector, SelectionKey.OP_READ, network);
+      networks.put(network, key);
+      set_due(network, Timer.now());
+      network.set_selector(this);
+   } // add_network
+
+
+   /**
+    * Removes the specified network from those serviced by this selector.  The
+    * network's channels will not be closed.
+    *
+    * @param network  Specifies the network to be removed
+    */
+   public void remove_network(Network network)
+   {
+      SelectionKey key = networks.remove(network);
+      due_times.remove(network);
+      if(key != null)
+      {
+         key.cancel();
+         network.set_selector(null);
+      }
+   } // remove_network
+
+
+   /**
+    * @return the number of networks that are serviced by this selector
+    */
+   public int get_networks_count()
+   { return networks.size(); }
+
+
+   /**
+    * Sets the longest interval between calls to a network's check_state()
+    * method.  A network will normally be checked sooner than this, when its
+    * next timer expires or when it receives input.
+    *
+    * @param check_interval_  Specifies the interval in milli-seconds.  This
+    * value must be greater than zero.
+    */
+   public void set_check_interval(int check_interval_)
+   {
+      if(check_interval_ <= 0)
+         throw new IllegalArgumentException("the check interval must be positive");
+      check_interval = check_interval_;
+   } // set_check_interval
+
+
+   /**
+    * Sets the longest time that a network's write can wait for its channel to
+    * accept output.  A network whose peer stops reading will fail its link
+    * when this time expires so that the other networks serviced by this
+    * selector are not held up.  This applies to networks added after it is
+    * called.
+    *
+    * @param write_timeout_  Specifies the time in milli-seconds.  This value
+    * must be greater than zero.
+    */
+   public void set_write_timeout(int write_timeout_)
+   {
+      if(write_timeout_ <= 0)
+         throw new IllegalArgumentException("the write timeout must be positive");
+      write_timeout = write_timeout_;
+   } // set_write_timeout
+
+
+   /**
+    * Services the networks until {@link #stop()} is called.
+    */
+   public void run() throws Exception
+   {
+      stopped = false;
+      while(!stopped)
+         select(check_interval);
+   } // run
+
+
+   /**
+    * Causes the thread that is executing run() to return as soon as possible.
+    * This method can be called from any thread.
+    */
+   public void stop()
+   {
+      stopped = true;
+      selector.wakeup();
+   } // stop
+
+
+   /**
+    * Causes the thread that is blocked in select() to return immediately.
+    * This method can be called from any thread.
+    */
+   public void wakeup()
+   { selector.wakeup(); }
+
+
+   /**
+    * Causes the thread that is blocked in select() to return immediately and
+    * to check the state of the specified network.  This is used by a network
+    * when a command is posted to it and can be called from any thread.
+    */
+   void wakeup(Network network)
+   {
+      woken.add(network);
+      selector.wakeup();
+   } // wakeup
+
+
+   /**
+    * Waits for input to arrive on any of the registered channels or for the
+    * earliest network deadline to arrive.  Any input that has arrived will be
+    * read and given to the appropriate network.  check_state() will then be
+    * called for each network that received input, had commands posted, or
+    * whose deadline has arrived.
+    *
+    * @param max_wait  Specifies the maximum amount of time in milli-seconds
+    * that this method should wait.
+    */
+   public void select(long max_wait) throws Exception
+   {
+      // we will not wait beyond the earliest time that a network is due
+      long now = Timer.now();
+      long wait = max_wait;
+      DueEntry first = first_due();
+      if(!woken.isEmpty())
+         wait = 0;
+      if(first != null)
+         wait = Math.min(wait, first.due - now);
+      int ready_count;
+      if(wait > 0)
+         ready_count = selector.select(wait);
+      else
+         ready_count = selector.selectNow();
+
+      // read all of the input that is available.  Each network that receives
+      // input will be checked because its deadlines may have changed.
+      now = Timer.now();
+      if(ready_count > 0)
+      {
+         Iterator<SelectionKey> ki = selector.selectedKeys().iterator();
+         while(ki.hasNext())
+         {
+            SelectionKey key = ki.next();
+            ki.remove();
+            if(key.isValid() && key.isReadable())
+            {
+               Network network = (Network)key.attachment();
+               on_readable(key);
+               if(due_times.containsKey(network))
+                  set_due(network, now);
+            }
+         }
+      }
+
+      // the networks that have had commands posted also need to be checked
+      Network posted;
+      while((posted = woken.poll()) != null)
+      {
+         if(due_times.containsKey(posted))
+            set_due(posted, now);
+      }
+
+      // we can now check the networks that are due.  These are taken from
+      // the front of the queue and are marked as not due so that a network
+      // with more than one entry is only checked once.  Each network that is
+      // checked will be due again when its next timer expires.
+      due_networks.clear();
+      while((first = first_due()) != null && first.due <= now)
+      {
+         due_queue.poll();
+         due_times.put(first.network, Long.MAX_VALUE);
+         due_networks.add(first.network);
+      }
+      for(Network network: due_networks)
+      {
+         try
+         {
+            network.check_state();
+         }
+         catch(IOException e)
+         { remove_network(network); }
+         catch(Exception e)
+         { network.add_comment("check_state failed: " + e.toString()); }
+         if(due_times.containsKey(network))
+            set_due(network, Timer.now() + network.get_check_delay(check_interval));
+      }
+      due_networks.clear();
+   } // select
+
+
+   /**
+    * Sets the time at which the specified network next needs its state
+    * checked.  Any earlier entry for the network is left in the queue and
+    * will be discarded when it reaches the front.
+    */
+   private void set_due(
+      Network network,
+      long due)
+   {
+      due_times.put(network, due);
+      due_queue.add(new DueEntry(network, due));
+   } // set_due
+
+
+   /**
+    * Discards the entries at the front of the queue that no longer match the
+    * due time of their network (or whose network has been removed).
+    *
+    * @return the earliest valid entry or null if there are none
+    */
+   private DueEntry first_due()
+   {
+      DueEntry rtn;
+      while((rtn = due_queue.peek()) != null)
+      {
+         Long due = due_times.get(rtn.network);
+         if(due != null && due.longValue() == rtn.due)
+            break;
+         due_queue.poll();
+      }
+      return rtn;
+   } // first_due
+
+
+   /**
+    * Records the time at which a network was due to be checked
+    */
+   private static final class DueEntry implements Comparable<DueEntry>
+   {
+      /**
+       * Constructor
+       */
+      DueEntry(
+         Network network_,
+         long due_)
+      {
+         network = network_;
+         due = due_;
+      }
+
+
+      public int compareTo(DueEntry other)
+      {
+         int rtn = 0;
+         if(due < other.due)
+            rtn = -1;
+         else if(due > other.due)
+            rtn = 1;
+         return rtn;
+      }
+
+
+      /**
+       * Specifies the network
+       */
+      final Network network;
+
+
+      /**
+       * Specifies the time (as given by Timer.now()) at which the network was
+       * due
+       */
+      final long due;
+   }
+
+
+   /**
+    * Reads all of the bytes that are available from the channel associated
+    * with the key and passes them to the network.
+    */
+   private void on_readable(SelectionKey key)
+   {
+      Network network = (Network)key.attachment();
+      ReadableByteChannel channel = (ReadableByteChannel)key.channel();
+      try
+      {
+         int bytes_read;
+         do
+         {
+            read_buffer.clear();
+            bytes_read = channel.read(read_buffer);
+            if(bytes_read > 0)
+            {
+               read_buffer.flip();
+               network.process_incoming(read_buffer);
+            }
+         }
+         while(bytes_read == read_buffer.capacity());
+         if(bytes_read < 0)
+            throw new IOException("end of stream");
+      }
+      catch(IOException e)
+      {
+         remove_network(network);
+         try
+         {
+            network.add_comment("channel failed: " + e.toString());
+            network.on_link_failure((short)0);
+         }
+         catch(Exception e2)
+         { }
+      }
+      catch(Exception e)
+      { network.add_comment("input processing failed: " + e.toString()); }
+   } // on_readable
+
+
+   /**
+    * Specifies the size of the buffer used to read from the channels
+    */
+   private static final int read_buffer_size = 4096;
+
+
+   /**
+    * The selector that waits for input on the network channels
+    */
+   private Selector selector;
+
+
+   /**
+    * Keeps track of the selection key for each registered network
+    */
+   private Map<Network, SelectionKey> networks;
+
+
+   /**
+    * Used to read bytes from the channels.  This is shared by all of the
+    * networks because they are all serviced by the same thread.
+    */
+   private ByteBuffer read_buffer;
+
+
+   /**
+    * Specifies the time (as given by Timer.now()) at which each network next
+    * needs its state checked
+    */
+   private Map<Network, Long> due_times;
+
+
+   /**
+    * Orders the due times so that the earliest can be found without
+    * examining every network
+    */
+   private PriorityQueue<DueEntry> due_queue;
+
+
+   /**
+    * Used by select() to collect the networks that are due to be checked
+    */
+   private List<Network> due_networks;
+
+
+   /**
+    * Holds the networks that have had commands posted since select() last
+    * returned
+    */
+   private ConcurrentLinkedQueue<Network> woken;
+
+
+   /**
+    * Specifies the longest interval, in milli-seconds, between checks of a
+    * network's state
+    */
+   private int check_interval;
+
+
+   /**
+    * Specifies the longest time, in milli-seconds, that a write to a network
+    * channel can take
+    */
+   private int write_timeout;
+
+
+   /**
+    * Set to true when the run() loop should exit
+    */
+   private volatile boolean stopped;
+}
@@ -0,0 +1,135 @@
+/* OutboundQueue.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.*;
+
+
+/**
+ * Holds the messages that are waiting to be sent to a single neighbour.  The
+ * messages are kept in a separate first-in, first-out list for each priority
+ * level so that the oldest message with the highest priority can be found
+ * without searching.
+ */
+final class OutboundQueue
+{
+   /**
+    * Constructor
+    *
+    * @param neighbour_address_  Specifies the neighbour that will receive the
+    * messages in this queue.
+    */
+   public OutboundQueue(short neighbour_address_)
+   {
+      neighbour_address = neighbour_address_;
+      buckets = new ArrayList<LinkedList<Packet>>(priority_count);
+      for(int i = 0; i < priority_count; ++i)
+         buckets.add(new LinkedList<Packet>());
+      count = 0;
+   } // constructor
+
+
+   /**
+    * Adds the specified message to the end of the list for its priority.
+    *
+    * @param message  Specifies the message to add
+    */
+   public void add(Packet message)
+   {
+      buckets.get(message.priority & (priority_count - 1)).add(message);
+      ++count;
+   } // add
+
+
+   /**
+    * Removes and returns the message with the highest priority that has been
+    * waiting the longest.
+    *
+    * @return the message or null if the queue is empty
+    */
+   public Packet poll()
+   {
+      Packet rtn = null;
+      if(count > 0)
+      {
+         for(int i = priority_count - 1; rtn == null && i >= 0; --i)
+            rtn = buckets.get(i).poll();
+         --count;
+      }
+      return rtn;
+   } // poll
+
+
+   /**
+    * @return the number of messages in the queue
+    */
+   public int size()
+   { return count; }
+
+
+   /**
+    * Removes the messages that are addressed to the specified station
+    *
+    * @param dest_address  Specifies the address of the station
+    * @return the number of messages that were removed
+    */
+   public int remove_station(short dest_address)
+   {
+      int rtn = 0;
+      for(LinkedList<Packet> bucket: buckets)
+      {
+         Iterator<Packet> mi = bucket.iterator();
+         while(mi.hasNext())
+         {
+            if(mi.next().dest_address == dest_address)
+            {
+               mi.remove();
+               ++rtn;
+            }
+         }
+      }
+      count -= rtn;
+      return rtn;
+   } // remove_station
+
+
+   /**
+    * Removes all of the messages from the queue
+    */
+   public void clear()
+   {
+      for(LinkedList<Packet> bucket: buckets)
+         bucket.clear();
+      count = 0;
+   } // clear
+
+
+   /**
+    * Specifies the number of priority levels (pri_low through pri_extra_high)
+    */
+   private static final int priority_count = 4;
+
+
+   /**
+    * Specifies the neighbour address for the messages in this queue
+    */
+   final short neighbour_address;
+
+
+   /**
+    * Holds the list of messages for each priority
+    */
+   private List<LinkedList<Packet>> buckets;
+
+
+   /**
+    * Keeps track of the number of messages in all of the lists
+    */
+   private int count;
+}
@@ -35,10 +35,24 @@ public class Packet
    public byte capabilities;
    public byte sub_protocol;
 
-   // the following fields are used to keep the contents of the message.
+   // the following fields are used to keep the contents of the message.  The
+   // body occupies the range [storage_start, storage_len) of storage.  The
+   // start will only be non-zero when this packet is a view of a buffer that
+   // it does not own.
    private byte[] storage;
+   private int storage_start;
    private int storage_len;
    private int read_index;
+   private boolean is_view;
+
+   // specifies the smallest buffer that will be allocated for a message body
+   private static final int min_capacity = 32;
+
+   // the following fields are maintained by the PacketPool that created this
+   // packet (if any).  A packet can only be released to its own pool and only
+   // while it is not already held there.
+   PacketPool pool;
+   boolean in_pool;
 
    // defines the codes for various subprotocols
    public static final byte sub_control = 0;
@@ -126,7 +140,8 @@ public class Packet
       protocol_type = protocol_bmp5;
       message_type = 0;
       tran_no = 0;
-      read_index = storage_len = 0;
+      read_index = storage_len = storage_start = 0;
+      is_view = false;
       short_header = false;
       sub_protocol = sub_link_state;
    }
@@ -136,21 +151,42 @@ public class Packet
     * Appends the contents of the specified buffer to the message buffer.
     */
    public void add_bytes(byte[] buff, int buff_len)
+   { add_bytes(buff, 0, buff_len); }
+
+
+   /**
+    * Appends a range of the specified buffer to the message buffer.
+    *
+    * @param buff  Specifies the buffer to copy
+    * @param offset  Specifies the position of the first byte to copy
+    * @param len  Specifies the number of bytes to copy
+    */
+   public void add_bytes(
+      byte[] buff,
+      int offset,
+      int len)
    {
-      reserve(storage_len + buff.length);
-      for(int i = 0; i < buff_len; ++i)
-         storage[storage_len++] = buff[i];
+      reserve(storage_len + len);
+      System.arraycopy(buff, offset, storage, storage_len, len);
+      storage_len += len;
    } // add_bytes
 
 
    /**
     * Appends the specified byte to the message contents
     */
-   public void add_byte(Byte val)
+   public void add_byte(byte val)
    {
       reserve(storage_len + 1);
-      storage[storage_len++] = val.byteValue();
-   }
+      storage[storage_len++] = val;
+   } // add_byte
+
+
+   /**
+    * Appends the specified byte to the message contents
+    */
+   public void add_byte(Byte val)
+   { add_byte(val.byteValue()); }
 
 
    /**
@@ -162,28 +198,50 @@ public class Packet
    { add_byte(val ? (byte)0xff : (byte)0); }
 
 
+   /**
+    * Appends the two byte signed integer value to the message contents.
+    */
+   public void add_int2(short val)
+   { add_uint2(val); }
+
+
    /**
     * Appends the two byte signed integer value to the message contents.
     */
    public void add_int2(Short val)
+   { add_uint2(val.shortValue()); }
+
+   
+   /**
+    * Appends a two byte unsigned integer to the message.  Only the low order
+    * sixteen bits of the value are written.
+    */
+   public void add_uint2(int val)
    {
       reserve(storage_len + 2);
-      storage[storage_len++] = (byte)((val & 0xFF00) >> 8);
-      storage[storage_len++] = (byte)(val & 0x00FF);
-   } // add_short
+      storage[storage_len] = (byte)(val >> 8);
+      storage[storage_len + 1] = (byte)val;
+      storage_len += 2;
+   } // add_uint2
+
 
-   
    /**
     * Appends a two byte unsigned integer to the message
     */
    public void add_uint2(Integer val)
-   {
-      reserve(storage_len + 2);
-      storage[storage_len++] = (byte)((val & 0xFF00) >> 8);
-      storage[storage_len++] = (byte)(val & 0x00FF);
-   }
+   { add_uint2(val.intValue()); }
    
    
+   /**
+    * Appends the two byte signed integer to the message contents least significant byte
+    * first.
+    *
+    * @param val  Specifies the value to append
+    */
+   public void add_int2_lsf(short val)
+   { add_uint2_lsf(val); }
+
+
    /**
     * Appends the two byte signed integer to the message contents least significant byte
     * first.
@@ -191,48 +249,62 @@ public class Packet
     * @param val  Specifies the value to append
     */
    public void add_int2_lsf(Short val)
+   { add_uint2_lsf(val.shortValue()); }
+
+   
+   /**
+    * Appends a two byte unsigned integer in little endian format (least significant byte first) to the message.
+    */
+   public void add_uint2_lsf(int val)
    {
       reserve(storage_len + 2);
-      storage[storage_len++] = (byte)(val & 0x00FF);
-      storage[storage_len++] = (byte)((val & 0xFF00) >> 8);
-   } // add_short_lsf
+      storage[storage_len] = (byte)val;
+      storage[storage_len + 1] = (byte)(val >> 8);
+      storage_len += 2;
+   } // add_uint2_lsf
+
 
-   
    /**
     * Appends a two byte unsigned integer in little endian format (least significant byte first) to the message.
     */
    public void add_uint2_lsf(Integer val)
-   {
-      reserve(storage_len + 1);
-      storage[storage_len++] = (byte)(val & 0x00FF);
-      storage[storage_len++] = (byte)((val & 0xFF00) >> 8);
-   }
+   { add_uint2_lsf(val.intValue()); }
    
    
    /**
     * Appends a four byte signed integer to the message contents
     */
-   public void add_int4(Integer val)
+   public void add_int4(int val)
    {
       reserve(storage_len + 4);
-      storage[storage_len++] = (byte)((val & 0xFF000000) >> 24);
-      storage[storage_len++] = (byte)((val & 0x00FF0000) >> 16);
-      storage[storage_len++] = (byte)((val & 0x0000FF00) >> 8);
-      storage[storage_len++] = (byte) (val & 0x000000FF);
-   } // add_int
+      storage[storage_len] = (byte)(val >> 24);
+      storage[storage_len + 1] = (byte)(val >> 16);
+      storage[storage_len + 2] = (byte)(val >> 8);
+      storage[storage_len + 3] = (byte)val;
+      storage_len += 4;
+   } // add_int4
+
+
+   /**
+    * Appends a four byte signed integer to the message contents
+    */
+   public void add_int4(Integer val)
+   { add_int4(val.intValue()); }
    
    
+   /**
+    * Appends a four byte unsigned integer to the message in big endian format.
+    * Only the low order thirty-two bits of the value are written.
+    */
+   public void add_uint4(long val)
+   { add_int4((int)val); }
+
+
    /**
     * Appends a four byte unsigned integer to the message in big endian format
     */
    public void add_uint4(Long val)
-   {
-      reserve(storage_len + 4);
-      storage[storage_len++] = (byte)((val & 0xFF000000) >> 24);
-      storage[storage_len++] = (byte)((val & 0x00FF0000) >> 16);
-      storage[storage_len++] = (byte)((val & 0x0000FF00) >> 8);
-      storage[storage_len++] = (byte) (val & 0x000000FF);
-   }
+   { add_int4((int)val.longValue()); }
    
    
    /**
@@ -240,27 +312,38 @@ public class Packet
     * 
     *  @param val  Specifies the value to append
     */
-   public void add_int4_lsf(Integer val)
+   public void add_int4_lsf(int val)
    {
       reserve(storage_len + 4);
-      storage[storage_len++] = (byte) (val & 0x000000FF);
-      storage[storage_len++] = (byte)((val & 0x0000FF00) >> 8);
-      storage[storage_len++] = (byte)((val & 0x00FF0000) >> 16);
-      storage[storage_len++] = (byte)((val & 0xFF000000) >> 24);
-   } // add_int_lsf
+      storage[storage_len] = (byte)val;
+      storage[storage_len + 1] = (byte)(val >> 8);
+      storage[storage_len + 2] = (byte)(val >> 16);
+      storage[storage_len + 3] = (byte)(val >> 24);
+      storage_len += 4;
+   } // add_int4_lsf
+
+
+   /**
+    * Appends a four byte signed integer to the message contents with the least significant byte written first.
+    * 
+    *  @param val  Specifies the value to append
+    */
+   public void add_int4_lsf(Integer val)
+   { add_int4_lsf(val.intValue()); }
 
    
+   /**
+    * Appends a four byte unsigned integer to the message in little endian format (least significant byte first)
+    */
+   public void add_uint4_lsf(long val)
+   { add_int4_lsf((int)val); }
+
+
    /**
     * Appends a four byte unsigned integer to the message in little endian format (least significant byte first)
     */
    public void add_uint4_lsf(Long val)
-   {
-      reserve(storage_len + 4);
-      storage[storage_len++] = (byte) (val & 0x000000FF);
-      storage[storage_len++] = (byte)((val & 0x0000FF00) >> 8);
-      storage[storage_len++] = (byte)((val & 0x00FF0000) >> 16);
-      storage[storage_len++] = (byte)((val & 0xFF000000) >> 24);
-   }
+   { add_int4_lsf((int)val.longValue()); }
    
    
    /**
@@ -280,11 +363,18 @@ public class Packet
    } // add_string
    
    
+   /**
+    * Appends a four byte floating point value to the message
+    */
+   public void add_float(float val)
+   { add_int4(Float.floatToIntBits(val)); }
+
+
    /**
     * Appends a four byte floating point value to the message
     */
    public void add_float(Float val)
-   { add_int4(Float.floatToIntBits(val.floatValue())); }
+   { add_float(val.floatValue()); }
 
 
    /**
@@ -328,11 +418,8 @@ public class Packet
     */
    public byte[] read_bytes(int len) throws Exception
    {
-      if(read_index + len > storage_len)
-         throw new Exception("Attempt to read past the message end");
       byte[] rtn = new byte[len];
-      for(int i = 0; i < len; ++i)
-         rtn[i] = storage[read_index++];
+      read_bytes(rtn, 0, len);
       return rtn;
    } // read_bytes
    
@@ -346,13 +433,28 @@ public class Packet
       int rtn = buff_len;
       if(buff.length < buff_len)
          rtn = buff.length;
-      if(read_index + rtn > storage_len)
-         throw new Exception("Attempt to read past the message end");
-      for(int i = 0; i < rtn; ++i)
-         buff[i] = storage[read_index + i];
-      read_index += rtn;
+      read_bytes(buff, 0, rtn);
       return rtn;
    }
+
+
+   /**
+    * Reads the specified number of bytes into a range of the provided buffer.
+    *
+    * @param buff  Specifies the buffer that will receive the bytes
+    * @param offset  Specifies the position in buff for the first byte
+    * @param len  Specifies the number of bytes to read
+    */
+   public void read_bytes(
+      byte[] buff,
+      int offset,
+      int len) throws Exception
+   {
+      if(read_index + len > storage_len)
+         throw new Exception("Attempt to read past the message end");
+      System.arraycopy(storage, read_index, buff, offset, len);
+      read_index += len;
+   } // read_bytes
    
    
    /**
@@ -477,7 +579,7 @@ public class Packet
       int b3 = storage[read_index + 2];
       int b4 = storage[read_index + 3];
       long rtn =
-         ((b1 & 0xff) << 24) |
+         ((long)(b1 & 0xff) << 24) |
          ((b2 & 0xff) << 16) |
          ((b3 & 0xff) << 8) |
          (b4 & 0xff);
@@ -514,12 +616,12 @@ public class Packet
    {
       if(read_index + 4 > storage_len)
          throw new Exception("Attempt to read past the message end");
-      int b1 = storage[storage_len + 3];
-      int b2 = storage[storage_len + 2];
-      int b3 = storage[storage_len + 1];
-      int b4 = storage[storage_len];
+      int b1 = storage[read_index + 3];
+      int b2 = storage[read_index + 2];
+      int b3 = storage[read_index + 1];
+      int b4 = storage[read_index];
       long rtn =
-         ((b1 & 0xff) << 24) |
+         ((long)(b1 & 0xff) << 24) |
          ((b2 & 0xff) << 16) |
          ((b3 & 0xff) << 8) |
          (b4 & 0xff);
@@ -552,17 +654,54 @@ public class Packet
 
 
    /**
-    * Reads a null terminated string from the message body
+    * Reads a null terminated string from the message body.  The string is
+    * expected to be encoded as UTF-8.
     */
    public String read_string()
+   { return read_string(null); }
+
+
+   /**
+    * Reads a null terminated string from the message body and, if an interner
+    * is specified, returns the shared copy of that string.
+    *
+    * @param interner  Specifies the table of shared strings.  If null, a new
+    * string will be returned.
+    * @return the string that was read
+    */
+   public String read_string(StringInterner interner)
    {
-      String rtn = new String();
-      while(storage[read_index] != 0 && read_index < storage_len)
-         rtn += (char)storage[read_index++];
-      if(read_index < storage_len && storage[read_index] == 0)
-         ++read_index;
+      // find the terminator and then convert the whole span at once
+      int start = read_index;
+      int end = start;
+      while(end < storage_len && storage[end] != 0)
+         ++end;
+      read_index = (end < storage_len ? end + 1 : end);
+
+      String rtn;
+      if(interner != null)
+         rtn = interner.intern(storage, start, end - start);
+      else
+         rtn = Utils.decode_string(storage, start, end - start);
       return rtn;
    } // read_string
+
+
+   /**
+    * Moves the read pointer past a null terminated string without decoding
+    * it.
+    *
+    * @return the number of bytes in the string (not counting the terminator)
+    */
+   public int skip_string()
+   {
+      int start = read_index;
+      int end = start;
+      while(end < storage_len && storage[end] != 0)
+         ++end;
+      read_index = (end < storage_len ? end + 1 : end);
+      return end - start;
+   } // skip_string
    
 
    /**
@@ -612,7 +751,7 @@ public class Packet
     * Resets the read index to the beginning of the message content.
     */
    public void reset()
-   { read_index = 0; }
+   { read_index = storage_start; }
 
 
    /**
@@ -627,7 +766,14 @@ public class Packet
     *  Clears the message for both reading and writing.
     */
    public void clear()
-   { storage_len = read_index = 0; }
+   {
+      if(is_view)
+      {
+         storage = null;
+         is_view = false;
+      }
+      storage_len = read_index = storage_start = 0;
+   } // clear
 
 
    /**
@@ -636,7 +782,7 @@ public class Packet
     * @return The current value of read_index
     */
    public int get_read_index()
-   { return read_index; }
+   { return read_index - storage_start; }
 
 
    /**
@@ -649,17 +795,55 @@ public class Packet
     */
    public byte[] get_fragment(int start_pos, int end_pos) throws Exception
    {
+      int body_len = storage_len - storage_start;
       if(start_pos > end_pos ||
-         start_pos >= storage_len ||
-         end_pos >= storage_len ||
+         start_pos >= body_len ||
+         end_pos >= body_len ||
          start_pos < 0 ||
          end_pos < 0)
          throw new Exception("invalid fragment position pointers");
       byte[] rtn = new byte[end_pos - start_pos + 1];
-      for(int i = start_pos; i < end_pos; ++i)
-         rtn[i - start_pos] = storage[i];
+      System.arraycopy(storage, storage_start + start_pos, rtn, 0, end_pos - start_pos);
       return rtn;
    } // get_fragment
+   
+   
+   /**
+    * Calculates the signature of a portion of the message without copying it.
+    * 
+    * @param start_pos  Specifies the position of the first byte
+    * @param end_pos    Specifies the position following the last byte
+    * @return the signature of the bytes in the range
+    */
+   public int calc_fragment_sig(int start_pos, int end_pos) throws Exception
+   {
+      if(start_pos > end_pos ||
+         start_pos < 0 ||
+         end_pos > storage_len - storage_start)
+         throw new Exception("invalid fragment position pointers");
+      return Utils.calc_sig(storage, storage_start + start_pos, end_pos - start_pos, 0xAAAA);
+   } // calc_fragment_sig
+
+
+   /**
+    * Creates a packet whose body is a view of a portion of this packet's
+    * body.  The new packet has its own read position but shares the bytes so
+    * it will only be valid for as long as this packet's body is left alone.
+    *
+    * @param start_pos  Specifies the position of the first byte
+    * @param end_pos    Specifies the position following the last byte
+    * @return the new packet
+    */
+   public Packet view_fragment(int start_pos, int end_pos) throws Exception
+   {
+      if(start_pos > end_pos ||
+         start_pos < 0 ||
+         end_pos > storage_len - storage_start)
+         throw new Exception("invalid fragment position pointers");
+      Packet rtn = new Packet();
+      rtn.set_body(storage, storage_start + start_pos, storage_start + end_pos, true);
+      return rtn;
+   } // view_fragment
 
 
    /**
@@ -670,11 +854,41 @@ public class Packet
    public void read_serial_packet(
       byte[] buff,
       int buff_len) throws Exception
+   { read_serial_packet(buff, 0, buff_len, false); }
+
+
+   /**
+    * Initialises this packet as a view of a SerialPacket that has been
+    * unquoted into the specified buffer.  The message body will not be copied
+    * so this packet will only be valid for as long as the buffer contents are
+    * left alone.  If the packet must be kept beyond that, {@link #detach()}
+    * must be called.
+    *
+    * @param buff  Specifies the buffer that holds the packet
+    * @param offset  Specifies the position of the packet in the buffer
+    * @param buff_len  Specifies the length of the packet excluding the
+    * signature nullifier.
+    */
+   public void view_serial_packet(
+      byte[] buff,
+      int offset,
+      int buff_len) throws Exception
+   { read_serial_packet(buff, offset, buff_len, true); }
+
+
+   /**
+    * Implements both read_serial_packet() and view_serial_packet()
+    */
+   private void read_serial_packet(
+      byte[] buff,
+      int offset,
+      int buff_len,
+      boolean view) throws Exception
    {
       // we assume that the framing (signature and synch bytes have already
       // been stripped and that the dequoting process has already been
       // applied.
-      if(buff.length < buff_len)
+      if(buff.length < offset + buff_len)
          throw new Exception("Invalid buffer size");
       if(buff_len >= 8)
          short_header = false;
@@ -685,41 +899,35 @@ public class Packet
 
       // we will now decode the header fields based upon serial packet positions
       sub_protocol = sub_link_state;
-      link_state = (byte)((buff[0] & 0xf0) >> 4);
-      neighbour_dest_address = (short)(((buff[0] & 0x0f) << 8) | (buff[1] & 0xff));
-      expect_more_code = (byte)((buff[2] & 0xc0) >> 6);
-      priority = (byte)((buff[2] & 0x30) >> 4);
-      neighbour_source_address = (short)(((buff[2] & 0x0f) << 8) | (buff[3] & 0xff));
+      link_state = (byte)((buff[offset] & 0xf0) >> 4);
+      neighbour_dest_address = (short)(((buff[offset] & 0x0f) << 8) | (buff[offset + 1] & 0xff));
+      expect_more_code = (byte)((buff[offset + 2] & 0xc0) >> 6);
+      priority = (byte)((buff[offset + 2] & 0x30) >> 4);
+      neighbour_source_address = (short)(((buff[offset + 2] & 0x0f) << 8) | (buff[offset + 3] & 0xff));
       if(!short_header)
       {
          // read the rest of the header parameters (we will ignore hop count)
-         protocol_type = (byte)((buff[4] & 0xf0) >> 4);
-         dest_address = (short)(((buff[4] & 0x0f) << 8) | (buff[5] & 0xff));
-         source_address = (short)(((buff[6] & 0x0f) << 8) | (buff[7] & 0xff));
+         protocol_type = (byte)((buff[offset + 4] & 0xf0) >> 4);
+         dest_address = (short)(((buff[offset + 4] & 0x0f) << 8) | (buff[offset + 5] & 0xff));
+         source_address = (short)(((buff[offset + 6] & 0x0f) << 8) | (buff[offset + 7] & 0xff));
          
          // if there are enough bytes left, we will initialise the transaction
          // number, message types and message body fields.
          if(buff_len >= 10)
          {
-            message_type = (short)(buff[8] & 0xff);
-            tran_no = (short)(buff[9] & 0xff);
-            storage_len = buff_len - 10;
-            if(storage == null || storage.length < storage_len)
-               storage = new byte[storage_len];
-            for(int i = 10; i < buff_len; ++i)
-               storage[i - 10] = buff[i];
+            message_type = (short)(buff[offset + 8] & 0xff);
+            tran_no = (short)(buff[offset + 9] & 0xff);
+            set_body(buff, offset + 10, offset + buff_len, view);
          }
          else
          {
             message_type = tran_no = 0;
-            storage_len = 0;
-            read_index = 0;
+            set_body(buff, offset, offset, view);
          }
       }
       else
       {
-         storage_len = 0;
-         read_index = 0;
+         set_body(buff, offset, offset, view);
          dest_address = neighbour_dest_address;
          source_address = neighbour_source_address;
          priority = pri_normal;
@@ -739,13 +947,41 @@ public class Packet
    public void read_control_packet(
       byte[] buff,
       int buff_len) throws Exception
+   { read_control_packet(buff, 0, buff_len, false); }
+
+
+   /**
+    * Initialises this packet as a view of a control message that has been
+    * unquoted into the specified buffer.  Any message body will not be copied
+    * and {@link #detach()} must be called if the packet is to be kept.
+    *
+    * @param buff  Specifies the buffer that holds the packet
+    * @param offset  Specifies the position of the packet in the buffer
+    * @param buff_len  Specifies the length of the packet excluding the
+    * signature nullifier.
+    */
+   public void view_control_packet(
+      byte[] buff,
+      int offset,
+      int buff_len) throws Exception
+   { read_control_packet(buff, offset, buff_len, true); }
+
+
+   /**
+    * Implements both read_control_packet() and view_control_packet()
+    */
+   private void read_control_packet(
+      byte[] buff,
+      int offset,
+      int buff_len,
+      boolean view) throws Exception
    {
       // this format is mostly similar to that used for the serial packet.  the major difference is
       // in the interpretation of the control_type and the capabilities field.
-      read_serial_packet(buff,buff_len);
+      read_serial_packet(buff, offset, buff_len, view);
       sub_protocol = sub_control;
-      control_type = (byte)((buff[0] & 0xf0) >> 4);
-      capabilities = (byte)((buff[2] & 0xf0) >> 4);
+      control_type = (byte)((buff[offset] & 0xf0) >> 4);
+      capabilities = (byte)((buff[offset + 2] & 0xf0) >> 4);
    } // read_control_packet
 
 
@@ -767,9 +1003,7 @@ public class Packet
       sub_protocol = sub_devconfig;
       message_type = buff[1];
       tran_no = buff[2];
-      storage_len = buff_len - 3;
-      for(int i = 0; i < storage_len; ++i)
-         storage[i] = buff[i + 3];
+      set_body(buff, 3, buff_len, false);
    } // read_devconfig_packet
 
 
@@ -785,6 +1019,35 @@ public class Packet
    public void read_unquoted_packet(
       byte[] buff,
       int buff_len) throws Exception
+   { read_unquoted_packet(buff, 0, buff_len, false); }
+
+
+   /**
+    * Initialises this packet as a view of an unquoted packet in the specified
+    * buffer.  The message body will not be copied so this packet will only be
+    * valid for as long as the buffer contents are left alone.  If the packet
+    * must be kept beyond that, {@link #detach()} must be called.
+    *
+    * @param buff  Specifies the buffer that holds the packet following the
+    * msgDataLen field.
+    * @param offset  Specifies the position of the packet in the buffer
+    * @param buff_len  Specifies the number of bytes that are available.
+    */
+   public void view_unquoted_packet(
+      byte[] buff,
+      int offset,
+      int buff_len) throws Exception
+   { read_unquoted_packet(buff, offset, buff_len, true); }
+
+
+   /**
+    * Implements both read_unquoted_packet() and view_unquoted_packet()
+    */
+   private void read_unquoted_packet(
+      byte[] buff,
+      int offset,
+      int buff_len,
+      boolean view) throws Exception
    {
       // it turns out that this format is almost exactly the same as the serial
       // packet format with the exception that the link state parameter is
@@ -794,30 +1057,148 @@ public class Packet
       
       sub_protocol = sub_unquoted;
       link_state = link_ready;
-      neighbour_dest_address = (short)(((buff[0] & 0x0f) << 8) | (buff[1] & 0xff));
-      expect_more_code = (byte)((buff[2] & 0xc0) >> 6);
-      priority = (byte)((buff[2] & 0x30) >> 4);
-      neighbour_source_address = (short)(((buff[2] & 0x0f) << 8) | (buff[3] & 0xff));
-      protocol_type = (byte)((buff[4] & 0xf0) >> 4);
-      dest_address = (short)(((buff[4] & 0x0f) << 8) | (buff[5] & 0xff));
-      source_address = (short)(((buff[6] & 0x0f) << 8) | (buff[7] & 0xff));
+      neighbour_dest_address = (short)(((buff[offset] & 0x0f) << 8) | (buff[offset + 1] & 0xff));
+      expect_more_code = (byte)((buff[offset + 2] & 0xc0) >> 6);
+      priority = (byte)((buff[offset + 2] & 0x30) >> 4);
+      neighbour_source_address = (short)(((buff[offset + 2] & 0x0f) << 8) | (buff[offset + 3] & 0xff));
+      protocol_type = (byte)((buff[offset + 4] & 0xf0) >> 4);
+      dest_address = (short)(((buff[offset + 4] & 0x0f) << 8) | (buff[offset + 5] & 0xff));
+      source_address = (short)(((buff[offset + 6] & 0x0f) << 8) | (buff[offset + 7] & 0xff));
       if(buff_len >= 10)
       {
-         message_type = (short)(buff[8] & 0xff);
-         tran_no = (short)(buff[9] & 0xff);
-         storage_len = buff_len - 10;
-         if(storage == null || storage_len < storage_len)
-            storage = new byte[storage_len];
-         for(int i = 10; i < buff_len; ++i)
-            storage[i - 10] = buff[i];
+         message_type = (short)(buff[offset + 8] & 0xff);
+         tran_no = (short)(buff[offset + 9] & 0xff);
+         set_body(buff, offset + 10, offset + buff_len, view);
       }
       else
       {
          message_type = tran_no = 0;
-         read_index = 0;
-         storage_len = 0;
+         set_body(buff, offset, offset, view);
       }
    } // read_unquoted_format
+
+
+   /**
+    * @return true if this packet is a view of a buffer that it does not own
+    */
+   public boolean get_is_view()
+   { return is_view; }
+
+
+   /**
+    * Makes this packet independent of the buffer that it views by copying the
+    * message body into storage owned by this packet.  This method has no
+    * effect if this packet is not a view.
+    */
+   public void detach()
+   {
+      if(is_view)
+      {
+         int len = storage_len - storage_start;
+         byte[] temp = new byte[len];
+         System.arraycopy(storage, storage_start, temp, 0, len);
+         read_index -= storage_start;
+         storage = temp;
+         storage_start = 0;
+         storage_len = len;
+         is_view = false;
+      }
+   } // detach
+
+
+   /**
+    * Returns this packet to the state of a newly constructed packet so that it
+    * can be reused.  Any body buffer owned by the packet is kept.
+    */
+   void recycle()
+   {
+      clear();
+      source_address = dest_address = 0;
+      neighbour_source_address = neighbour_dest_address = 0;
+      priority = expect_more_code = 0;
+      protocol_type = protocol_bmp5;
+      message_type = tran_no = 0;
+      link_state = control_type = capabilities = 0;
+      short_header = false;
+      sub_protocol = sub_link_state;
+   } // recycle
+
+
+   /**
+    * @return the size of the body buffer owned by this packet or zero if it
+    * does not own one
+    */
+   int get_storage_capacity()
+   { return (is_view || storage == null ? 0 : storage.length); }
+
+
+   /**
+    * @return the buffer that holds the message body.  This allows the unread
+    * bytes to be decoded in place starting at get_storage_pos().
+    */
+   byte[] get_storage()
+   { return storage; }
+
+
+   /**
+    * @return the position in the buffer returned by get_storage() of the next
+    * byte to be read
+    */
+   int get_storage_pos()
+   { return read_index; }
+
+
+   /**
+    * Appends the unread portion of the specified packet's body to this
+    * packet's body without any intermediate copies.  The read position of the
+    * source packet will be moved past the bytes that were copied.
+    *
+    * @param source  Specifies the packet to read
+    * @param len  Specifies the number of bytes to copy
+    */
+   public void add_bytes(
+      Packet source,
+      int len) throws Exception
+   {
+      if(source.read_index + len > source.storage_len)
+         throw new Exception("Attempt to read past the message end");
+      reserve(storage_len + len);
+      System.arraycopy(source.storage, source.read_index, storage, storage_len, len);
+      storage_len += len;
+      source.read_index += len;
+   } // add_bytes
+
+
+   /**
+    * Sets the message body to the range [start, end) of the specified buffer
+    * either by copying it or by referring to it.
+    */
+   private void set_body(
+      byte[] buff,
+      int start,
+      int end,
+      boolean view)
+   {
+      if(view)
+      {
+         storage = buff;
+         storage_start = start;
+         storage_len = end;
+         is_view = true;
+      }
+      else
+      {
+         int len = end - start;
+         if(is_view || storage == null || storage.length < len)
+            storage = new byte[len];
+         if(len > 0)
+            System.arraycopy(buff, start, storage, 0, len);
+         storage_start = 0;
+         storage_len = len;
+         is_view = false;
+      }
+      read_index = storage_start;
+   } // set_body
    
 
 
@@ -827,44 +1208,72 @@ public class Packet
     */
    public byte[] write_serial_packet()
    {
-      byte[] rtn = null;
+      byte[] rtn = new byte[get_serial_packet_len()];
+      write_serial_packet(rtn, 0);
+      return rtn;
+   } // write_serial_packet
+   
+   
+   /**
+    * @return the number of bytes that will be written by write_serial_packet()
+    */
+   public int get_serial_packet_len()
+   {
+      int rtn = 4;
       if(!short_header)
       {
          if(message_type != 0)
-            rtn = new byte[storage_len + 10];
+            rtn = storage_len - storage_start + 10;
          else
-            rtn = new byte[8];
+            rtn = 8;
       }
-      else
-         rtn = new byte[4];
-      rtn[0] = (byte)((link_state << 4) |
-                      ((neighbour_dest_address & 0x0F00) >> 8));
-      rtn[1] = (byte)(neighbour_dest_address & 0x00FF);
+      return rtn;
+   } // get_serial_packet_len
+   
+   
+   /**
+    * Writes this packet laid out according to the serial packet protocol into
+    * the specified buffer.
+    *
+    * @param buff    Specifies the buffer that will receive the packet.  This
+    * must have room for get_serial_packet_len() bytes following the offset.
+    * @param offset  Specifies the position in the buffer at which the packet
+    * will be written.
+    * @return the number of bytes that were written
+    */
+   public int write_serial_packet(
+      byte[] buff,
+      int offset)
+   {
+      int rtn = get_serial_packet_len();
+      buff[offset] = (byte)((link_state << 4) |
+                            ((neighbour_dest_address & 0x0F00) >> 8));
+      buff[offset + 1] = (byte)(neighbour_dest_address & 0x00FF);
       if(link_state != link_ring)
       {
-         rtn[2] = (byte)((expect_more_code << 6) |
-                         (priority << 4) |
-                         ((neighbour_source_address & 0x0F00) >> 8));
+         buff[offset + 2] = (byte)((expect_more_code << 6) |
+                                   (priority << 4) |
+                                   ((neighbour_source_address & 0x0F00) >> 8));
       }
       else
       {
-         rtn[2] = (byte)((capabilities << 4) |
-                         ((neighbour_source_address & 0x0f00) >> 8));
+         buff[offset + 2] = (byte)((capabilities << 4) |
+                                   ((neighbour_source_address & 0x0f00) >> 8));
       }
-      rtn[3] = (byte)(neighbour_source_address & 0x00FF);
+      buff[offset + 3] = (byte)(neighbour_source_address & 0x00FF);
       if(!short_header)
       {
-         rtn[4] = (byte)((protocol_type << 4) |
-                         ((dest_address & 0x0F00) >> 8));
-         rtn[5] = (byte)(dest_address & 0x00FF);
-         rtn[6] = (byte)((source_address & 0x0F00) >> 8);
-         rtn[7] = (byte)(source_address & 0x00FF);
+         buff[offset + 4] = (byte)((protocol_type << 4) |
+                                   ((dest_address & 0x0F00) >> 8));
+         buff[offset + 5] = (byte)(dest_address & 0x00FF);
+         buff[offset + 6] = (byte)((source_address & 0x0F00) >> 8);
+         buff[offset + 7] = (byte)(source_address & 0x00FF);
          if(message_type != 0)
          {
-            rtn[8] = (byte)(message_type & 0xff);
-            rtn[9] = (byte)(tran_no & 0xff);
-            for(int i = 0; i < storage_len; ++i)
-               rtn[10 + i] = storage[i];
+            buff[offset + 8] = (byte)(message_type & 0xff);
+            buff[offset + 9] = (byte)(tran_no & 0xff);
+            if(storage_len > storage_start)
+               System.arraycopy(storage, storage_start, buff, offset + 10, storage_len - storage_start);
          }
       }
       return rtn;
@@ -879,42 +1288,67 @@ public class Packet
     */
    public byte[] write_unquoted_packet()
    {
-      byte[] rtn = null;
-      if(short_header)
-      {
-         rtn = new byte[6];
-         rtn[0] = 0;
-         rtn[1] = 4;
-      }
-      else
+      byte[] rtn = new byte[get_unquoted_packet_len()];
+      write_unquoted_packet(rtn, 0);
+      return rtn;
+   } // write_unquoted_packet
+   
+   
+   /**
+    * @return the number of bytes, including the length field, that will be
+    * written by write_unquoted_packet()
+    */
+   public int get_unquoted_packet_len()
+   {
+      int rtn = 6;
+      if(!short_header)
       {
-         int packet_len = 10 + storage_len;
-
-         if(message_type == 0)
-            packet_len = 8;
-         rtn = new byte[packet_len + 2];
-         rtn[0] = (byte)((packet_len & 0xff00) >> 8);
-         rtn[1] = (byte)(packet_len & 0x00ff);
+         if(message_type != 0)
+            rtn = 12 + storage_len - storage_start;
+         else
+            rtn = 10;
       }
-      rtn[2] = (byte)((neighbour_dest_address & 0x0f00) >> 8);
-      rtn[3] = (byte)(neighbour_dest_address & 0x00ff);
-      rtn[4] = (byte)((expect_more_code << 6) |
-                      (byte)(priority << 4) |
-                      (byte)((neighbour_source_address & 0x0f00) >> 8));
-      rtn[5] = (byte)(neighbour_source_address & 0x00ff);
+      return rtn;
+   } // get_unquoted_packet_len
+   
+   
+   /**
+    * Writes the contents of this packet as an unquoted packet, including the
+    * packet length, into the specified buffer.
+    *
+    * @param buff    Specifies the buffer that will receive the packet.  This
+    * must have room for get_unquoted_packet_len() bytes following the offset.
+    * @param offset  Specifies the position in the buffer at which the packet
+    * will be written.
+    * @return the number of bytes that were written
+    */
+   public int write_unquoted_packet(
+      byte[] buff,
+      int offset)
+   {
+      int rtn = get_unquoted_packet_len();
+      int packet_len = rtn - 2;
+      buff[offset] = (byte)((packet_len & 0xff00) >> 8);
+      buff[offset + 1] = (byte)(packet_len & 0x00ff);
+      buff[offset + 2] = (byte)((neighbour_dest_address & 0x0f00) >> 8);
+      buff[offset + 3] = (byte)(neighbour_dest_address & 0x00ff);
+      buff[offset + 4] = (byte)((expect_more_code << 6) |
+                                (byte)(priority << 4) |
+                                (byte)((neighbour_source_address & 0x0f00) >> 8));
+      buff[offset + 5] = (byte)(neighbour_source_address & 0x00ff);
       if(!short_header)
       {
-         rtn[6] = (byte)((protocol_type << 4) |
-                         (byte)((dest_address & 0x0F00) >> 8));
-         rtn[7] = (byte)(dest_address & 0x00FF);
-         rtn[8] = (byte)((source_address & 0x0F00) >> 8);
-         rtn[9] = (byte)(source_address & 0x00FF);
+         buff[offset + 6] = (byte)((protocol_type << 4) |
+                                   (byte)((dest_address & 0x0F00) >> 8));
+         buff[offset + 7] = (byte)(dest_address & 0x00FF);
+         buff[offset + 8] = (byte)((source_address & 0x0F00) >> 8);
+         buff[offset + 9] = (byte)(source_address & 0x00FF);
          if(message_type != 0)
          {
-            rtn[10] = (byte)(message_type & 0xff);
-            rtn[11] = (byte)(tran_no & 0xff);
-            for(int i = 0; i < storage_len; ++i)
-               rtn[12 + i] = storage[i];
+            buff[offset + 10] = (byte)(message_type & 0xff);
+            buff[offset + 11] = (byte)(tran_no & 0xff);
+            if(storage_len > storage_start)
+               System.arraycopy(storage, storage_start, buff, offset + 12, storage_len - storage_start);
          }
       }
       return rtn;
@@ -961,17 +1395,24 @@ public class Packet
     */
    protected void reserve(int len)
    {
+      // a view cannot be written so it must first get its own copy of the
+      // body.  The required length is reduced by the offset that is removed.
+      if(is_view)
+      {
+         len -= storage_start;
+         detach();
+      }
+      
       // we need to check to make sure that the buffer has the capacity for the specified
       // length.  If it does not, we will re-allocate it so that it does.
       if(storage == null)
-         storage = new byte[len];
+         storage = new byte[Math.max(len, min_capacity)];
       else if(storage.length < len)
       {
          // we don't have enough capacity.  To prevent re-allocation each time, we will double the
-         // requested amount.
-         byte[] temp = new byte[len * 2];
-         for(int i = 0; i < storage.length; ++i)
-            temp[i] = storage[i];
+         // current capacity (or more if that is not enough).
+         byte[] temp = new byte[Math.max(len, storage.length * 2)];
+         System.arraycopy(storage, 0, temp, 0, storage_len);
          storage = temp;
       }
    } // reserve 
@@ -0,0 +1,199 @@
+/* PacketPool.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.ArrayList;
+
+
+/**
+ * <p>Defines a bounded pool of packet objects that can be reused for frames
+ * that are received, for link control frames, and for command messages.  Two
+ * lists of free packets are kept: those that own a body buffer (suited to
+ * messages that will be written to) and those that do not (suited to views of
+ * the decoder's buffer and to frames that carry only a header).  This keeps
+ * the body buffers of command messages from being dropped when a packet is
+ * used as a view.</p>
+ *
+ * <p>The pool does no locking.  It must only be used by the thread that
+ * services the network while that thread holds the network's lock.  A packet
+ * can only be released to the pool that created it and releasing a packet
+ * that is already in the pool has no effect.  Packets that are not released
+ * are simply left for the garbage collector.</p>
+ */
+final class PacketPool
+{
+   /**
+    * Constructor
+    *
+    * @param capacity_  Specifies the maximum number of packets that will be
+    * kept in each of the free lists.
+    */
+   public PacketPool(int capacity_)
+   {
+      if(capacity_ <= 0)
+         throw new IllegalArgumentException("the capacity must be positive");
+      capacity = capacity_;
+      with_body = new ArrayList<Packet>(capacity);
+      without_body = new ArrayList<Packet>(capacity);
+      allocated_count = 0;
+      reused_count = 0;
+   } // constructor
+
+
+   /**
+    * Returns a packet that will be used to build a message.  A packet that
+    * already owns a body buffer will be preferred.
+    *
+    * @return a packet in the same state as one that has just been constructed
+    */
+   public Packet acquire()
+   {
+      Packet rtn = take(with_body);
+      if(rtn == null)
+         rtn = take(without_body);
+      if(rtn == null)
+         rtn = allocate();
+      return rtn;
+   } // acquire
+
+
+   /**
+    * Returns a packet that will be used as a view or that will carry only a
+    * header.  A packet that does not own a body buffer will be preferred.
+    *
+    * @return a packet in the same state as one that has just been constructed
+    */
+   public Packet acquire_empty()
+   {
+      Packet rtn = take(without_body);
+      if(rtn == null)
+         rtn = allocate();
+      return rtn;
+   } // acquire_empty
+
+
+   /**
+    * Returns the specified packet to the pool.  The packet will be ignored if
+    * it was not created by this pool, if it is already in the pool, if the
+    * appropriate list is full, or if its body buffer has grown too large to be
+    * worth keeping.
+    *
+    * @param packet  Specifies the packet to release.  The caller must not use
+    * the packet after this call.
+    */
+   public void release(Packet packet)
+   {
+      if(packet != null && packet.pool == this && !packet.in_pool)
+      {
+         packet.recycle();
+         int storage_capacity = packet.get_storage_capacity();
+         if(storage_capacity == 0)
+         {
+            if(without_body.size() < capacity)
+            {
+               packet.in_pool = true;
+               without_body.add(packet);
+            }
+         }
+         else if(storage_capacity <= max_body_size && with_body.size() < capacity)
+         {
+            packet.in_pool = true;
+            with_body.add(packet);
+         }
+      }
+   } // release
+
+
+   /**
+    * @return the total number of packets that this pool has had to allocate
+    */
+   public long get_allocated_count()
+   { return allocated_count; }
+
+
+   /**
+    * @return the total number of requests that have been satisfied by reusing
+    * a packet
+    */
+   public long get_reused_count()
+   { return reused_count; }
+
+
+   /**
+    * @return the number of packets that are currently waiting to be reused
+    */
+   public int get_free_count()
+   { return with_body.size() + without_body.size(); }
+
+
+   /**
+    * Removes the most recently released packet from the specified list
+    */
+   private Packet take(ArrayList<Packet> list)
+   {
+      Packet rtn = null;
+      int size = list.size();
+      if(size > 0)
+      {
+         rtn = list.remove(size - 1);
+         rtn.in_pool = false;
+         ++reused_count;
+      }
+      return rtn;
+   } // take
+
+
+   /**
+    * Creates a new packet owned by this pool
+    */
+   private Packet allocate()
+   {
+      Packet rtn = new Packet();
+      rtn.pool = this;
+      ++allocated_count;
+      return rtn;
+   } // allocate
+
+
+   /**
+    * Specifies the largest body buffer that will be kept in the pool.  This is
+    * enough for the largest PakBus message.
+    */
+   private static final int max_body_size = 2048;
+
+
+   /**
+    * Specifies the maximum number of packets kept in each list
+    */
+   private final int capacity;
+
+
+   /**
+    * Holds the free packets that own a body buffer
+    */
+   private final ArrayList<Packet> with_body;
+
+
+   /**
+    * Holds the free packets that do not own a body buffer
+    */
+   private final ArrayList<Packet> without_body;
+
+
+   /**
+    * Keeps track of the number of packets that have been allocated
+    */
+   private long allocated_count;
+
+
+   /**
+    * Keeps track of the number of packets that have been reused
+    */
+   private long reused_count;
+}
@@ -29,24 +29,12 @@ public class Record implements Cloneable
     */
    public Record(TableDef table_def_)
    {
-      // initialise the class members
+      // initialise the class members.  The value objects will not be created
+      // until they are first needed so that a record that is only read through
+      // a RecordCursor will not need them.
       table_def = table_def_;
-      values = new Vector<ValueBase>(table_def.get_values_count());
+      values = null;
       storage = new byte[table_def.get_record_size()];
-      
-      // we must now create the values and allocate them pieces of the storage buffer
-      int storage_offset = 0;
-      ValueFactory factory = table_def.station.value_factory;
-      
-      for(ColumnDef column: table_def.columns)
-      {
-         for(int i = 0; i < column.get_values_count(); ++i)
-         {
-            ValueBase value = factory.make_value(column, column.begin_index + i);
-            storage_offset += value.assign_record_buff(storage, storage_offset);
-            values.add(value);
-         }
-      }
    } // constructor
    
    
@@ -65,10 +53,28 @@ public class Record implements Cloneable
    
    
    /**
-    * @return the record time stamp
+    * @return the record time stamp.  This object is created when it is first
+    * asked for.
     */
    public LoggerDate get_time_stamp()
-   { return time_stamp; }
+   {
+      if(time_stamp == null)
+         time_stamp = new LoggerDate(time_stamp_nsec);
+      return time_stamp;
+   } // get_time_stamp
+
+
+   /**
+    * @return the record time stamp in nano-seconds since 1990.  This does not
+    * create a LoggerDate object.
+    */
+   public long get_time_stamp_nsec()
+   {
+      long rtn = time_stamp_nsec;
+      if(time_stamp != null)
+         rtn = time_stamp.get_elapsed();
+      return rtn;
+   } // get_time_stamp_nsec
 
    
    /**
@@ -84,46 +90,15 @@ public class Record implements Cloneable
    public int find_column_index(
       String column_name,
       List<Integer> array_address)
-   {
-      // we will use much the same algorithm as is used when a linear index
-      // is passed in.  The difference is that we must first find a matching
-      // column definition so that the array_address parameter can be 
-      // converted to a linear address.
-      int rtn = -1;
-      try
-      {
-         int passed_count = 0;
-         int linear_index = -1;
-         for(ColumnDef column: table_def.columns)
-         {
-            int num_values = column.get_values_count();
-            
-            if(column.name.compareToIgnoreCase(column_name) == 0)
-            {
-               if(linear_index == -1)
-                  linear_index = column.to_linear_index(array_address);
-               if(linear_index >= column.begin_index &&
-                  linear_index < column.begin_index + num_values)
-               {
-                  rtn = passed_count + linear_index - column.begin_index;
-                  break;
-               }
-               else
-                  passed_count += num_values;
-            }
-            else
-               passed_count += num_values;
-         }
-      }
-      catch(Exception e)
-      { rtn = -1; }
-      return rtn;
-   } // find_column_index
+   { return table_def.get_layout().find_value(column_name, array_address); }
    
    
    /**
     * Alternate version that searches for a fully qualified value name
-    * (the array address would be incorporated into the name).
+    * (the array address would be incorporated into the name).  The names
+    * that are found are kept by the table definition so that the same name
+    * is only parsed once.  {@link TableDef#get_accessor(String)} can be used
+    * to avoid the look up altogether.
     * 
     * @param value_name Specifies the value name and, optionally, 
     * the array address.
@@ -131,19 +106,7 @@ public class Record implements Cloneable
     * if no value could be located.  
     */
    public int find_column_index(String value_name)
-   {
-      int rtn = -1;
-      try
-      {
-         ValueName parsed = new ValueName(value_name);
-         rtn = find_column_index(
-            parsed.get_column_name(),
-            parsed.get_array_address());
-      }
-      catch(Exception e)
-      { rtn = -1; }
-      return rtn;
-   } // find_value_name
+   { return table_def.get_layout().find_value(value_name); }
    
    
    /**
@@ -164,7 +127,7 @@ public class Record implements Cloneable
       // each piece
       int rtn = -1;
       int passed_count = 0;
-      for(ColumnDef column: table_def.columns)
+      for(ColumnDef column: table_def.get_columns())
       {
          int num_values = column.get_values_count();
          if(column.name.compareToIgnoreCase(column_name) == 0 &&
@@ -189,21 +152,66 @@ public class Record implements Cloneable
     * @return The value object at the specified index or null
     */
    public ValueBase get_value(int index)
-   { return values.get(index); }
+   { return get_values().get(index); }
    
    
    /**
     * @return the number of values in this record
     */
    public int get_values_count()
-   { return values.size(); }
+   { return get_values().size(); }
    
    
    /**
     * @return the values contained in this record
     */
    public List<ValueBase> get_values()
-   { return values; }
+   {
+      List<ValueBase> rtn = values;
+      if(rtn == null)
+      {
+         // we must now create the values and allocate them pieces of the
+         // storage buffer.  The list is only stored once it is complete so
+         // that other threads never see a partial list.
+         int storage_offset = 0;
+         ValueFactory factory = table_def.station.value_factory;
+
+         rtn = new Vector<ValueBase>(table_def.get_values_count());
+         for(ColumnDef column: table_def.get_columns())
+         {
+            for(int i = 0; i < column.get_values_count(); ++i)
+            {
+               ValueBase value = factory.make_value(column, column.begin_index + i);
+               if(value == null)
+                  throw new UnsupportedOperationException("unsupported data type " + column.data_type);
+               storage_offset += value.assign_record_buff(storage, storage_offset);
+               rtn.add(value);
+            }
+         }
+         values = rtn;
+      }
+      return rtn;
+   } // get_values
+
+
+   /**
+    * Decodes all of the values in this record as doubles without creating the
+    * value objects.  Integers and time stamps (in nano-seconds since 1990) are
+    * converted and strings are parsed.  A string that is not a number is given
+    * as NaN.
+    *
+    * @param dest  Receives the values.  This must have room for
+    * get_values_count() elements.
+    */
+   public void decode(double[] dest)
+   { table_def.get_layout().decode(storage, 0, dest); }
+
+
+   /**
+    * @return the buffer that holds this record's data
+    */
+   byte[] get_storage()
+   { return storage; }
    
    
    /**
@@ -211,20 +219,45 @@ public class Record implements Cloneable
     * from the provided message
     * 
     * @param record_no_  Specifies the record number for this record
-    * @param time_stamp_ Specifies the new time stamp for this record
+    * @param time_stamp_nsec_ Specifies the new time stamp for this record in
+    * nano-seconds since 1990
     * @param message     The message from which this record data should be read
     */
    void read(
       long record_no_,
-      LoggerDate time_stamp_,
+      long time_stamp_nsec_,
       Packet message) throws Exception
    {
       record_no = record_no_;
-      time_stamp = time_stamp_;
+      time_stamp_nsec = time_stamp_nsec_;
+      time_stamp = null;
       message.read_bytes(storage,storage.length);
    } // read
    
    
+   /**
+    * Sets the record number and time stamp and copies the record data
+    * from the provided buffer
+    * 
+    * @param record_no_  Specifies the record number for this record
+    * @param time_stamp_nsec_ Specifies the new time stamp for this record in
+    * nano-seconds since 1990
+    * @param buff        The buffer that holds the record data
+    * @param offset      Specifies the position of the record data in buff
+    */
+   void read(
+      long record_no_,
+      long time_stamp_nsec_,
+      byte[] buff,
+      int offset)
+   {
+      record_no = record_no_;
+      time_stamp_nsec = time_stamp_nsec_;
+      time_stamp = null;
+      System.arraycopy(buff,offset,storage,0,storage.length);
+   } // read
+   
+   
    /**
     * Reference to the table definition that generated this record
     */
@@ -238,15 +271,22 @@ public class Record implements Cloneable
    
    
    /**
-    * Specifies the time stamp 
+    * Specifies the time stamp in nano-seconds since 1990
+    */
+   private long time_stamp_nsec;
+
+
+   /**
+    * Holds the time stamp object once it has been asked for
     */
    private LoggerDate time_stamp;
    
    
    /**
-    * Specifies the list of values associated with this record
+    * Specifies the list of values associated with this record.  This is
+    * created when it is first needed and can be read by any thread.
     */
-   private List<ValueBase> values;
+   private volatile List<ValueBase> values;
    
    
    /**
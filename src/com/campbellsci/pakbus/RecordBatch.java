@@ -0,0 +1,496 @@
+/* RecordBatch.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * <p>Defines a block of records from one table that is stored by column
+ * rather than by record.  The record numbers and time stamps are kept in
+ * arrays of long and each value of the record is kept in its own array: an
+ * array of double for floating point types, an array of long for integer,
+ * boolean, and time stamp types, and an array of byte arrays for strings.  No
+ * objects are created for individual values so large amounts of data can be
+ * processed with simple loops.</p>
+ *
+ * <p>Values are numbered from zero in the same order as they are by
+ * {@link Record}.  A batch is filled by a {@link DataCollectTran} whose client
+ * implements {@link DataCollectBatchClient}.  The arrays returned by the
+ * get_xxx_column() methods may be longer than the number of records and are
+ * only valid until the batch is next changed.</p>
+ */
+public class RecordBatch
+{
+   /**
+    * Constructor
+    *
+    * @param table_def_  Specifies the table whose records will be stored
+    */
+   public RecordBatch(TableDef table_def_)
+   {
+      table_def = table_def_;
+      layout = table_def.get_layout();
+      records_count = 0;
+      capacity = 0;
+      record_nos = new long[0];
+      time_stamps = new long[0];
+      doubles = new double[layout.values_count][];
+      longs = new long[layout.values_count][];
+      strings = new byte[layout.values_count][][];
+      fp2_decimals = new byte[layout.values_count][];
+   } // constructor
+
+
+   /**
+    * @return the table definition
+    */
+   public TableDef get_table_def()
+   { return table_def; }
+
+
+   /**
+    * @return the number of records in the batch
+    */
+   public int get_records_count()
+   { return records_count; }
+
+
+   /**
+    * @return the number of values in each record
+    */
+   public int get_values_count()
+   { return layout.values_count; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the formatted name, with array index, for the value
+    */
+   public String get_value_name(int value)
+   { return layout.get_value_name(value); }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the column definition to which the value belongs
+    */
+   public ColumnDef get_column_def(int value)
+   { return layout.columns[value]; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return true if the value is stored as a double
+    */
+   public boolean is_double(int value)
+   { return layout.kinds[value] == RecordLayout.kind_double; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return true if the value is stored as a long
+    */
+   public boolean is_long(int value)
+   { return layout.kinds[value] == RecordLayout.kind_long; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return true if the value is stored as a string
+    */
+   public boolean is_string(int value)
+   { return layout.kinds[value] == RecordLayout.kind_string; }
+
+
+   /**
+    * @param row  Specifies the record index
+    * @return the record number
+    */
+   public long get_record_no(int row)
+   { return record_nos[check_row(row)]; }
+
+
+   /**
+    * @param row  Specifies the record index
+    * @return the time stamp as nano-seconds since 1 January 1990
+    */
+   public long get_time_stamp_nsec(int row)
+   { return time_stamps[check_row(row)]; }
+
+
+   /**
+    * @param row  Specifies the record index
+    * @return a new object that holds the time stamp of the record
+    */
+   public LoggerDate get_time_stamp(int row)
+   { return new LoggerDate(get_time_stamp_nsec(row)); }
+
+
+   /**
+    * Returns a value as a double.  Integers and time stamps (in nano-seconds
+    * since 1990) will be converted and strings will be parsed.
+    *
+    * @param value  Specifies the value index
+    * @param row  Specifies the record index
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public double get_double(int value, int row) throws UnsupportedOperationException
+   {
+      double rtn;
+      check_row(row);
+      switch(layout.kinds[value])
+      {
+      case RecordLayout.kind_double:
+         rtn = doubles[value][row];
+         break;
+
+      case RecordLayout.kind_long:
+         rtn = longs[value][row];
+         break;
+
+      default:
+         try
+         {
+            rtn = Utils.csi_string_to_float(get_string(value, row));
+         }
+         catch(NumberFormatException e)
+         { throw new UnsupportedOperationException(); }
+         break;
+      }
+      return rtn;
+   } // get_double
+
+
+   /**
+    * Returns a value as a long.  Floating point values will be truncated and
+    * strings will be parsed.
+    *
+    * @param value  Specifies the value index
+    * @param row  Specifies the record index
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public long get_long(int value, int row) throws UnsupportedOperationException
+   {
+      long rtn;
+      check_row(row);
+      switch(layout.kinds[value])
+      {
+      case RecordLayout.kind_double:
+         rtn = (long)doubles[value][row];
+         break;
+
+      case RecordLayout.kind_long:
+         rtn = longs[value][row];
+         break;
+
+      default:
+         try
+         {
+            byte[] buff = strings[value][row];
+            rtn = RecordLayout.parse_long(buff, 0, buff.length);
+         }
+         catch(NumberFormatException e)
+         { throw new UnsupportedOperationException(); }
+         break;
+      }
+      return rtn;
+   } // get_long
+
+
+   /**
+    * Returns a value as a string.  Numeric values are formatted in the same
+    * way as they are by the value objects of a {@link Record}.
+    *
+    * @param value  Specifies the value index
+    * @param row  Specifies the record index
+    * @return the value as a string
+    */
+   public String get_string(int value, int row)
+   {
+      String rtn;
+      check_row(row);
+      if(layout.kinds[value] == RecordLayout.kind_string)
+      {
+         byte[] buff = strings[value][row];
+         rtn = Utils.decode_string(buff, 0, buff.length);
+      }
+      else
+      {
+         StringBuilder temp = new StringBuilder();
+         if(layout.kinds[value] == RecordLayout.kind_double)
+         {
+            int decimals = 0;
+            if(fp2_decimals[value] != null)
+               decimals = fp2_decimals[value][row];
+            RecordLayout.append_double(doubles[value][row], layout.types[value], decimals, temp);
+         }
+         else
+            RecordLayout.append_long(longs[value][row], layout.types[value], temp);
+         rtn = temp.toString();
+      }
+      return rtn;
+   } // get_string
+
+
+   /**
+    * @return the record numbers.  Only the first get_records_count() entries
+    * are valid.
+    */
+   public long[] get_record_no_column()
+   { return record_nos; }
+
+
+   /**
+    * @return the time stamps in nano-seconds since 1990.  Only the first
+    * get_records_count() entries are valid.
+    */
+   public long[] get_time_stamp_column()
+   { return time_stamps; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the values or null if the value is not stored as a double.  Only
+    * the first get_records_count() entries are valid.
+    */
+   public double[] get_double_column(int value)
+   { return doubles[value]; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the values or null if the value is not stored as a long.  Only
+    * the first get_records_count() entries are valid.
+    */
+   public long[] get_long_column(int value)
+   { return longs[value]; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the bytes of each string (without the terminator) or null if the
+    * value is not stored as a string.  Only the first get_records_count()
+    * entries are valid.
+    */
+   public byte[][] get_string_column(int value)
+   { return strings[value]; }
+
+
+   /**
+    * Removes all of the records.  The storage is kept for reuse.
+    */
+   public void clear()
+   { records_count = 0; }
+
+
+   /**
+    * Makes sure that there is room for the specified number of records
+    *
+    * @param count  Specifies the number of records
+    */
+   public void reserve(int count)
+   {
+      if(count > capacity)
+      {
+         int new_capacity = Math.max(count, capacity * 2);
+         record_nos = grow(record_nos, new_capacity);
+         time_stamps = grow(time_stamps, new_capacity);
+         for(int i = 0; i < layout.values_count; ++i)
+         {
+            switch(layout.kinds[i])
+            {
+            case RecordLayout.kind_double:
+            {
+               double[] temp = new double[new_capacity];
+               if(doubles[i] != null)
+                  System.arraycopy(doubles[i], 0, temp, 0, records_count);
+               doubles[i] = temp;
+               if(layout.types[i] == ColumnDef.type_fp2)
+               {
+                  byte[] decimals = new byte[new_capacity];
+                  if(fp2_decimals[i] != null)
+                     System.arraycopy(fp2_decimals[i], 0, decimals, 0, records_count);
+                  fp2_decimals[i] = decimals;
+               }
+               break;
+            }
+
+            case RecordLayout.kind_long:
+               longs[i] = grow(longs[i], new_capacity);
+               break;
+
+            case RecordLayout.kind_string:
+            {
+               byte[][] temp = new byte[new_capacity][];
+               if(strings[i] != null)
+                  System.arraycopy(strings[i], 0, temp, 0, records_count);
+               strings[i] = temp;
+               break;
+            }
+            }
+         }
+         capacity = new_capacity;
+      }
+   } // reserve
+
+
+   /**
+    * Adds the specified number of records to the end of the batch.  The
+    * caller is expected to fill in the new records.
+    *
+    * @param count  Specifies the number of records to add
+    * @return the index of the first new record
+    */
+   int add_rows(int count)
+   {
+      reserve(records_count + count);
+      int rtn = records_count;
+      records_count += count;
+      return rtn;
+   } // add_rows
+
+
+   /**
+    * Keeps only the specified records, in the order given, and removes the
+    * rest.  The records are moved within the existing storage.
+    *
+    * @param rows  Specifies the indices of the records to keep.  These must
+    * be in ascending order.
+    * @param count  Specifies the number of indices in rows
+    */
+   void select_rows(int[] rows, int count)
+   {
+      for(int dest = 0; dest < count; ++dest)
+      {
+         int row = rows[dest];
+         if(row < dest || row >= records_count || (dest > 0 && row <= rows[dest - 1]))
+            throw new IllegalArgumentException("invalid record index: " + row);
+         if(row != dest)
+         {
+            record_nos[dest] = record_nos[row];
+            time_stamps[dest] = time_stamps[row];
+            for(int i = 0; i < layout.values_count; ++i)
+            {
+               switch(layout.kinds[i])
+               {
+               case RecordLayout.kind_double:
+                  doubles[i][dest] = doubles[i][row];
+                  if(fp2_decimals[i] != null)
+                     fp2_decimals[i][dest] = fp2_decimals[i][row];
+                  break;
+
+               case RecordLayout.kind_long:
+                  longs[i][dest] = longs[i][row];
+                  break;
+
+               case RecordLayout.kind_string:
+               {
+                  // the arrays are swapped rather than shared so that each
+                  // can still be reused for the next records
+                  byte[] temp = strings[i][dest];
+                  strings[i][dest] = strings[i][row];
+                  strings[i][row] = temp;
+                  break;
+               }
+               }
+            }
+         }
+      }
+      records_count = count;
+   } // select_rows
+
+
+   /**
+    * Makes sure that the specified record index is valid
+    */
+   private int check_row(int row)
+   {
+      if(row < 0 || row >= records_count)
+         throw new IndexOutOfBoundsException("invalid record index: " + row);
+      return row;
+   } // check_row
+
+
+   /**
+    * Copies the valid part of an array into a larger array
+    */
+   private long[] grow(long[] values, int new_capacity)
+   {
+      long[] rtn = new long[new_capacity];
+      if(values != null)
+         System.arraycopy(values, 0, rtn, 0, records_count);
+      return rtn;
+   } // grow
+
+
+   /**
+    * Specifies the table definition
+    */
+   private final TableDef table_def;
+
+
+   /**
+    * Describes the values in each record
+    */
+   private final RecordLayout layout;
+
+
+   /**
+    * Specifies the number of records in the batch
+    */
+   private int records_count;
+
+
+   /**
+    * Specifies the number of records for which there is storage
+    */
+   private int capacity;
+
+
+   /**
+    * Holds the record numbers.  This is filled in directly by {@link
+    * RecordDecoder}.
+    */
+   long[] record_nos;
+
+
+   /**
+    * Holds the time stamps in nano-seconds since 1990
+    */
+   long[] time_stamps;
+
+
+   /**
+    * Holds the floating point values indexed by value then record
+    */
+   final double[][] doubles;
+
+
+   /**
+    * Holds the integer values indexed by value then record
+    */
+   final long[][] longs;
+
+
+   /**
+    * Holds the strings indexed by value then record
+    */
+   final byte[][][] strings;
+
+
+   /**
+    * Holds the decimal locator of each FP2 value, indexed by value then
+    * record, so that the value can be formatted with the precision given by
+    * the logger.  The entries for other values are null.
+    */
+   final byte[][] fp2_decimals;
+}
@@ -0,0 +1,339 @@
+/* RecordBatchList.java
+
+   Written by: agent
+   Date Begun: Saturday 17 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.AbstractList;
+
+
+/**
+ * <p>Presents the records of a {@link RecordBatch} as a list of
+ * {@link Record} objects so that a {@link DataCollectMode} can select the
+ * records that are reported from a batch.  A record object is only created
+ * (from the table's record cache) when the collect mode asks for it.  It is
+ * filled from the raw bytes of the response so that it holds its own copy of
+ * the data and its values can be used after the response has been
+ * released.</p>
+ *
+ * <p>Records that the collect mode adds (the newest record kept from an
+ * earlier response, for instance) are appended to the batch.  Once the
+ * collect mode has finished with the list, {@link #select_rows()} leaves the
+ * batch holding only the listed records.  If the collect mode did not change
+ * the list, the batch does not need to be changed at all.</p>
+ *
+ * <p>The raw bytes are only referred to while the response is being
+ * processed.  This list must be cleared (with {@link #reset()}) before the
+ * message or buffer that held the response is reused.</p>
+ */
+final class RecordBatchList extends AbstractList<Record>
+{
+   /**
+    * Constructor
+    *
+    * @param table_def_  Specifies the table whose records will be listed
+    */
+   public RecordBatchList(TableDef table_def_)
+   {
+      table_def = table_def_;
+      batch = new RecordBatch(table_def);
+      rows = new int[0];
+      records = new Record[0];
+      list_size = 0;
+      row_buffs = new byte[0][];
+      row_offsets = new int[0];
+   } // constructor
+
+
+   /**
+    * @return the batch that holds the records
+    */
+   public RecordBatch get_batch()
+   { return batch; }
+
+
+   /**
+    * Decodes a block of records from the message into the batch and adds them
+    * to the end of this list.  The read position of the message will be moved
+    * past the block.
+    *
+    * @param source  Specifies the message or buffer positioned at the block
+    * @param begin_record_no  Specifies the record number of the first record
+    * @param count  Specifies the number of records in the block
+    */
+   public void read_records(
+      Packet source,
+      long begin_record_no,
+      int count) throws Exception
+   {
+      // we will note where the data for each record is found before the
+      // block is decoded.  The data of the first record follows the first
+      // time stamp.
+      byte[] buff = source.get_storage();
+      int start = source.get_storage_pos() + table_def.get_time_stamp_size();
+      int stride = table_def.get_record_size();
+      if(table_def.interval == 0)
+         stride += table_def.get_time_stamp_size();
+      int first_row = batch.get_records_count();
+      table_def.read_records(source, batch, begin_record_no, count);
+      int rows_count = batch.get_records_count();
+      reserve_rows(rows_count);
+      for(int row = first_row; row < rows_count; ++row)
+      {
+         row_buffs[row] = buff;
+         row_offsets[row] = start + (row - first_row) * stride;
+         add_entry(row, null);
+      }
+   } // read_records
+
+
+   /**
+    * @return true if this list holds all of the records in the batch in the
+    * order in which they were read
+    */
+   public boolean is_whole_batch()
+   {
+      boolean rtn = list_size == batch.get_records_count();
+      for(int i = 0; rtn && i < list_size; ++i)
+         rtn = rows[i] == i;
+      return rtn;
+   } // is_whole_batch
+
+
+   /**
+    * Changes the batch so that it holds only the records in this list, in
+    * list order.  This will do nothing if the collect mode did not change
+    * the list.
+    */
+   public void select_rows()
+   {
+      if(!is_whole_batch())
+      {
+         batch.select_rows(rows, list_size);
+         for(int i = 0; i < list_size; ++i)
+         {
+            row_buffs[i] = row_buffs[rows[i]];
+            row_offsets[i] = row_offsets[rows[i]];
+            rows[i] = i;
+         }
+      }
+   } // select_rows
+
+
+   /**
+    * Creates the record objects for all of the entries so that this list no
+    * longer refers to the raw bytes of the message.  This must be called if
+    * the message is to be released before the list is processed.
+    */
+   public void copy_records()
+   {
+      for(int i = 0; i < list_size; ++i)
+      {
+         Record record = get(i);
+         row_buffs[rows[i]] = record.get_storage();
+         row_offsets[rows[i]] = 0;
+      }
+   } // copy_records
+
+
+   /**
+    * Returns the record objects that were created for this list to the
+    * table's record cache.  Records that have been kept by the collect mode
+    * will not be in the list at this point.
+    */
+   public void cache_records()
+   {
+      for(int i = 0; i < list_size; ++i)
+      {
+         if(records[i] != null)
+         {
+            table_def.cache_record(records[i]);
+            records[i] = null;
+         }
+      }
+   } // cache_records
+
+
+   /**
+    * Empties this list and the batch so that they can be used for the next
+    * response.
+    */
+   public void reset()
+   {
+      for(int i = 0; i < list_size; ++i)
+         records[i] = null;
+      for(int i = 0; i < row_buffs.length; ++i)
+         row_buffs[i] = null;
+      list_size = 0;
+      batch.clear();
+   } // reset
+
+
+   @Override
+   public int size()
+   { return list_size; }
+
+
+   @Override
+   public Record get(int index)
+   {
+      check_index(index);
+      Record rtn = records[index];
+      if(rtn == null)
+      {
+         int row = rows[index];
+         rtn = table_def.make_record();
+         rtn.read(
+            batch.get_record_no(row),
+            batch.get_time_stamp_nsec(row),
+            row_buffs[row],
+            row_offsets[row]);
+         records[index] = rtn;
+      }
+      return rtn;
+   } // get
+
+
+   @Override
+   public void add(
+      int index,
+      Record record)
+   {
+      if(index != list_size)
+         throw new UnsupportedOperationException("records can only be added to the end");
+      if(record.get_table_def() != table_def)
+         throw new IllegalArgumentException("the record belongs to another table");
+      int row = table_def.get_decoder().read_record(
+         record.get_storage(),
+         0,
+         batch,
+         record.get_record_no(),
+         record.get_time_stamp_nsec());
+      reserve_rows(row + 1);
+      row_buffs[row] = record.get_storage();
+      row_offsets[row] = 0;
+      add_entry(row, record);
+      ++modCount;
+   } // add
+
+
+   @Override
+   public Record remove(int index)
+   {
+      Record rtn = get(index);
+      System.arraycopy(rows, index + 1, rows, index, list_size - index - 1);
+      System.arraycopy(records, index + 1, records, index, list_size - index - 1);
+      records[--list_size] = null;
+      ++modCount;
+      return rtn;
+   } // remove
+
+
+   @Override
+   public void clear()
+   {
+      for(int i = 0; i < list_size; ++i)
+         records[i] = null;
+      list_size = 0;
+      ++modCount;
+   } // clear
+
+
+   /**
+    * Adds an entry to the end of the list
+    */
+   private void add_entry(
+      int row,
+      Record record)
+   {
+      if(list_size == rows.length)
+      {
+         int new_capacity = Math.max(16, list_size * 2);
+         int[] new_rows = new int[new_capacity];
+         Record[] new_records = new Record[new_capacity];
+         System.arraycopy(rows, 0, new_rows, 0, list_size);
+         System.arraycopy(records, 0, new_records, 0, list_size);
+         rows = new_rows;
+         records = new_records;
+      }
+      rows[list_size] = row;
+      records[list_size] = record;
+      ++list_size;
+   } // add_entry
+
+
+   /**
+    * Makes sure that the raw locations can be kept for the specified number
+    * of batch rows
+    */
+   private void reserve_rows(int count)
+   {
+      if(count > row_offsets.length)
+      {
+         int new_capacity = Math.max(count, row_offsets.length * 2);
+         byte[][] new_buffs = new byte[new_capacity][];
+         int[] new_offsets = new int[new_capacity];
+         System.arraycopy(row_buffs, 0, new_buffs, 0, row_buffs.length);
+         System.arraycopy(row_offsets, 0, new_offsets, 0, row_offsets.length);
+         row_buffs = new_buffs;
+         row_offsets = new_offsets;
+      }
+   } // reserve_rows
+
+
+   /**
+    * Makes sure that the specified list index is valid
+    */
+   private void check_index(int index)
+   {
+      if(index < 0 || index >= list_size)
+         throw new IndexOutOfBoundsException("invalid record index: " + index);
+   } // check_index
+
+
+   /**
+    * Specifies the table definition
+    */
+   private final TableDef table_def;
+
+
+   /**
+    * Holds the decoded records
+    */
+   private final RecordBatch batch;
+
+
+   /**
+    * Specifies the batch row of each entry in the list
+    */
+   private int[] rows;
+
+
+   /**
+    * Holds the record object for each entry in the list or null if none has
+    * been created
+    */
+   private Record[] records;
+
+
+   /**
+    * Specifies the number of entries in the list
+    */
+   private int list_size;
+
+
+   /**
+    * Refers to the buffer that holds the raw data of each batch row
+    */
+   private byte[][] row_buffs;
+
+
+   /**
+    * Specifies the position of the raw data of each batch row
+    */
+   private int[] row_offsets;
+}
@@ -0,0 +1,231 @@
+/* RecordCursor.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * <p>Defines an object that reads the values of a table's records directly
+ * from their raw bytes.  A cursor is created once for a table and is then
+ * positioned over each record in turn.  Values are decoded when they are
+ * asked for and no objects are created for the record or its values.</p>
+ *
+ * <p>Values are numbered from zero in the same order as they are by
+ * {@link Record}.  A cursor refers to the bytes that it was positioned over
+ * and is not safe for use by more than one thread.  Each thread that reads
+ * records should have its own cursor.</p>
+ */
+public class RecordCursor
+{
+   /**
+    * Constructor
+    *
+    * @param table_def_  Specifies the table whose records will be read
+    */
+   public RecordCursor(TableDef table_def_)
+   {
+      table_def = table_def_;
+      layout = table_def.get_layout();
+      buff = null;
+      offset = 0;
+      record_no = 0;
+      time_stamp = 0;
+   } // constructor
+
+
+   /**
+    * Positions this cursor over the data of the specified record.  The
+    * record's value objects will not be created.
+    *
+    * @param record  Specifies a record from the same table
+    */
+   public void set_record(Record record)
+   {
+      if(record.get_table_def() != table_def)
+         throw new IllegalArgumentException("the record belongs to another table");
+      set_record(
+         record.get_storage(),
+         0,
+         record.get_record_no(),
+         record.get_time_stamp_nsec());
+   } // set_record
+
+
+   /**
+    * Positions this cursor over record data in the specified buffer
+    *
+    * @param buff_  Specifies the buffer that holds the record data
+    * @param offset_  Specifies the position of the record data in the buffer
+    * @param record_no_  Specifies the record number
+    * @param time_stamp_  Specifies the time stamp in nano-seconds since 1990
+    */
+   public void set_record(
+      byte[] buff_,
+      int offset_,
+      long record_no_,
+      long time_stamp_)
+   {
+      if(offset_ < 0 || offset_ + layout.record_size > buff_.length)
+         throw new IllegalArgumentException("the buffer does not hold a whole record");
+      buff = buff_;
+      offset = offset_;
+      record_no = record_no_;
+      time_stamp = time_stamp_;
+   } // set_record
+
+
+   /**
+    * @return the table definition
+    */
+   public TableDef get_table_def()
+   { return table_def; }
+
+
+   /**
+    * @return the number of values in each record
+    */
+   public int get_values_count()
+   { return layout.values_count; }
+
+
+   /**
+    * @return the number of bytes of data in each record
+    */
+   public int get_record_size()
+   { return layout.record_size; }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the formatted name, with array index, for the value
+    */
+   public String get_value_name(int value)
+   { return layout.get_value_name(value); }
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the column definition to which the value belongs
+    */
+   public ColumnDef get_column_def(int value)
+   { return layout.columns[value]; }
+
+
+   /**
+    * @return the record number of the current record
+    */
+   public long get_record_no()
+   { return record_no; }
+
+
+   /**
+    * @return the time stamp of the current record in nano-seconds since 1990
+    */
+   public long get_time_stamp_nsec()
+   { return time_stamp; }
+
+
+   /**
+    * Returns a value of the current record as a double.  Integers and time
+    * stamps (in nano-seconds since 1990) will be converted and strings will be
+    * parsed.
+    *
+    * @param value  Specifies the value index
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public double get_double(int value) throws UnsupportedOperationException
+   { return layout.get_double(buff, offset, value); }
+
+
+   /**
+    * Decodes all of the values of the current record as doubles.  Integers
+    * and time stamps (in nano-seconds since 1990) are converted and strings
+    * are parsed.  A string that is not a number is given as NaN.
+    *
+    * @param dest  Receives the values.  This must have room for
+    * get_values_count() elements.
+    */
+   public void decode(double[] dest)
+   { layout.decode(buff, offset, dest); }
+
+
+   /**
+    * Returns a value of the current record as a long.  Floating point values
+    * will be truncated and strings will be parsed.
+    *
+    * @param value  Specifies the value index
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public long get_long(int value) throws UnsupportedOperationException
+   { return layout.get_long(buff, offset, value); }
+
+
+   /**
+    * Returns a value of the current record as a string.  This must create a
+    * new string.  {@link #append_string(int, StringBuilder)} can be used to
+    * avoid that for string values.
+    *
+    * @param value  Specifies the value index
+    * @return the value as a string
+    */
+   public String get_string(int value)
+   { return layout.get_string(buff, offset, value); }
+
+
+   /**
+    * Appends a value of the current record, formatted as a string, to the
+    * specified buffer.  Values are formatted in the same way as they are by
+    * the value objects of a {@link Record}.
+    *
+    * @param value  Specifies the value index
+    * @param dest  Specifies the buffer to which the value will be appended
+    */
+   public void append_string(int value, StringBuilder dest)
+   { layout.append_string(buff, offset, value, dest); }
+
+
+   /**
+    * Specifies the table definition
+    */
+   private final TableDef table_def;
+
+
+   /**
+    * Describes the values in each record
+    */
+   private final RecordLayout layout;
+
+
+   /**
+    * Refers to the buffer that holds the current record
+    */
+   private byte[] buff;
+
+
+   /**
+    * Specifies the position of the current record in the buffer
+    */
+   private int offset;
+
+
+   /**
+    * Specifies the record number of the current record
+    */
+   private long record_no;
+
+
+   /**
+    * Specifies the time stamp of the current record in nano-seconds since
+    * 1990
+    */
+   private long time_stamp;
+}
@@ -0,0 +1,367 @@
+/* RecordDecoder.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * <p>Decodes blocks of records for one table straight into the columns of a
+ * {@link RecordBatch}.  The decoder is prepared once from the table's
+ * {@link RecordLayout}: values that follow each other and have the same data
+ * type are grouped into runs and each run is decoded one value at a time for
+ * all of the records in the block.  Each inner loop therefore handles a
+ * single data type at a fixed stride and no decisions are made per value.</p>
+ *
+ * <p>A decoder is kept by its {@link TableDef} along with the table
+ * definition signature that it was prepared for.  It does not change once it
+ * has been created and can be shared by any number of threads.</p>
+ */
+final class RecordDecoder
+{
+   /**
+    * Constructor
+    *
+    * @param table_def  Specifies the table whose records will be decoded
+    */
+   public RecordDecoder(TableDef table_def)
+   {
+      layout = table_def.get_layout();
+      def_sig = table_def.def_sig;
+      time_type = table_def.time_type;
+      interval = table_def.interval;
+      time_stamp_size = ColumnDef.data_type_size(time_type);
+
+      // count the runs before filling them in
+      int count = 0;
+      for(int i = 0; i < layout.values_count; ++i)
+      {
+         if(i == 0 || layout.types[i] != layout.types[i - 1])
+            ++count;
+      }
+      run_types = new byte[count];
+      run_kinds = new byte[count];
+      run_begins = new int[count];
+      run_ends = new int[count];
+      int run = -1;
+      for(int i = 0; i < layout.values_count; ++i)
+      {
+         if(i == 0 || layout.types[i] != layout.types[i - 1])
+         {
+            ++run;
+            run_types[run] = layout.types[i];
+            run_kinds[run] = layout.kinds[i];
+            run_begins[run] = i;
+         }
+         run_ends[run] = i + 1;
+      }
+   } // constructor
+
+
+   /**
+    * Decodes a block of records from the message and adds them to the end
+    * of the batch.  The message must hold the whole block, including the
+    * time stamp that precedes each record (or only the first record if the
+    * table has an interval).  The read position of the message will be moved
+    * past the block.
+    *
+    * @param message  Specifies the message positioned at the block
+    * @param batch  Specifies the batch that will receive the records
+    * @param begin_record_no  Specifies the record number of the first record
+    * @param count  Specifies the number of records in the block
+    * @return the number of records read
+    */
+   public int read_records(
+      Packet message,
+      RecordBatch batch,
+      long begin_record_no,
+      int count) throws Exception
+   {
+      if(time_type != ColumnDef.type_nsec &&
+         time_type != ColumnDef.type_nsec_lsf &&
+         time_type != ColumnDef.type_sec)
+         throw new Exception("Unsupported time type");
+      int stride = layout.record_size;
+      int block_size = layout.record_size * count + time_stamp_size;
+      if(interval == 0)
+      {
+         stride += time_stamp_size;
+         block_size = stride * count;
+      }
+      if(count <= 0)
+         return 0;
+      if(message.whats_left() < block_size)
+         throw new Exception("Attempt to read past the message end");
+
+      // the first record follows the first time stamp
+      byte[] buff = message.get_storage();
+      int start = message.get_storage_pos();
+      int first_row = batch.add_rows(count);
+      long[] record_nos = batch.record_nos;
+      long[] time_stamps = batch.time_stamps;
+      long stamp = 0;
+      for(int i = 0; i < count; ++i)
+      {
+         if(i == 0 || interval == 0)
+            stamp = RecordLayout.read_long(buff, start + i * stride, time_type);
+         record_nos[first_row + i] = begin_record_no + i;
+         time_stamps[first_row + i] = stamp;
+         stamp += interval;
+      }
+      int base = start + time_stamp_size;
+      for(int run = 0; run < run_types.length; ++run)
+      {
+         for(int value = run_begins[run]; value < run_ends[run]; ++value)
+         {
+            int pos = base + layout.offsets[value];
+            switch(run_kinds[run])
+            {
+            case RecordLayout.kind_double:
+               read_doubles(run_types[run], buff, pos, stride, batch.doubles[value], first_row, count);
+               if(run_types[run] == ColumnDef.type_fp2)
+                  read_fp2_decimals(buff, pos, stride, batch.fp2_decimals[value], first_row, count);
+               break;
+
+            case RecordLayout.kind_long:
+               read_longs(run_types[run], buff, pos, stride, batch.longs[value], first_row, count);
+               break;
+
+            case RecordLayout.kind_string:
+               read_strings(buff, pos, stride, layout.sizes[value], batch.strings[value], first_row, count);
+               break;
+            }
+         }
+      }
+      message.move_past(block_size);
+      return count;
+   } // read_records
+
+
+   /**
+    * Decodes the data of one record, without its time stamp, and adds it to
+    * the end of the batch.
+    *
+    * @param buff  Specifies the buffer that holds the record data
+    * @param pos  Specifies the position of the record data in buff
+    * @param batch  Specifies the batch that will receive the record
+    * @param record_no  Specifies the record number
+    * @param time_stamp_nsec  Specifies the time stamp in nano-seconds since
+    * 1990
+    * @return the index of the record in the batch
+    */
+   public int read_record(
+      byte[] buff,
+      int pos,
+      RecordBatch batch,
+      long record_no,
+      long time_stamp_nsec)
+   {
+      int row = batch.add_rows(1);
+      batch.record_nos[row] = record_no;
+      batch.time_stamps[row] = time_stamp_nsec;
+      for(int run = 0; run < run_types.length; ++run)
+      {
+         for(int value = run_begins[run]; value < run_ends[run]; ++value)
+         {
+            int value_pos = pos + layout.offsets[value];
+            switch(run_kinds[run])
+            {
+            case RecordLayout.kind_double:
+               read_doubles(run_types[run], buff, value_pos, 0, batch.doubles[value], row, 1);
+               if(run_types[run] == ColumnDef.type_fp2)
+                  read_fp2_decimals(buff, value_pos, 0, batch.fp2_decimals[value], row, 1);
+               break;
+
+            case RecordLayout.kind_long:
+               read_longs(run_types[run], buff, value_pos, 0, batch.longs[value], row, 1);
+               break;
+
+            case RecordLayout.kind_string:
+               read_strings(buff, value_pos, 0, layout.sizes[value], batch.strings[value], row, 1);
+               break;
+            }
+         }
+      }
+      return row;
+   } // read_record
+
+
+   /**
+    * Decodes one floating point value from each record in a block
+    */
+   private static void read_doubles(
+      byte data_type,
+      byte[] buff,
+      int pos,
+      int stride,
+      double[] dest,
+      int first_row,
+      int count)
+   {
+      int end = first_row + count;
+      switch(data_type)
+      {
+      case ColumnDef.type_fp2:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = RecordLayout.read_fp2(buff, pos);
+         break;
+
+      case ColumnDef.type_ieee4:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = Float.intBitsToFloat(RecordLayout.read_int4(buff, pos));
+         break;
+
+      case ColumnDef.type_ieee4_lsf:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = Float.intBitsToFloat(RecordLayout.read_int4_lsf(buff, pos));
+         break;
+
+      default:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = RecordLayout.read_double(buff, pos, data_type);
+         break;
+      }
+   } // read_doubles
+
+
+   /**
+    * Copies the decimal locator of one FP2 value from each record in a block
+    * so that the values can be formatted with the precision that the logger
+    * gave them
+    */
+   private static void read_fp2_decimals(
+      byte[] buff,
+      int pos,
+      int stride,
+      byte[] dest,
+      int first_row,
+      int count)
+   {
+      int end = first_row + count;
+      for(int row = first_row; row < end; ++row, pos += stride)
+         dest[row] = (byte)RecordLayout.read_fp2_decimals(buff, pos);
+   } // read_fp2_decimals
+
+
+   /**
+    * Decodes one integer value from each record in a block
+    */
+   private static void read_longs(
+      byte data_type,
+      byte[] buff,
+      int pos,
+      int stride,
+      long[] dest,
+      int first_row,
+      int count)
+   {
+      int end = first_row + count;
+      switch(data_type)
+      {
+      case ColumnDef.type_int4:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = RecordLayout.read_int4(buff, pos);
+         break;
+
+      case ColumnDef.type_int4_lsf:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = RecordLayout.read_int4_lsf(buff, pos);
+         break;
+
+      case ColumnDef.type_uint4:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = RecordLayout.read_int4(buff, pos) & 0xffffffffL;
+         break;
+
+      default:
+         for(int row = first_row; row < end; ++row, pos += stride)
+            dest[row] = RecordLayout.read_long(buff, pos, data_type);
+         break;
+      }
+   } // read_longs
+
+
+   /**
+    * Copies one string value from each record in a block.  The arrays that
+    * already hold strings of the right length are reused.
+    */
+   private static void read_strings(
+      byte[] buff,
+      int pos,
+      int stride,
+      int size,
+      byte[][] dest,
+      int first_row,
+      int count)
+   {
+      int end = first_row + count;
+      for(int row = first_row; row < end; ++row, pos += stride)
+      {
+         int len = RecordLayout.string_length(buff, pos, size);
+         byte[] value = dest[row];
+         if(value == null || value.length != len)
+            dest[row] = value = new byte[len];
+         System.arraycopy(buff, pos, value, 0, len);
+      }
+   } // read_strings
+
+
+   /**
+    * Specifies the table definition signature that this decoder was prepared
+    * for
+    */
+   public final int def_sig;
+
+
+   /**
+    * Describes the values in each record
+    */
+   private final RecordLayout layout;
+
+
+   /**
+    * Specifies the data type of the record time stamps
+    */
+   private final byte time_type;
+
+
+   /**
+    * Specifies the size of each time stamp
+    */
+   private final int time_stamp_size;
+
+
+   /**
+    * Specifies the table interval in nano-seconds or zero if each record has
+    * its own time stamp
+    */
+   private final long interval;
+
+
+   /**
+    * Specifies the data type of each run of values
+    */
+   private final byte[] run_types;
+
+
+   /**
+    * Specifies how the values of each run are stored
+    */
+   private final byte[] run_kinds;
+
+
+   /**
+    * Specifies the index of the first value of each run
+    */
+   private final int[] run_begins;
+
+
+   /**
+    * Specifies the index following the last value of each run
+    */
+   private final int[] run_ends;
+}
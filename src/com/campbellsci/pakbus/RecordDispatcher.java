@@ -0,0 +1,509 @@
+/* RecordDispatcher.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * <p>Defines an object that moves the data collection call-backs off of the
+ * thread that services the network.  The application wraps its
+ * {@link DataCollectClient} or {@link DataUpdaterClient} objects using one of
+ * the wrap() methods and gives the wrapper to the transaction in place of the
+ * original.  When the transaction reports records or an outcome, the wrapper
+ * places a notification in a bounded lock-free queue and returns immediately.
+ * The dispatcher's own thread takes the notifications from the queue and
+ * passes them on to the original clients in the order that they were
+ * reported.  A slow client (one that writes to a database, for instance) will
+ * then no longer delay the network.</p>
+ *
+ * <p>The wrappers take ownership of the records that they are given by
+ * clearing the list reported by the transaction.  This prevents the
+ * transaction from recycling those records so the client can keep them for as
+ * long as it needs to.</p>
+ *
+ * <p>The queue is shared, without locking, by exactly one reporting thread and
+ * the dispatcher thread.  All of the wrappers created by a dispatcher must
+ * therefore be used by transactions that are serviced by the same thread.
+ * When the queue is more than three quarters full, the dispatcher is
+ * considered to be congested.  A wrapped DataCollectClient will then ask its
+ * transaction to stop after the current set of records and a wrapped
+ * DataUpdaterClient will ask its updater to stop its current poll.  The
+ * updater will continue from its newest record on its next poll.  If the queue
+ * is completely full, the reporting thread will wait for space for up to five
+ * seconds.  If no space becomes available, the notification is dropped,
+ * counted by {@link #get_dropped_count()}, and reported as a comment to the
+ * network.  If the dispatcher thread is not running (it has not been started
+ * or has been stopped), notifications are delivered directly on the
+ * reporting thread.</p>
+ */
+public class RecordDispatcher
+{
+   /**
+    * Constructor
+    *
+    * @param capacity  Specifies the number of notifications that can be
+    * waiting for the dispatcher thread.
+    */
+   public RecordDispatcher(int capacity)
+   {
+      queue = new RingBuffer<Notification>(capacity);
+      high_water = queue.capacity() - queue.capacity() / 4;
+      running = false;
+      thread = null;
+      failures_count = new AtomicLong(0);
+      dropped_count = new AtomicLong(0);
+   } // constructor
+
+
+   /**
+    * Starts the dispatcher thread.
+    */
+   public synchronized void start()
+   {
+      if(!running)
+      {
+         running = true;
+         thread = new Thread(new Worker(), "pakbus-dispatcher");
+         thread.start();
+      }
+   } // start
+
+
+   /**
+    * Stops the dispatcher thread after it has delivered all of the
+    * notifications that are waiting and waits for it to exit.
+    */
+   public void stop() throws InterruptedException
+   {
+      Thread worker;
+      synchronized(this)
+      {
+         running = false;
+         worker = thread;
+         thread = null;
+      }
+      if(worker != null)
+      {
+         LockSupport.unpark(worker);
+         if(worker != Thread.currentThread())
+            worker.join();
+      }
+   } // stop
+
+
+   /**
+    * Creates a wrapper for a data collection client
+    *
+    * @param client  Specifies the client that will be called from the
+    * dispatcher thread.
+    * @return the wrapper that should be given to the DataCollectTran
+    */
+   public DataCollectClient wrap(DataCollectClient client)
+   { return new CollectWrapper(client); }
+
+
+   /**
+    * Creates a wrapper for a data updater client
+    *
+    * @param client  Specifies the client that will be called from the
+    * dispatcher thread.
+    * @return the wrapper that should be given to the DataUpdater
+    */
+   public DataUpdaterClient wrap(DataUpdaterClient client)
+   { return new UpdaterWrapper(client); }
+
+
+   /**
+    * @return true if the number of waiting notifications has reached the point
+    * where collection should be held back
+    */
+   public boolean is_congested()
+   { return queue.size() >= high_water; }
+
+
+   /**
+    * @return the number of notifications that are waiting to be delivered
+    */
+   public int get_pending_count()
+   { return queue.size(); }
+
+
+   /**
+    * @return the number of client call-backs that have thrown exceptions.
+    * Each of these is also posted as a comment to the network that serviced
+    * the transaction.
+    */
+   public long get_failures_count()
+   { return failures_count.get(); }
+
+
+   /**
+    * @return the number of notifications that were dropped because the queue
+    * stayed full
+    */
+   public long get_dropped_count()
+   { return dropped_count.get(); }
+
+
+   /**
+    * Places the notification in the queue, waiting for space if needed, and
+    * wakes the dispatcher thread.  The notification will be delivered
+    * directly if the dispatcher thread is not running and will be dropped if
+    * no space becomes available in time.
+    */
+   private void post(Notification notification)
+   {
+      long started = System.nanoTime();
+      boolean queued = false;
+      boolean done = false;
+      while(!done)
+      {
+         if(!running)
+         {
+            deliver(notification);
+            done = true;
+         }
+         else if(queue.offer(notification))
+         {
+            queued = true;
+            done = true;
+         }
+         else if(System.nanoTime() - started >= full_timeout)
+         {
+            dropped_count.incrementAndGet();
+            Network network = notification.get_network();
+            if(network != null)
+               network.post_comment("record dispatcher queue full: notification dropped");
+            done = true;
+         }
+         else
+         {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(full_wait);
+         }
+      }
+      if(queued)
+         LockSupport.unpark(thread);
+   } // post
+
+
+   /**
+    * Delivers the notification to its client
+    */
+   private void deliver(Notification notification)
+   {
+      try
+      {
+         switch(notification.type)
+         {
+         case Notification.collect_records:
+            CollectWrapper collect = (CollectWrapper)notification.wrapper;
+            if(!collect.client.on_records(notification.transaction, notification.records))
+               collect.aborted = true;
+            break;
+
+         case Notification.collect_complete:
+            ((CollectWrapper)notification.wrapper).client.on_complete(
+               notification.transaction,
+               notification.outcome);
+            break;
+
+         case Notification.updater_records:
+            ((UpdaterWrapper)notification.wrapper).client.on_records(
+               notification.updater,
+               notification.records);
+            break;
+
+         case Notification.updater_complete:
+            ((UpdaterWrapper)notification.wrapper).client.on_poll_complete(
+               notification.updater,
+               notification.outcome);
+            break;
+         }
+      }
+      catch(Exception e)
+      {
+         // the failure is counted and reported through the network that
+         // serviced the transaction
+         failures_count.incrementAndGet();
+         Network network = notification.get_network();
+         if(network != null)
+            network.post_comment("record dispatcher client failed: " + e.toString());
+      }
+   } // deliver
+
+
+   /**
+    * Takes ownership of the records in the specified list
+    */
+   private static List<Record> take_records(List<Record> records)
+   {
+      List<Record> rtn = new ArrayList<Record>(records);
+      records.clear();
+      return rtn;
+   } // take_records
+
+
+   /**
+    * Describes a call-back that is waiting to be delivered
+    */
+   private static final class Notification
+   {
+      /**
+       * Identifies the call-backs that can be delivered
+       */
+      static final int collect_records = 1;
+      static final int collect_complete = 2;
+      static final int updater_records = 3;
+      static final int updater_complete = 4;
+
+
+      /**
+       * Constructor
+       */
+      Notification(
+         int type_,
+         Object wrapper_,
+         DataCollectTran transaction_,
+         DataUpdater updater_,
+         List<Record> records_,
+         int outcome_)
+      {
+         type = type_;
+         wrapper = wrapper_;
+         transaction = transaction_;
+         updater = updater_;
+         records = records_;
+         outcome = outcome_;
+      } // constructor
+
+
+      /**
+       * @return the network that serviced the transaction or updater or null
+       * if it is no longer known
+       */
+      Network get_network()
+      {
+         Network rtn = null;
+         if(transaction != null)
+            rtn = transaction.network;
+         else if(updater != null && updater.get_station() != null)
+            rtn = updater.get_station().get_network();
+         return rtn;
+      } // get_network
+
+
+      /**
+       * Identifies the call-back
+       */
+      final int type;
+
+
+      /**
+       * Specifies the wrapper that reported this notification
+       */
+      final Object wrapper;
+
+
+      /**
+       * Specifies the data collection transaction (if any)
+       */
+      final DataCollectTran transaction;
+
+
+      /**
+       * Specifies the data updater (if any)
+       */
+      final DataUpdater updater;
+
+
+      /**
+       * Specifies the records (if any)
+       */
+      final List<Record> records;
+
+
+      /**
+       * Specifies the outcome (if any)
+       */
+      final int outcome;
+   }
+
+
+   /**
+    * Defines the wrapper for a DataCollectClient
+    */
+   private final class CollectWrapper implements DataCollectClient
+   {
+      CollectWrapper(DataCollectClient client_)
+      {
+         client = client_;
+         aborted = false;
+      } // constructor
+
+
+      public boolean on_records(
+         DataCollectTran transaction,
+         List<Record> records)
+      {
+         post(
+            new Notification(
+               Notification.collect_records, this, transaction, null, take_records(records), 0));
+         return !aborted && !is_congested();
+      }
+
+
+      public void on_complete(
+         DataCollectTran transaction,
+         int outcome)
+      {
+         post(
+            new Notification(
+               Notification.collect_complete, this, transaction, null, null, outcome));
+      }
+
+
+      /**
+       * Specifies the client that will receive the call-backs
+       */
+      final DataCollectClient client;
+
+
+      /**
+       * Set by the dispatcher thread when the client has asked to abort
+       */
+      volatile boolean aborted;
+   }
+
+
+   /**
+    * Defines the wrapper for a DataUpdaterClient.  The updater checks for this
+    * type so that it can ask whether it should hold back.
+    */
+   final class UpdaterWrapper implements DataUpdaterClient
+   {
+      UpdaterWrapper(DataUpdaterClient client_)
+      { client = client_; }
+
+
+      /**
+       * @return true if the updater should stop its current poll
+       */
+      boolean is_congested()
+      { return RecordDispatcher.this.is_congested(); }
+
+
+      public void on_poll_complete(
+         DataUpdater updater,
+         int outcome)
+      {
+         post(
+            new Notification(
+               Notification.updater_complete, this, null, updater, null, outcome));
+      }
+
+
+      public void on_records(
+         DataUpdater updater,
+         List<Record> records)
+      {
+         post(
+            new Notification(
+               Notification.updater_records, this, null, updater, take_records(records), 0));
+      }
+
+
+      /**
+       * Specifies the client that will receive the call-backs
+       */
+      final DataUpdaterClient client;
+   }
+
+
+   /**
+    * Defines the work done by the dispatcher thread
+    */
+   private final class Worker implements Runnable
+   {
+      public void run()
+      {
+         while(running || queue.size() > 0)
+         {
+            Notification notification = queue.poll();
+            if(notification != null)
+               deliver(notification);
+            else if(running)
+               LockSupport.parkNanos(idle_wait);
+         }
+      }
+   }
+
+
+   /**
+    * Specifies the time, in nano-seconds, that the reporting thread will wait
+    * for space when the queue is full
+    */
+   private static final long full_wait = 100000L;
+
+
+   /**
+    * Specifies the longest time, in nano-seconds, that the reporting thread
+    * will wait for space before the notification is dropped
+    */
+   private static final long full_timeout = 5000000000L;
+
+
+   /**
+    * Specifies the longest time, in nano-seconds, that the dispatcher thread
+    * will sleep when the queue is empty
+    */
+   private static final long idle_wait = 10000000L;
+
+
+   /**
+    * Holds the notifications that are waiting to be delivered
+    */
+   private final RingBuffer<Notification> queue;
+
+
+   /**
+    * Specifies the number of waiting notifications at which the dispatcher is
+    * considered to be congested
+    */
+   private final int high_water;
+
+
+   /**
+    * Set to true while the dispatcher thread should keep running
+    */
+   private volatile boolean running;
+
+
+   /**
+    * The dispatcher thread
+    */
+   private volatile Thread thread;
+
+
+   /**
+    * Keeps track of the number of client call-backs that have thrown
+    * exceptions
+    */
+   private final AtomicLong failures_count;
+
+
+   /**
+    * Keeps track of the number of notifications that were dropped because the
+    * queue stayed full
+    */
+   private final AtomicLong dropped_count;
+}
@@ -0,0 +1,921 @@
+/* RecordLayout.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Describes where each value of a table's records can be found in the raw
+ * record bytes and how it is to be decoded.  The layout is worked out once
+ * from the column definitions so that records can be decoded without
+ * creating value objects.  Values are numbered in the same order as they are
+ * by {@link Record}.</p>
+ *
+ * <p>A layout does not change once it has been created and can be shared by
+ * any number of threads.  It also keeps the value names that have been
+ * looked up so that each name is parsed only once for a table definition
+ * signature.</p>
+ */
+final class RecordLayout
+{
+   /**
+    * Constructor
+    *
+    * @param table_def  Specifies the table whose records are described
+    */
+   public RecordLayout(TableDef table_def)
+   {
+      List<ColumnDef> column_defs = table_def.get_columns();
+      int count = 0;
+      def_sig = table_def.def_sig;
+      for(ColumnDef column: column_defs)
+         count += column.get_values_count();
+
+      values_count = count;
+      columns = new ColumnDef[count];
+      array_offsets = new int[count];
+      types = new byte[count];
+      kinds = new byte[count];
+      offsets = new int[count];
+      sizes = new int[count];
+
+      int value = 0;
+      int offset = 0;
+      for(ColumnDef column: column_defs)
+      {
+         int column_values = column.get_values_count();
+         int size = ColumnDef.data_type_size(column.data_type);
+         if(column.data_type == ColumnDef.type_ascii)
+            size = column.dims.back();
+         for(int i = 0; i < column_values; ++i)
+         {
+            columns[value] = column;
+            array_offsets[value] = column.begin_index + i;
+            types[value] = column.data_type;
+            kinds[value] = kind_of(column.data_type);
+            offsets[value] = offset;
+            sizes[value] = size;
+            offset += size;
+            ++value;
+         }
+      }
+      record_size = offset;
+      value_names = new ConcurrentHashMap<String, Integer>();
+   } // constructor
+
+
+   /**
+    * Looks up the index of a value given its name and, optionally, its array
+    * address (for instance "Temp(3)").  The names that are found are kept so
+    * that the same name is not parsed again.
+    *
+    * @param value_name  Specifies the value name
+    * @return the index of the value or a negative number if there is no such
+    * value
+    */
+   public int find_value(String value_name)
+   {
+      int rtn = -1;
+      if(value_name != null)
+      {
+         Integer cached = value_names.get(value_name);
+         if(cached != null)
+            rtn = cached;
+         else
+         {
+            try
+            {
+               ValueName parsed = new ValueName(value_name);
+               rtn = find_value(parsed.get_column_name(), parsed.get_array_address());
+            }
+            catch(Exception e)
+            { rtn = -1; }
+            if(rtn >= 0 && value_names.size() < max_value_names)
+               value_names.put(value_name, rtn);
+         }
+      }
+      return rtn;
+   } // find_value
+
+
+   /**
+    * Looks up the index of a value given its column name and array address.
+    *
+    * @param column_name  Specifies the column name
+    * @param array_address  Specifies the array address.  If this is empty,
+    * the first value of the column will be found.
+    * @return the index of the value or a negative number if there is no such
+    * value or if the array address is not valid
+    */
+   public int find_value(
+      String column_name,
+      List<Integer> array_address)
+   {
+      // the values of each column piece follow each other so we can step from
+      // the first value of one piece to the first value of the next.  The
+      // array address is only converted to a linear offset when the first
+      // piece with a matching name is found.
+      int rtn = -1;
+      try
+      {
+         int[] address = new int[array_address.size()];
+         for(int i = 0; i < address.length; ++i)
+            address[i] = array_address.get(i);
+         int linear_index = -1;
+         int value = 0;
+         while(rtn < 0 && value < values_count)
+         {
+            ColumnDef column = columns[value];
+            int num_values = column.get_values_count();
+            if(column.name.equalsIgnoreCase(column_name))
+            {
+               if(linear_index == -1)
+                  linear_index = column.to_linear_index(address, address.length);
+               if(linear_index >= column.begin_index &&
+                  linear_index < column.begin_index + num_values)
+                  rtn = value + linear_index - column.begin_index;
+            }
+            value += num_values;
+         }
+      }
+      catch(Exception e)
+      { rtn = -1; }
+      return rtn;
+   } // find_value
+
+
+   /**
+    * @param value  Specifies the value index
+    * @return the formatted name, with array index, for the value
+    */
+   public String get_value_name(int value)
+   { return columns[value].format_name(array_offsets[value]); }
+
+
+   /**
+    * Specifies the table definition signature that this layout was worked out
+    * for
+    */
+   public final int def_sig;
+
+
+   /**
+    * @return the way in which values of the specified data type are decoded.
+    * This will be one of kind_double, kind_long, kind_string, or kind_none.
+    */
+   public static byte kind_of(byte data_type)
+   {
+      byte rtn = kind_none;
+      switch(data_type)
+      {
+      case ColumnDef.type_fp2:
+      case ColumnDef.type_fp4:
+      case ColumnDef.type_ieee4:
+      case ColumnDef.type_ieee4_lsf:
+      case ColumnDef.type_ieee8:
+      case ColumnDef.type_ieee8_lsf:
+         rtn = kind_double;
+         break;
+
+      case ColumnDef.type_int1:
+      case ColumnDef.type_uint1:
+      case ColumnDef.type_bool:
+      case ColumnDef.type_bool8:
+      case ColumnDef.type_int2:
+      case ColumnDef.type_uint2:
+      case ColumnDef.type_bool2:
+      case ColumnDef.type_int2_lsf:
+      case ColumnDef.type_uint2_lsf:
+      case ColumnDef.type_int4:
+      case ColumnDef.type_uint4:
+      case ColumnDef.type_bool4:
+      case ColumnDef.type_int4_lsf:
+      case ColumnDef.type_uint4_lsf:
+      case ColumnDef.type_sec:
+      case ColumnDef.type_usec:
+      case ColumnDef.type_nsec:
+      case ColumnDef.type_nsec_lsf:
+         rtn = kind_long;
+         break;
+
+      case ColumnDef.type_ascii:
+         rtn = kind_string;
+         break;
+      }
+      return rtn;
+   } // kind_of
+
+
+   /**
+    * Decodes a floating point value.  Integer types are converted and time
+    * stamps are given in nano-seconds since 1990.
+    *
+    * @param buff  Specifies the buffer that holds the value
+    * @param pos  Specifies the position of the value in the buffer
+    * @param data_type  Specifies the data type of the value
+    * @return the decoded value
+    */
+   public static double read_double(
+      byte[] buff,
+      int pos,
+      byte data_type)
+   {
+      double rtn;
+      switch(data_type)
+      {
+      case ColumnDef.type_fp2:
+         rtn = read_fp2(buff, pos);
+         break;
+
+      case ColumnDef.type_fp4:
+         rtn = read_fp4(buff, pos);
+         break;
+
+      case ColumnDef.type_ieee4:
+         rtn = Float.intBitsToFloat(read_int4(buff, pos));
+         break;
+
+      case ColumnDef.type_ieee4_lsf:
+         rtn = Float.intBitsToFloat(read_int4_lsf(buff, pos));
+         break;
+
+      case ColumnDef.type_ieee8:
+         rtn = Double.longBitsToDouble(read_int8(buff, pos));
+         break;
+
+      case ColumnDef.type_ieee8_lsf:
+         rtn = Double.longBitsToDouble(read_int8_lsf(buff, pos));
+         break;
+
+      default:
+         rtn = read_long(buff, pos, data_type);
+         break;
+      }
+      return rtn;
+   } // read_double
+
+
+   /**
+    * Decodes an integer value.  Time stamps are given in nano-seconds since
+    * 1990 and floating point types are truncated.
+    *
+    * @param buff  Specifies the buffer that holds the value
+    * @param pos  Specifies the position of the value in the buffer
+    * @param data_type  Specifies the data type of the value
+    * @return the decoded value
+    */
+   public static long read_long(
+      byte[] buff,
+      int pos,
+      byte data_type)
+   {
+      long rtn;
+      switch(data_type)
+      {
+      case ColumnDef.type_int1:
+         rtn = buff[pos];
+         break;
+
+      case ColumnDef.type_uint1:
+      case ColumnDef.type_bool:
+      case ColumnDef.type_bool8:
+         rtn = buff[pos] & 0xff;
+         break;
+
+      case ColumnDef.type_int2:
+         rtn = (short)read_uint2(buff, pos);
+         break;
+
+      case ColumnDef.type_uint2:
+      case ColumnDef.type_bool2:
+         rtn = read_uint2(buff, pos);
+         break;
+
+      case ColumnDef.type_int2_lsf:
+         rtn = (short)read_uint2_lsf(buff, pos);
+         break;
+
+      case ColumnDef.type_uint2_lsf:
+         rtn = read_uint2_lsf(buff, pos);
+         break;
+
+      case ColumnDef.type_int4:
+         rtn = read_int4(buff, pos);
+         break;
+
+      case ColumnDef.type_uint4:
+      case ColumnDef.type_bool4:
+         rtn = read_int4(buff, pos) & 0xffffffffL;
+         break;
+
+      case ColumnDef.type_int4_lsf:
+         rtn = read_int4_lsf(buff, pos);
+         break;
+
+      case ColumnDef.type_uint4_lsf:
+         rtn = read_int4_lsf(buff, pos) & 0xffffffffL;
+         break;
+
+      case ColumnDef.type_sec:
+         rtn = read_int4(buff, pos) * LoggerDate.nsec_per_sec;
+         break;
+
+      case ColumnDef.type_usec:
+      {
+         // six bytes that count tens of micro-seconds
+         long ticks = 0;
+         for(int i = 0; i < 6; ++i)
+            ticks = (ticks << 8) | (buff[pos + i] & 0xff);
+         rtn = ticks * 10000;
+         break;
+      }
+
+      case ColumnDef.type_nsec:
+         rtn = read_nsec(buff, pos);
+         break;
+
+      case ColumnDef.type_nsec_lsf:
+         rtn = read_nsec_lsf(buff, pos);
+         break;
+
+      case ColumnDef.type_fp2:
+      case ColumnDef.type_fp4:
+      case ColumnDef.type_ieee4:
+      case ColumnDef.type_ieee4_lsf:
+      case ColumnDef.type_ieee8:
+      case ColumnDef.type_ieee8_lsf:
+         rtn = (long)read_double(buff, pos, data_type);
+         break;
+
+      default:
+         throw new UnsupportedOperationException("unsupported data type " + data_type);
+      }
+      return rtn;
+   } // read_long
+
+
+   /**
+    * Decodes all of the values of a record as doubles.  Integers and time
+    * stamps (in nano-seconds since 1990) are converted and strings are
+    * parsed.  A string that is not a number is given as NaN.
+    *
+    * @param record  Specifies the buffer that holds the record data
+    * @param offset  Specifies the position of the record data in the buffer
+    * @param dest  Receives the values.  This must have room for values_count
+    * elements.
+    */
+   public void decode(
+      byte[] record,
+      int offset,
+      double[] dest)
+   {
+      if(dest.length < values_count)
+         throw new IllegalArgumentException("the destination is too small");
+      for(int i = 0; i < values_count; ++i)
+      {
+         int pos = offset + offsets[i];
+         if(kinds[i] == kind_double)
+            dest[i] = read_double(record, pos, types[i]);
+         else if(kinds[i] == kind_long)
+            dest[i] = read_long(record, pos, types[i]);
+         else
+            dest[i] = parse_double(record, pos, sizes[i]);
+      }
+   } // decode
+
+
+   /**
+    * Returns one value of a record as a double.  Integers and time stamps (in
+    * nano-seconds since 1990) are converted and strings are parsed.
+    *
+    * @param record  Specifies the buffer that holds the record data
+    * @param offset  Specifies the position of the record data in the buffer
+    * @param value  Specifies the value index
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public double get_double(
+      byte[] record,
+      int offset,
+      int value) throws UnsupportedOperationException
+   {
+      double rtn;
+      if(kinds[value] == kind_string)
+      {
+         try
+         {
+            rtn = Utils.csi_string_to_float(get_string(record, offset, value));
+         }
+         catch(NumberFormatException e)
+         { throw new UnsupportedOperationException(); }
+      }
+      else
+         rtn = read_double(record, offset + offsets[value], types[value]);
+      return rtn;
+   } // get_double
+
+
+   /**
+    * Returns one value of a record as a long.  Floating point values are
+    * truncated and strings are parsed.
+    *
+    * @param record  Specifies the buffer that holds the record data
+    * @param offset  Specifies the position of the record data in the buffer
+    * @param value  Specifies the value index
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public long get_long(
+      byte[] record,
+      int offset,
+      int value) throws UnsupportedOperationException
+   {
+      long rtn;
+      int pos = offset + offsets[value];
+      if(kinds[value] == kind_string)
+      {
+         try
+         {
+            rtn = parse_long(record, pos, sizes[value]);
+         }
+         catch(NumberFormatException e)
+         { throw new UnsupportedOperationException(); }
+      }
+      else
+         rtn = read_long(record, pos, types[value]);
+      return rtn;
+   } // get_long
+
+
+   /**
+    * Returns one value of a record as a string.  Values are formatted in the
+    * same way as they are by the value objects of a {@link Record}.
+    *
+    * @param record  Specifies the buffer that holds the record data
+    * @param offset  Specifies the position of the record data in the buffer
+    * @param value  Specifies the value index
+    * @return the value as a string
+    */
+   public String get_string(
+      byte[] record,
+      int offset,
+      int value)
+   {
+      String rtn;
+      if(kinds[value] == kind_string)
+      {
+         int pos = offset + offsets[value];
+         rtn = Utils.decode_string(record, pos, string_length(record, pos, sizes[value]));
+      }
+      else
+      {
+         StringBuilder temp = new StringBuilder();
+         append_string(record, offset, value, temp);
+         rtn = temp.toString();
+      }
+      return rtn;
+   } // get_string
+
+
+   /**
+    * Appends one value of a record, formatted as a string, to the specified
+    * buffer.  Values are formatted in the same way as they are by the value
+    * objects of a {@link Record}.
+    *
+    * @param record  Specifies the buffer that holds the record data
+    * @param offset  Specifies the position of the record data in the buffer
+    * @param value  Specifies the value index
+    * @param dest  Specifies the buffer to which the value will be appended
+    */
+   public void append_string(
+      byte[] record,
+      int offset,
+      int value,
+      StringBuilder dest)
+   {
+      int pos = offset + offsets[value];
+      byte data_type = types[value];
+      switch(kinds[value])
+      {
+      case kind_string:
+      {
+         // ASCII characters are appended directly and anything that follows
+         // the first other character is decoded as a string.
+         int len = string_length(record, pos, sizes[value]);
+         int i = 0;
+         while(i < len && record[pos + i] >= 0)
+            dest.append((char)record[pos + i++]);
+         if(i < len)
+            dest.append(Utils.decode_string(record, pos + i, len - i));
+         break;
+      }
+
+      case kind_double:
+      {
+         int fp2_decimals = 0;
+         if(data_type == ColumnDef.type_fp2)
+            fp2_decimals = read_fp2_decimals(record, pos);
+         append_double(read_double(record, pos, data_type), data_type, fp2_decimals, dest);
+         break;
+      }
+
+      default:
+         append_long(read_long(record, pos, data_type), data_type, dest);
+         break;
+      }
+   } // append_string
+
+
+   /**
+    * Formats a decoded floating point value in the same way as the value
+    * objects for its data type.
+    *
+    * @param value  Specifies the decoded value
+    * @param data_type  Specifies the data type that the value was read from
+    * @param fp2_decimals  Specifies the decimal locator of an FP2 value.  This
+    * is ignored for other types.
+    * @param dest  Specifies the buffer to which the value will be appended
+    */
+   static void append_double(
+      double value,
+      byte data_type,
+      int fp2_decimals,
+      StringBuilder dest)
+   {
+      if(data_type == ColumnDef.type_fp2)
+         ValueFp2.format(value, fp2_decimals, dest);
+      else
+      {
+         int precision = 7;
+         if(data_type == ColumnDef.type_ieee8 || data_type == ColumnDef.type_ieee8_lsf)
+            precision = 15;
+         Utils.csi_float_to_string(value, precision, false, false, dest);
+      }
+   } // append_double
+
+
+   /**
+    * Formats a decoded integer value in the same way as the value objects for
+    * its data type.  Time stamps are formatted as dates and eight bit boolean
+    * values are formatted in binary.
+    *
+    * @param value  Specifies the decoded value.  Time stamps are given in
+    * nano-seconds since 1990.
+    * @param data_type  Specifies the data type that the value was read from
+    * @param dest  Specifies the buffer to which the value will be appended
+    */
+   static void append_long(
+      long value,
+      byte data_type,
+      StringBuilder dest)
+   {
+      switch(data_type)
+      {
+      case ColumnDef.type_sec:
+      case ColumnDef.type_usec:
+      case ColumnDef.type_nsec:
+      case ColumnDef.type_nsec_lsf:
+         time_stamp_formatter.format(value, dest);
+         break;
+
+      case ColumnDef.type_bool8:
+         dest.append(Integer.toBinaryString((int)value));
+         break;
+
+      default:
+         dest.append(value);
+         break;
+      }
+   } // append_long
+
+
+   /**
+    * Parses a number from a null terminated string that can occupy at most
+    * the specified number of bytes.
+    *
+    * @return the number or NaN if the string is not a number
+    */
+   public static double parse_double(
+      byte[] buff,
+      int pos,
+      int size)
+   {
+      double rtn;
+      try
+      {
+         String text = Utils.decode_string(buff, pos, string_length(buff, pos, size));
+         rtn = Utils.csi_string_to_float(text.trim());
+      }
+      catch(NumberFormatException e)
+      { rtn = Double.NaN; }
+      return rtn;
+   } // parse_double
+
+
+   /**
+    * Parses a decimal integer from a null terminated string that can occupy
+    * at most the specified number of bytes without creating a string.
+    *
+    * @throws NumberFormatException if the string is not an integer
+    */
+   public static long parse_long(
+      byte[] buff,
+      int pos,
+      int size) throws NumberFormatException
+   {
+      int len = string_length(buff, pos, size);
+      int i = 0;
+      boolean negative = false;
+      long rtn = 0;
+      if(len > 0 && (buff[pos] == '-' || buff[pos] == '+'))
+      {
+         negative = buff[pos] == '-';
+         ++i;
+      }
+      if(i == len)
+         throw new NumberFormatException("not an integer");
+      for(; i < len; ++i)
+      {
+         int digit = buff[pos + i] - '0';
+         if(digit < 0 || digit > 9 || rtn < (Long.MIN_VALUE + digit) / 10)
+            throw new NumberFormatException("not an integer");
+         rtn = rtn * 10 - digit;
+      }
+      if(!negative)
+      {
+         if(rtn == Long.MIN_VALUE)
+            throw new NumberFormatException("not an integer");
+         rtn = -rtn;
+      }
+      return rtn;
+   } // parse_long
+
+
+   /**
+    * @return the number of characters in a null terminated string that can
+    * occupy at most the specified number of bytes
+    */
+   public static int string_length(
+      byte[] buff,
+      int pos,
+      int size)
+   {
+      int rtn = 0;
+      while(rtn < size && buff[pos + rtn] != 0)
+         ++rtn;
+      return rtn;
+   } // string_length
+
+
+   /**
+    * Decodes a two byte decimal floating point value as a float using a table
+    * that holds the value of every possible pattern.
+    */
+   public static float read_fp2_float(byte[] buff, int pos)
+   { return fp2_floats[((buff[pos] & 0xff) << 8) | (buff[pos + 1] & 0xff)]; }
+
+
+   /**
+    * @return the decimal locator (the number of decimal places) of a two byte
+    * decimal floating point value
+    */
+   public static int read_fp2_decimals(byte[] buff, int pos)
+   { return (buff[pos] & 0x60) >> 5; }
+
+
+   /**
+    * Decodes a two byte decimal floating point value
+    */
+   public static double read_fp2(byte[] buff, int pos)
+   {
+      int b0 = buff[pos] & 0xff;
+      int b1 = buff[pos + 1] & 0xff;
+      double rtn;
+      if(b0 == 0x9f && b1 == 0xfe)
+         rtn = Double.NaN;
+      else if(b0 == 0x9f && b1 == 0xff)
+         rtn = Double.NEGATIVE_INFINITY;
+      else if(b0 == 0x1f && b1 == 0xff)
+         rtn = Double.POSITIVE_INFINITY;
+      else
+      {
+         int mantissa = ((b0 & 0x1f) << 8) | b1;
+         rtn = mantissa / fp2_divisors[(b0 & 0x60) >> 5];
+         if((b0 & 0x80) != 0 && mantissa != 0)
+            rtn = -rtn;
+      }
+      return rtn;
+   } // read_fp2
+
+
+   /**
+    * Decodes a four byte Campbell Scientific floating point value.  The first
+    * byte holds the sign and a base two exponent in excess 64 notation and the
+    * remaining three bytes hold the fraction.
+    */
+   public static double read_fp4(byte[] buff, int pos)
+   {
+      int b0 = buff[pos] & 0xff;
+      int fraction =
+         ((buff[pos + 1] & 0xff) << 16) |
+         ((buff[pos + 2] & 0xff) << 8) |
+          (buff[pos + 3] & 0xff);
+      double rtn = Math.scalb((double)fraction, (b0 & 0x7f) - 64 - 24);
+      if((b0 & 0x80) != 0)
+         rtn = -rtn;
+      return rtn;
+   } // read_fp4
+
+
+   /**
+    * Decodes a two byte unsigned integer with the most significant byte first
+    */
+   public static int read_uint2(byte[] buff, int pos)
+   { return ((buff[pos] & 0xff) << 8) | (buff[pos + 1] & 0xff); }
+
+
+   /**
+    * Decodes a two byte unsigned integer with the least significant byte
+    * first
+    */
+   public static int read_uint2_lsf(byte[] buff, int pos)
+   { return ((buff[pos + 1] & 0xff) << 8) | (buff[pos] & 0xff); }
+
+
+   /**
+    * Decodes a four byte integer with the most significant byte first
+    */
+   public static int read_int4(byte[] buff, int pos)
+   {
+      return
+         ((buff[pos] & 0xff) << 24) |
+         ((buff[pos + 1] & 0xff) << 16) |
+         ((buff[pos + 2] & 0xff) << 8) |
+          (buff[pos + 3] & 0xff);
+   } // read_int4
+
+
+   /**
+    * Decodes a four byte integer with the least significant byte first
+    */
+   public static int read_int4_lsf(byte[] buff, int pos)
+   {
+      return
+         ((buff[pos + 3] & 0xff) << 24) |
+         ((buff[pos + 2] & 0xff) << 16) |
+         ((buff[pos + 1] & 0xff) << 8) |
+          (buff[pos] & 0xff);
+   } // read_int4_lsf
+
+
+   /**
+    * Decodes an eight byte integer with the most significant byte first
+    */
+   public static long read_int8(byte[] buff, int pos)
+   { return ((long)read_int4(buff, pos) << 32) | (read_int4(buff, pos + 4) & 0xffffffffL); }
+
+
+   /**
+    * Decodes an eight byte integer with the least significant byte first
+    */
+   public static long read_int8_lsf(byte[] buff, int pos)
+   { return ((long)read_int4_lsf(buff, pos + 4) << 32) | (read_int4_lsf(buff, pos) & 0xffffffffL); }
+
+
+   /**
+    * Decodes a time stamp stored as seconds and nano-seconds since 1990 with
+    * the most significant bytes first
+    *
+    * @return the time stamp in nano-seconds since 1990
+    */
+   public static long read_nsec(byte[] buff, int pos)
+   { return read_int4(buff, pos) * LoggerDate.nsec_per_sec + read_int4(buff, pos + 4); }
+
+
+   /**
+    * Decodes a time stamp stored as seconds and nano-seconds since 1990 with
+    * the least significant bytes first
+    *
+    * @return the time stamp in nano-seconds since 1990
+    */
+   public static long read_nsec_lsf(byte[] buff, int pos)
+   { return read_int4_lsf(buff, pos) * LoggerDate.nsec_per_sec + read_int4_lsf(buff, pos + 4); }
+
+
+   /**
+    * Builds the table of FP2 values
+    */
+   private static float[] make_fp2_floats()
+   {
+      float[] rtn = new float[0x10000];
+      byte[] pattern = new byte[2];
+      for(int i = 0; i < rtn.length; ++i)
+      {
+         pattern[0] = (byte)(i >> 8);
+         pattern[1] = (byte)i;
+         rtn[i] = (float)read_fp2(pattern, 0);
+      }
+      return rtn;
+   } // make_fp2_floats
+
+
+   // the following values describe how a value is decoded
+   public static final byte kind_none = 0;
+   public static final byte kind_double = 1;
+   public static final byte kind_long = 2;
+   public static final byte kind_string = 3;
+
+
+   /**
+    * Used to scale the FP2 mantissa by the decimal locator
+    */
+   private static final double[] fp2_divisors = { 1.0, 10.0, 100.0, 1000.0 };
+
+
+   /**
+    * Formats time stamp values with the pattern used by {@link ValueSec} and
+    * {@link ValueNSec}
+    */
+   private static final LoggerDateFormatter time_stamp_formatter =
+      new LoggerDateFormatter("%Y-%m-%d %H:%M:%S%x");
+
+
+   /**
+    * Holds the float value of every FP2 pattern.  This must follow
+    * fp2_divisors since it is built using that table.
+    */
+   private static final float[] fp2_floats = make_fp2_floats();
+
+
+   /**
+    * Specifies the number of values in each record
+    */
+   public final int values_count;
+
+
+   /**
+    * Specifies the number of bytes in each record (not counting the time
+    * stamp)
+    */
+   public final int record_size;
+
+
+   /**
+    * Specifies the column that each value belongs to
+    */
+   public final ColumnDef[] columns;
+
+
+   /**
+    * Specifies the one based linear array offset of each value within its
+    * column
+    */
+   public final int[] array_offsets;
+
+
+   /**
+    * Specifies the data type of each value
+    */
+   public final byte[] types;
+
+
+   /**
+    * Specifies how each value is decoded
+    */
+   public final byte[] kinds;
+
+
+   /**
+    * Specifies the position of each value in the record bytes
+    */
+   public final int[] offsets;
+
+
+   /**
+    * Specifies the number of bytes occupied by each value
+    */
+   public final int[] sizes;
+
+
+   /**
+    * Keeps the index of each value name that has been found by
+    * find_value(String)
+    */
+   private final ConcurrentHashMap<String, Integer> value_names;
+
+
+   /**
+    * Specifies the most value names that will be kept
+    */
+   private static final int max_value_names = 1024;
+}
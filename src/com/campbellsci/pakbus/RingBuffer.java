@@ -0,0 +1,121 @@
+/* RingBuffer.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines a bounded first-in, first-out queue of objects that can be shared,
+ * without locking, between one thread that adds objects and one other thread
+ * that removes them.
+ */
+final class RingBuffer<T>
+{
+   /**
+    * Constructor
+    *
+    * @param capacity_  Specifies the minimum number of objects that the queue
+    * can hold.  The actual capacity will be rounded up to the next power of
+    * two.
+    */
+   public RingBuffer(int capacity_)
+   {
+      if(capacity_ <= 0)
+         throw new IllegalArgumentException("the capacity must be positive");
+      int capacity = Integer.highestOneBit(capacity_);
+      if(capacity < capacity_)
+         capacity <<= 1;
+      slots = new Object[capacity];
+      mask = capacity - 1;
+      write_pos = 0;
+      read_pos = 0;
+   } // constructor
+
+
+   /**
+    * Adds the specified object to the end of the queue if there is room.  This
+    * method must only be called by the adding thread.
+    *
+    * @param value  Specifies the object to add
+    * @return true if the object was added or false if the queue is full
+    */
+   public boolean offer(T value)
+   {
+      boolean rtn = false;
+      long head = write_pos;
+      if(head - read_pos < slots.length)
+      {
+         slots[(int)(head & mask)] = value;
+         write_pos = head + 1;
+         rtn = true;
+      }
+      return rtn;
+   } // offer
+
+
+   /**
+    * Removes the object at the front of the queue.  This method must only be
+    * called by the removing thread.
+    *
+    * @return the object or null if the queue is empty
+    */
+   @SuppressWarnings("unchecked")
+   public T poll()
+   {
+      T rtn = null;
+      long tail = read_pos;
+      if(tail < write_pos)
+      {
+         int index = (int)(tail & mask);
+         rtn = (T)slots[index];
+         slots[index] = null;
+         read_pos = tail + 1;
+      }
+      return rtn;
+   } // poll
+
+
+   /**
+    * @return the number of objects in the queue
+    */
+   public int size()
+   { return (int)(write_pos - read_pos); }
+
+
+   /**
+    * @return the number of objects that the queue can hold
+    */
+   public int capacity()
+   { return slots.length; }
+
+
+   /**
+    * Holds the objects in the queue
+    */
+   private final Object[] slots;
+
+
+   /**
+    * Used to convert a running position into an index in the slots
+    */
+   private final int mask;
+
+
+   /**
+    * Keeps track of the total number of objects that have been added.  This is
+    * only changed by the adding thread.
+    */
+   private volatile long write_pos;
+
+
+   /**
+    * Keeps track of the total number of objects that have been removed.  This
+    * is only changed by the removing thread.
+    */
+   private volatile long read_pos;
+}
@@ -0,0 +1,180 @@
+/* StringInterner.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * <p>Defines a table of strings that can be shared by the table definitions
+ * of one or more stations so that the names, units, and processing strings
+ * that repeat from column to column (and from station to station) are only
+ * kept once.  The strings are looked up by the bytes that encode them so a
+ * string that is already in the table is found without first creating a
+ * temporary copy of it.</p>
+ *
+ * <p>An application enables interning by giving an interner to each station
+ * using {@link Datalogger#set_string_interner(StringInterner)}.  The methods
+ * of this class are synchronised so that one interner can be shared by
+ * stations that are serviced by different threads.</p>
+ */
+public class StringInterner
+{
+   /**
+    * Constructor
+    */
+   public StringInterner()
+   { clear(); }
+
+
+   /**
+    * Returns the string encoded by the specified span of bytes.  The string
+    * will be added to the table if it is not already there.
+    *
+    * @param buff  Specifies the buffer that holds the encoded string
+    * @param offset  Specifies the position of the first byte
+    * @param len  Specifies the number of bytes that encode the string
+    * @return the shared string
+    */
+   public synchronized String intern(
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      int hash = hash_bytes(buff, offset, len);
+      int mask = keys.length - 1;
+      int slot = hash & mask;
+      String rtn = null;
+      while(rtn == null && keys[slot] != null)
+      {
+         if(hashes[slot] == hash && same_bytes(keys[slot], buff, offset, len))
+            rtn = strings[slot];
+         else
+            slot = (slot + 1) & mask;
+      }
+      if(rtn == null)
+      {
+         byte[] key = new byte[len];
+         System.arraycopy(buff, offset, key, 0, len);
+         rtn = Utils.decode_string(buff, offset, len);
+         keys[slot] = key;
+         hashes[slot] = hash;
+         strings[slot] = rtn;
+         if(++count * 2 > keys.length)
+            grow();
+      }
+      return rtn;
+   } // intern
+
+
+   /**
+    * @return the number of strings in the table
+    */
+   public synchronized int size()
+   { return count; }
+
+
+   /**
+    * Removes all of the strings from the table
+    */
+   public synchronized void clear()
+   {
+      keys = new byte[initial_capacity][];
+      hashes = new int[initial_capacity];
+      strings = new String[initial_capacity];
+      count = 0;
+   } // clear
+
+
+   /**
+    * Doubles the size of the table
+    */
+   private void grow()
+   {
+      byte[][] old_keys = keys;
+      int[] old_hashes = hashes;
+      String[] old_strings = strings;
+      int mask = old_keys.length * 2 - 1;
+      keys = new byte[old_keys.length * 2][];
+      hashes = new int[keys.length];
+      strings = new String[keys.length];
+      for(int i = 0; i < old_keys.length; ++i)
+      {
+         if(old_keys[i] != null)
+         {
+            int slot = old_hashes[i] & mask;
+            while(keys[slot] != null)
+               slot = (slot + 1) & mask;
+            keys[slot] = old_keys[i];
+            hashes[slot] = old_hashes[i];
+            strings[slot] = old_strings[i];
+         }
+      }
+   } // grow
+
+
+   /**
+    * Calculates the hash code for a span of bytes
+    */
+   private static int hash_bytes(
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      int rtn = len;
+      for(int i = offset; i < offset + len; ++i)
+         rtn = rtn * 31 + buff[i];
+      return rtn ^ (rtn >>> 16);
+   } // hash_bytes
+
+
+   /**
+    * @return true if the key holds the same bytes as the span
+    */
+   private static boolean same_bytes(
+      byte[] key,
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      boolean rtn = key.length == len;
+      for(int i = 0; rtn && i < len; ++i)
+         rtn = key[i] == buff[offset + i];
+      return rtn;
+   } // same_bytes
+
+
+   /**
+    * Specifies the number of slots in a new table.  This must be a power of
+    * two.
+    */
+   private static final int initial_capacity = 64;
+
+
+   /**
+    * Holds the encoded form of each string
+    */
+   private byte[][] keys;
+
+
+   /**
+    * Holds the hash code of each key
+    */
+   private int[] hashes;
+
+
+   /**
+    * Holds the string for each key
+    */
+   private String[] strings;
+
+
+   /**
+    * Keeps track of the number of strings in the table
+    */
+   private int count;
+}
@@ -0,0 +1,21 @@
+/* SystemTimeSource.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines the default time source which is based upon System.nanoTime().
+ * Unlike the system clock, this source is not affected when the time of day
+ * is adjusted and does not wrap at midnight.
+ */
+public final class SystemTimeSource implements TimeSource
+{
+   public long get_msec()
+   { return System.nanoTime() / 1000000; }
+}
@@ -67,9 +67,11 @@ public class TableDef
 
 
    /**
-    * Defines the columns of this table
+    * Defines the columns of this table.  This will be null for a table read
+    * from the datalogger until {@link #get_columns()} is first called so
+    * applications must use that method to read the columns.
     */
-   public List<ColumnDef> columns;
+   volatile List<ColumnDef> columns;
    
    
    /**
@@ -114,10 +116,11 @@ public class TableDef
       long interval_sec;
       long interval_nsec;
       int table_start_pos = message.get_read_index();
-      
+      StringInterner interner = station_.get_string_interner();
+
       station = station_;
       table_no = table_no_;
-      name = message.read_string();
+      name = message.read_string(interner);
       size = message.read_int4();
       time_type = message.read_byte();
       message.move_past(8);     // we'll ignore the time into the interval
@@ -126,30 +129,31 @@ public class TableDef
       interval = (interval_sec * 1000000000) + interval_nsec;
       is_subset = false;
 
-      // we can now process all of the column definitions
+      // rather than creating the column definitions now, we will note where
+      // they are so that they can be created when they are first needed.
+      // Each column is still stepped over so that definitions that are not
+      // complete will be reported here.
+      int columns_start_pos = message.get_read_index();
       byte field_type = message.read_byte();
-      int column_no = 1;
-
-      columns = new Vector<ColumnDef>();
       while(field_type != 0)
       {
-         ColumnDef column = new ColumnDef(column_no++,field_type,message);
-         columns.add(column);
+         ColumnDef.skip(message);
          field_type = message.read_byte();
       }
+      columns = null;
+      columns_source = message.view_fragment(
+         columns_start_pos,
+         message.get_read_index());
 
       // create the record cache
       record_cache = new LinkedList<Record>();
       
-      // we now can calculate the signature of the table definition.  In order
-      // to do this, we need to extract the portion of the message that begins
-      // at the starting position.
-      byte[] table_contents = message.get_fragment(
+      // we now can calculate the signature of the table definition.  This
+      // covers the portion of the message that begins at the starting position
+      // and includes the terminator for the field list.
+      def_sig = message.calc_fragment_sig(
          table_start_pos,
-         message.get_read_index() - 1);
-      def_sig = Utils.calc_sig(
-         table_contents,
-         table_contents.length); 
+         message.get_read_index()); 
    } // constructor
    
    
@@ -165,6 +169,8 @@ public class TableDef
     */
    TableDef make_subset(List<String> column_names) throws Exception
    {
+      List<ColumnDef> columns = get_columns();
+
       // copy all of the information that applies to both structures.
       TableDef rtn = new TableDef(name,station);
       rtn.size = size;
@@ -221,13 +227,142 @@ public class TableDef
    }
    
    
+   /**
+    * Returns the columns of this table.  This replaces direct access to the
+    * columns member.  For a table read from the datalogger, the column
+    * definitions are created the first time that this method is called.  This
+    * method can safely be called from any thread.
+    *
+    * <p>Each column is stepped over when the table definitions are read so
+    * column definitions that are not complete cause the table definitions to
+    * be rejected at that time, as they always have been.  The column
+    * definitions are later created from the same bytes.</p>
+    *
+    * @return the list of column definitions.  The application must not change
+    * this list.  For a table read from the datalogger, any attempt to change
+    * it will throw UnsupportedOperationException.
+    * @throws IllegalStateException if the column definitions noted when the
+    * table was read can no longer be created.  This is not expected since the
+    * same bytes were checked when the table was read.
+    */
+   public List<ColumnDef> get_columns()
+   {
+      List<ColumnDef> rtn = columns;
+      if(rtn == null)
+      {
+         synchronized(this)
+         {
+            rtn = columns;
+            if(rtn == null)
+            {
+               rtn = read_columns();
+               columns = rtn;
+               columns_source = null;
+            }
+         }
+      }
+      return rtn;
+   } // get_columns
+
+
+   /**
+    * Creates the column definitions from the portion of the table definitions
+    * that was noted when this table was read.
+    */
+   private List<ColumnDef> read_columns()
+   {
+      List<ColumnDef> rtn = new ArrayList<ColumnDef>();
+      try
+      {
+         StringInterner interner = station.get_string_interner();
+         int column_no = 1;
+         byte field_type = columns_source.read_byte();
+         while(field_type != 0)
+         {
+            rtn.add(new ColumnDef(column_no++, field_type, columns_source, interner));
+            field_type = columns_source.read_byte();
+         }
+      }
+      catch(Exception e)
+      { throw new IllegalStateException("invalid column definitions for table " + name, e); }
+      return Collections.unmodifiableList(rtn);
+   } // read_columns
+
+
+   /**
+    * Returns the description of where each value is found in this table's
+    * records.  This is worked out the first time that it is needed and can
+    * safely be shared by any number of threads.
+    */
+   RecordLayout get_layout()
+   {
+      RecordLayout rtn = layout;
+      if(rtn == null || rtn.def_sig != def_sig)
+      {
+         synchronized(this)
+         {
+            rtn = layout;
+            if(rtn == null || rtn.def_sig != def_sig)
+            {
+               rtn = new RecordLayout(this);
+               layout = rtn;
+            }
+         }
+      }
+      return rtn;
+   } // get_layout
+
+
+   /**
+    * Returns the decoder that reads blocks of this table's records into a
+    * {@link RecordBatch}.  The decoder is prepared the first time that it is
+    * needed and again only if the table definition signature changes.
+    */
+   RecordDecoder get_decoder()
+   {
+      RecordDecoder rtn = decoder;
+      if(rtn == null || rtn.def_sig != def_sig)
+      {
+         synchronized(this)
+         {
+            rtn = decoder;
+            if(rtn == null || rtn.def_sig != def_sig)
+            {
+               rtn = new RecordDecoder(this);
+               decoder = rtn;
+            }
+         }
+      }
+      return rtn;
+   } // get_decoder
+
+
+   /**
+    * Looks up a value by name once so that it can be read from any number of
+    * this table's records without looking up the name again.
+    *
+    * @param value_name  Specifies the value name and, optionally, the array
+    * address (for instance "Temp(3)")
+    * @return an accessor for the value or null if this table has no such value
+    */
+   public ValueAccessor get_accessor(String value_name)
+   {
+      ValueAccessor rtn = null;
+      RecordLayout layout = get_layout();
+      int value = layout.find_value(value_name);
+      if(value >= 0)
+         rtn = new ValueAccessor(this, layout, value);
+      return rtn;
+   } // get_accessor
+
+
    /**
     * @return The number of values contained in this record
     */
    public int get_values_count()
    { 
       int rtn = 0;
-      for(ColumnDef column: columns)
+      for(ColumnDef column: get_columns())
          rtn += column.get_values_count();
       return rtn;
    } // get_values_count
@@ -240,7 +375,7 @@ public class TableDef
    public int get_record_size()
    {
       int rtn = 0;
-      for(ColumnDef column: columns)
+      for(ColumnDef column: get_columns())
          rtn += column.get_values_size();
       return rtn;
    }
@@ -338,9 +473,7 @@ public class TableDef
          if(record_offset == one_way_buffer.whats_left())
          {
             int frag_size = message.whats_left();
-            one_way_buffer.add_bytes(
-               message.read_bytes(frag_size),
-               frag_size);
+            one_way_buffer.add_bytes(message, frag_size);
             if(one_way_buffer.whats_left() >= get_native_block_size(records_count))
             {
                read_records(
@@ -373,7 +506,10 @@ public class TableDef
       long begin_record_no,
       int count) throws Exception
    {
-      LoggerDate record_stamp = null;
+      // if the table has an interval, only the first record has a time stamp
+      // and those that follow are worked out from it.
+      long base_stamp = 0;
+      long record_stamp = 0;
       for(int i = 0; i < count; ++i)
       {
          if(i == 0 || interval == 0)
@@ -381,33 +517,52 @@ public class TableDef
             switch(time_type)
             {
             case ColumnDef.type_nsec:
-               record_stamp = message.read_nsec();
+               base_stamp = message.read_int4() * LoggerDate.nsec_per_sec;
+               base_stamp += message.read_int4();
                break;
                
             case ColumnDef.type_nsec_lsf:
-               record_stamp = message.read_nsec_lsf();
+               base_stamp = message.read_int4_lsf() * LoggerDate.nsec_per_sec;
+               base_stamp += message.read_int4_lsf();
                break;
                
             case ColumnDef.type_sec:
-               record_stamp = message.read_sec();
+               base_stamp = message.read_int4() * LoggerDate.nsec_per_sec;
                break;
                
             default:
                throw new Exception("Unsupported time type");
             }
+            record_stamp = base_stamp;
          }
+         else
+            record_stamp = base_stamp + i * interval;
          
          // we can now create a record to read the data
          Record record = make_record();
-         record.read(
-            begin_record_no + i, 
-            (LoggerDate)record_stamp.clone(), 
-            message);
-         record_stamp.add_nsec(interval);
+         record.read(begin_record_no + i, record_stamp, message);
          records.add(record);
       }
       return count;
    } // read_records
+
+
+   /**
+    * Reads the message buffer into the provided record batch.
+    *
+    * @param message  Specifies the message from which the record(s) will be
+    * read
+    * @param batch  The batch to which the records will be added
+    * @param begin_record_no  Specifies the record number for the first record
+    * @param count    Specifies the number of records to be read
+    * @return the number of records read
+    */
+   protected int read_records(
+      Packet message,
+      RecordBatch batch,
+      long begin_record_no,
+      int count) throws Exception
+   { return get_decoder().read_records(message, batch, begin_record_no, count); }
    
    
    /**
@@ -419,7 +574,7 @@ public class TableDef
    {
       if(is_subset)
       {
-         for(ColumnDef column: columns)
+         for(ColumnDef column: get_columns())
             collect_command.add_uint2(column.column_no);
       }
       collect_command.add_uint2(0);
@@ -450,5 +605,24 @@ public class TableDef
     * based upon an existing table. 
     */
    private boolean is_subset;
+
+
+   /**
+    * Refers to the column definitions in the raw table definitions.  This is
+    * released once the columns have been created.
+    */
+   private Packet columns_source;
+
+
+   /**
+    * Describes where each value is found in a record
+    */
+   private volatile RecordLayout layout;
+
+
+   /**
+    * Decodes blocks of records into a batch
+    */
+   private volatile RecordDecoder decoder;
 }
 
@@ -0,0 +1,234 @@
+/* TableDefsCache.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.io.*;
+
+
+/**
+ * <p>Defines a persistent store of the raw table definitions that have been
+ * read from stations.  Each station has one file in the cache directory.  The
+ * file records the station serial number, program name, program signature,
+ * and operating system signature that were reported when the table
+ * definitions were read.  When a later program stats query shows the same
+ * values, {@link GetTableDefsTran} will use the stored table definitions
+ * rather than reading the .TDF file from the datalogger again.</p>
+ *
+ * <p>An application enables the cache by giving it to each station using
+ * {@link Datalogger#set_table_defs_cache(TableDefsCache)}.  One cache can be
+ * shared by all of the stations.  A file that cannot be read, that is
+ * corrupted, or that does not match the station's current program will simply
+ * be ignored.</p>
+ */
+public class TableDefsCache
+{
+   /**
+    * Constructor
+    *
+    * @param directory_  Specifies the directory in which the table
+    * definitions will be stored.  This directory will be created if it does
+    * not exist when table definitions are first stored.
+    */
+   public TableDefsCache(File directory_)
+   {
+      if(directory_ == null)
+         throw new IllegalArgumentException("the directory must be specified");
+      directory = directory_;
+   } // constructor
+
+
+   /**
+    * @return the directory in which table definitions are stored
+    */
+   public File get_directory()
+   { return directory; }
+
+
+   /**
+    * Reads the table definitions stored for the specified station.  The
+    * stored definitions will only be returned if the serial number, program
+    * name, and signatures last reported by the station match those that were
+    * stored with them.
+    *
+    * @param station  Specifies the station
+    * @return a packet that holds the raw table definitions or null if there
+    * are no usable definitions stored for the station
+    */
+   public Packet load(Datalogger station)
+   {
+      Packet rtn = null;
+      File file = get_file(station);
+      DataInputStream input = null;
+      try
+      {
+         if(file.isFile())
+         {
+            input = new DataInputStream(
+               new BufferedInputStream(new FileInputStream(file)));
+            if(input.readInt() == file_magic &&
+               input.readUTF().equals(not_null(station.serial_no)) &&
+               input.readUTF().equals(not_null(station.program_name)) &&
+               input.readInt() == station.program_signature &&
+               input.readInt() == station.os_signature)
+            {
+               int len = input.readInt();
+               if(len > 0 && len <= max_file_size)
+               {
+                  byte[] buff = new byte[len];
+                  input.readFully(buff);
+                  if(input.readUnsignedShort() == Utils.calc_sig(buff, len))
+                  {
+                     rtn = new Packet();
+                     rtn.add_bytes(buff, 0, len);
+                  }
+               }
+            }
+         }
+      }
+      catch(Exception e)
+      { rtn = null; }
+      finally
+      { close(input); }
+      return rtn;
+   } // load
+
+
+   /**
+    * Stores the raw table definitions for the specified station along with
+    * the serial number, program name, and signatures that the station last
+    * reported.  The file is written under a temporary name and then renamed
+    * so that a partially written file is never read.
+    *
+    * @param station  Specifies the station
+    * @param raw_table_defs  Specifies the table definitions as read from the
+    * station.  The read position of this packet will be reset.
+    */
+   public void store(
+      Datalogger station,
+      Packet raw_table_defs) throws IOException
+   {
+      byte[] buff;
+      try
+      {
+         raw_table_defs.reset();
+         buff = raw_table_defs.read_bytes(raw_table_defs.whats_left());
+         raw_table_defs.reset();
+      }
+      catch(Exception e)
+      { throw new IOException("unable to read the table definitions: " + e.toString()); }
+      if(!directory.isDirectory() && !directory.mkdirs())
+         throw new IOException("unable to create " + directory.getPath());
+
+      File file = get_file(station);
+      File temp = new File(directory, file.getName() + ".tmp");
+      DataOutputStream output = new DataOutputStream(
+         new BufferedOutputStream(new FileOutputStream(temp)));
+      try
+      {
+         output.writeInt(file_magic);
+         output.writeUTF(not_null(station.serial_no));
+         output.writeUTF(not_null(station.program_name));
+         output.writeInt(station.program_signature);
+         output.writeInt(station.os_signature);
+         output.writeInt(buff.length);
+         output.write(buff);
+         output.writeShort(Utils.calc_sig(buff, buff.length));
+      }
+      finally
+      { output.close(); }
+      if(file.exists() && !file.delete())
+      {
+         temp.delete();
+         throw new IOException("unable to replace " + file.getPath());
+      }
+      if(!temp.renameTo(file))
+      {
+         temp.delete();
+         throw new IOException("unable to rename " + temp.getPath());
+      }
+   } // store
+
+
+   /**
+    * Removes any table definitions stored for the specified station
+    *
+    * @param station  Specifies the station
+    */
+   public void remove(Datalogger station)
+   { get_file(station).delete(); }
+
+
+   /**
+    * Forms the name of the file for the specified station.  The serial number
+    * is used if it is known and the PakBus address otherwise.
+    */
+   private File get_file(Datalogger station)
+   {
+      StringBuilder name = new StringBuilder();
+      if(station.serial_no != null && station.serial_no.length() > 0)
+      {
+         name.append("sn");
+         for(int i = 0; i < station.serial_no.length(); ++i)
+         {
+            char ch = station.serial_no.charAt(i);
+            if(Character.isLetterOrDigit(ch) && ch < 128)
+               name.append(ch);
+            else
+               name.append('_');
+         }
+      }
+      else
+      {
+         name.append("pb");
+         name.append(station.get_pakbus_address());
+      }
+      name.append(".tdc");
+      return new File(directory, name.toString());
+   } // get_file
+
+
+   /**
+    * @return an empty string if the specified string is null
+    */
+   private static String not_null(String s)
+   { return s != null ? s : ""; }
+
+
+   /**
+    * Closes the specified stream, ignoring any errors
+    */
+   private static void close(InputStream input)
+   {
+      try
+      {
+         if(input != null)
+            input.close();
+      }
+      catch(Exception e)
+      { }
+   } // close
+
+
+   /**
+    * Identifies a table definitions cache file
+    */
+   private static final int file_magic = 0x54444331;
+
+
+   /**
+    * Specifies the largest table definitions that will be read from a file
+    */
+   private static final int max_file_size = 16 * 1024 * 1024;
+
+
+   /**
+    * Specifies the directory where the files are stored
+    */
+   private final File directory;
+}
@@ -0,0 +1,26 @@
+/* TimeSource.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * Defines the interface for an object that provides the monotonic time base
+ * used by {@link Timer} and by the network's timer wheel.  The default source
+ * is based upon System.nanoTime().  An application can install a different
+ * source (a {@link VirtualTimeSource}, for instance) by calling
+ * {@link Timer#set_time_source(TimeSource)}.
+ */
+public interface TimeSource
+{
+   /**
+    * @return the current time in milli-seconds.  The value is relative to an
+    * arbitrary origin and must never decrease.
+    */
+   public abstract long get_msec();
+}
@@ -11,7 +11,6 @@
 */
 
 package com.campbellsci.pakbus;
-import java.util.*;
 
 
 /**
@@ -20,7 +19,7 @@ import java.util.*;
  */
 final public class Timer
 {
-   private int start;
+   private long start;
 
    /**
     * Initialises the timer so that all future references are relative to the current time
@@ -33,7 +32,7 @@ final public class Timer
     * Resets the timer so that all future references derive from this time.
     */
    public void reset()
-   { start = msec_in_day(); }
+   { start = time_source.get_msec(); }
 
 
    /**
@@ -41,26 +40,58 @@ final public class Timer
     * milli-seconds.
     */
    public int elapsed()
-   { return diff(start, msec_in_day()); }
+   { return (int)Math.min(elapsed_msec(), Integer.MAX_VALUE); }
+   
+   
+   /**
+    * Returns the amount of time that has elapsed since construction (or the last reset) in units of
+    * milli-seconds without any limit on the range.
+    */
+   public long elapsed_msec()
+   { return time_source.get_msec() - start; }
 
 
    /**
-    * Calculates the number of milli-seconds into the current day.
+    * Returns the current time from the time source that all timers use.  This
+    * value is only useful for comparison with other values returned by this
+    * method.
     */
-   private static final int msec_per_day = 86400000;
-   public static int msec_in_day()
-   { return (int)((new Date()).getTime() % msec_per_day); }
+   public static long now()
+   { return time_source.get_msec(); }
+   
+   
+   /**
+    * Replaces the time source used by all timers and by the network timer wheels.
+    * This should be done before any networks are created.
+    * 
+    * @param time_source_  Specifies the new time source
+    */
+   public static void set_time_source(TimeSource time_source_)
+   {
+      if(time_source_ == null)
+         throw new IllegalArgumentException("the time source cannot be null");
+      time_source = time_source_;
+   } // set_time_source
+   
+   
+   /**
+    * @return the time source used by all timers
+    */
+   public static TimeSource get_time_source()
+   { return time_source; }
 
 
    /**
-    * Calculates the difference between two time measurements.
+    * Calculates the number of milli-seconds into the current day.  Timers no
+    * longer use this value but it is kept for applications that do.
     */
-   private static int diff(int t1, int t2)
-   {
-      int rtn = t2 - t1;
-      if(t2 < t1)
-         rtn += msec_per_day;
-      return rtn;
-   }
+   private static final int msec_per_day = 86400000;
+   public static int msec_in_day()
+   { return (int)(System.currentTimeMillis() % msec_per_day); }
+   
+   
+   /**
+    * Specifies the time source used by all timers
+    */
+   private static volatile TimeSource time_source = new SystemTimeSource();
 };
-
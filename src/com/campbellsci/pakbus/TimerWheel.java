@@ -0,0 +1,410 @@
+/* TimerWheel.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.*;
+
+
+/**
+ * <p>Defines a hierarchical timer wheel that the network uses to keep track of
+ * the times at which its links, stations, and neighbours next need to be
+ * checked.  Each object that needs to be checked owns an {@link Entry} that
+ * it schedules with a delay.  When the network checks its state, it will
+ * advance the wheel and will only check those objects whose entries have
+ * expired.  The cost of advancing the wheel depends upon the number of entries
+ * that expire rather than upon the number of entries that are scheduled.</p>
+ *
+ * <p>The wheel has three levels of 256 slots each.  Slots in the first level
+ * each span one tick, slots in the second level span 256 ticks, and slots in
+ * the third level span 65536 ticks.  As the wheel turns, the entries in the
+ * higher levels are moved down to the lower levels until they expire.</p>
+ *
+ * <p>An entry can only be scheduled for one time.  If an entry that is already
+ * scheduled is scheduled again for a later time, the earlier time will be
+ * kept.  The objects that own entries are expected to check their own timers
+ * when the entry expires and schedule again if the check was made early.</p>
+ */
+final class TimerWheel
+{
+   /**
+    * Defines an entry that can be scheduled with the wheel.  Entries are kept
+    * in doubly linked lists for each slot so that they can be removed without
+    * searching.
+    */
+   static final class Entry
+   {
+      /**
+       * Constructor
+       *
+       * @param owner_  Specifies the object that should be checked when this
+       * entry expires.
+       */
+      Entry(Object owner_)
+      {
+         owner = owner_;
+         scheduled = false;
+      } // constructor
+
+
+      /**
+       * @return true if this entry is scheduled
+       */
+      boolean is_scheduled()
+      { return scheduled; }
+
+
+      /**
+       * Specifies the object that will be reported when this entry expires
+       */
+      final Object owner;
+
+
+      /**
+       * Specifies the time, in msec, at which this entry will expire
+       */
+      long deadline;
+
+
+      /**
+       * Specifies the tick at which this entry will expire
+       */
+      long expire_tick;
+
+
+      /**
+       * Set to true while this entry is in the wheel
+       */
+      boolean scheduled;
+
+
+      /**
+       * Specifies the slot list that contains this entry
+       */
+      Entry[] list;
+
+
+      /**
+       * Specifies the index of the slot within the list
+       */
+      int slot;
+
+
+      /**
+       * Link to the previous entry in the same slot
+       */
+      Entry prev;
+
+
+      /**
+       * Link to the next entry in the same slot
+       */
+      Entry next;
+   }
+
+
+   /**
+    * Constructor
+    *
+    * @param tick_interval_  Specifies the resolution of the wheel in msec.
+    */
+   public TimerWheel(int tick_interval_)
+   {
+      if(tick_interval_ <= 0)
+         throw new IllegalArgumentException("the tick interval must be positive");
+      tick_interval = tick_interval_;
+      levels = new Entry[level_count][slot_count];
+      ready = new Entry[1];
+      origin = now();
+      current_tick = 0;
+      count = 0;
+   } // constructor
+
+
+   /**
+    * Schedules the specified entry to expire after the specified delay.  If
+    * the entry is already scheduled to expire before then, it will be left
+    * alone.
+    *
+    * @param entry  Specifies the entry to schedule
+    * @param delay  Specifies the delay in msec.  A delay of zero or less will
+    * cause the entry to be reported the next time that the wheel is advanced.
+    */
+   public void schedule(
+      Entry entry,
+      long delay)
+   {
+      long deadline = now() + Math.max(delay, 0);
+      if(entry.scheduled)
+      {
+         if(entry.deadline <= deadline)
+            return;
+         cancel(entry);
+      }
+      entry.deadline = deadline;
+      entry.expire_tick = (deadline - origin + tick_interval - 1) / tick_interval;
+      place(entry);
+      entry.scheduled = true;
+      ++count;
+   } // schedule
+
+
+   /**
+    * Removes the specified entry from the wheel if it is scheduled.
+    *
+    * @param entry  Specifies the entry to remove
+    */
+   public void cancel(Entry entry)
+   {
+      if(entry.scheduled)
+      {
+         unlink(entry);
+         entry.scheduled = false;
+         --count;
+      }
+   } // cancel
+
+
+   /**
+    * Turns the wheel up to the current time and adds the owners of all of the
+    * entries that have expired to the specified list.  Expired entries are no
+    * longer scheduled when this method returns.
+    *
+    * @param expired  Specifies the list that will receive the expired owners
+    */
+   public void advance(List<Object> expired)
+   {
+      long target_tick = (now() - origin) / tick_interval;
+      while(current_tick < target_tick)
+      {
+         ++current_tick;
+         int slot = (int)(current_tick & slot_mask);
+         if(slot == 0)
+         {
+            // the first level has wrapped so we need to bring down the entries
+            // from the next level (and possibly from the level above that)
+            int slot1 = (int)((current_tick >> slot_bits) & slot_mask);
+            if(slot1 == 0)
+               cascade(2, (int)((current_tick >> (2 * slot_bits)) & slot_mask));
+            cascade(1, slot1);
+         }
+         expire(levels[0], slot, expired);
+      }
+      expire(ready, 0, expired);
+   } // advance
+
+
+   /**
+    * Calculates the time at which the wheel will next need to be advanced.
+    * The time returned will never be later than the time at which the next
+    * entry will expire but it may be earlier (the time at which entries in the
+    * higher levels must be moved down, for instance).
+    *
+    * @return the time in msec or Long.MAX_VALUE if there are no entries
+    */
+   public long get_next_wake()
+   {
+      long rtn = Long.MAX_VALUE;
+      if(count > 0)
+      {
+         if(ready[0] != null)
+            rtn = now();
+         else
+         {
+            // all of the entries in a first level slot share the same tick so
+            // we only need to find the first slot that is occupied.
+            for(int i = 1; rtn == Long.MAX_VALUE && i < slot_count; ++i)
+            {
+               if(levels[0][(int)((current_tick + i) & slot_mask)] != null)
+                  rtn = origin + (current_tick + i) * tick_interval;
+            }
+
+            // entries in the higher levels might expire before then but they
+            // cannot expire before they are moved down.
+            long cascade_tick = (current_tick | slot_mask) + 1;
+            rtn = Math.min(rtn, origin + cascade_tick * tick_interval);
+         }
+      }
+      return rtn;
+   } // get_next_wake
+
+
+   /**
+    * @return the number of entries that are currently scheduled
+    */
+   public int get_count()
+   { return count; }
+
+
+   /**
+    * @return the current time in msec
+    */
+   private long now()
+   { return Timer.now(); }
+
+
+   /**
+    * Places the entry in the slot that is appropriate for its expiry tick
+    */
+   private void place(Entry entry)
+   {
+      long diff = entry.expire_tick - current_tick;
+      long tick = entry.expire_tick;
+      if(diff <= 0)
+         link(entry, ready, 0);
+      else if(diff < slot_count)
+         link(entry, levels[0], (int)(tick & slot_mask));
+      else if(diff < (1L << (2 * slot_bits)))
+         link(entry, levels[1], (int)((tick >> slot_bits) & slot_mask));
+      else
+      {
+         // entries that are beyond the range of the wheel are placed in the
+         // furthest slot.  They will be placed again when that slot cascades.
+         if(diff >= (1L << (3 * slot_bits)))
+            tick = current_tick + (1L << (3 * slot_bits)) - 1;
+         link(entry, levels[2], (int)((tick >> (2 * slot_bits)) & slot_mask));
+      }
+   } // place
+
+
+   /**
+    * Moves all of the entries in the specified slot to lower levels
+    */
+   private void cascade(
+      int level,
+      int slot)
+   {
+      Entry entry = levels[level][slot];
+      levels[level][slot] = null;
+      while(entry != null)
+      {
+         Entry next = entry.next;
+         entry.prev = entry.next = null;
+         place(entry);
+         entry = next;
+      }
+   } // cascade
+
+
+   /**
+    * Removes all of the entries in the specified slot and adds their owners to
+    * the expired list.
+    */
+   private void expire(
+      Entry[] list,
+      int slot,
+      List<Object> expired)
+   {
+      Entry entry = list[slot];
+      list[slot] = null;
+      while(entry != null)
+      {
+         Entry next = entry.next;
+         entry.prev = entry.next = null;
+         entry.list = null;
+         entry.scheduled = false;
+         --count;
+         expired.add(entry.owner);
+         entry = next;
+      }
+   } // expire
+
+
+   /**
+    * Adds the entry to the head of the specified slot
+    */
+   private static void link(
+      Entry entry,
+      Entry[] list,
+      int slot)
+   {
+      entry.list = list;
+      entry.slot = slot;
+      entry.prev = null;
+      entry.next = list[slot];
+      if(entry.next != null)
+         entry.next.prev = entry;
+      list[slot] = entry;
+   } // link
+
+
+   /**
+    * Removes the entry from the slot that contains it
+    */
+   private static void unlink(Entry entry)
+   {
+      if(entry.prev != null)
+         entry.prev.next = entry.next;
+      else
+         entry.list[entry.slot] = entry.next;
+      if(entry.next != null)
+         entry.next.prev = entry.prev;
+      entry.prev = entry.next = null;
+      entry.list = null;
+   } // unlink
+
+
+   /**
+    * Specifies the number of bits used to index the slots of a level
+    */
+   private static final int slot_bits = 8;
+
+
+   /**
+    * Specifies the number of slots in each level
+    */
+   private static final int slot_count = 1 << slot_bits;
+
+
+   /**
+    * Used to extract a slot index from a tick
+    */
+   private static final long slot_mask = slot_count - 1;
+
+
+   /**
+    * Specifies the number of levels
+    */
+   private static final int level_count = 3;
+
+
+   /**
+    * Specifies the resolution of the wheel in msec
+    */
+   private int tick_interval;
+
+
+   /**
+    * Holds the slots for each level
+    */
+   private Entry[][] levels;
+
+
+   /**
+    * Holds the entries that are due the next time that the wheel is advanced
+    */
+   private Entry[] ready;
+
+
+   /**
+    * Specifies the time, in msec, that corresponds with tick zero
+    */
+   private long origin;
+
+
+   /**
+    * Specifies the last tick that has been processed
+    */
+   private long current_tick;
+
+
+   /**
+    * Specifies the number of entries that are scheduled
+    */
+   private int count;
+}
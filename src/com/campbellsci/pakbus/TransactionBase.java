@@ -72,8 +72,24 @@ public abstract class TransactionBase
                "\" after " + elapsed + " msec");
             check_retry();
          }
+         else
+            schedule_check(timeout - elapsed);
       }
    } // check_state
+   
+   
+   /**
+    * Asks the station to call check_state() after the specified delay.
+    * Transactions that override check_state() to watch their own timers
+    * should call this when those timers are started.
+    * 
+    * @param delay  Specifies the delay in msec
+    */
+   protected void schedule_check(int delay)
+   {
+      if(station != null)
+         station.schedule_check(delay);
+   } // schedule_check
 
 
    /**
@@ -102,6 +118,13 @@ public abstract class TransactionBase
     */
    public void release_focus() throws Exception
    { network.release_focus(this); }
+   
+   
+   /**
+    * @return true if this transaction currently has focus
+    */
+   public boolean has_focus()
+   { return focus_neighbour != null; }
 
 
    /**
@@ -129,6 +152,27 @@ public abstract class TransactionBase
    } // post_message
 
 
+   /**
+    * Creates a packet for a command message.  If this transaction has been
+    * added to a network, the packet will be taken from the network's pool and
+    * will be returned to the pool when reset_watchdog() is called after the
+    * response has arrived.  The transaction must not keep any reference to
+    * the packet once it has been posted.  This method must only be called
+    * by the thread that services the network.
+    *
+    * @return the packet for the command
+    */
+   protected Packet new_packet()
+   {
+      Packet rtn;
+      if(network != null)
+         rtn = network.acquire_packet();
+      else
+         rtn = new Packet();
+      return rtn;
+   } // new_packet
+
+
    /**
     * Called by the station when a message has arrived whose transaction number
     * matches this transaction.
@@ -162,6 +206,7 @@ public abstract class TransactionBase
                {
                   watch_dog.reset();
                   min_time_out = estimated_wait * 1000;
+                  schedule_check(calc_timeout());
                }
             }
          }
@@ -193,6 +238,7 @@ public abstract class TransactionBase
       watch_dog = new Timer();
       last_message_sent = message;
       ++total_messages_sent;
+      schedule_check(calc_timeout());
    } // on_message_being_sent
 
 
@@ -206,7 +252,7 @@ public abstract class TransactionBase
       int rtn = station.get_round_trip_time();
       if(min_time_out > rtn)
          rtn = min_time_out;
-      return station.get_round_trip_time(); 
+      return rtn; 
    } // calc_timeout
 
 
@@ -254,6 +300,10 @@ public abstract class TransactionBase
     */
    public void reset_watchdog()
    {
+      // the command has been answered so, if it came from the pool, it can be
+      // reused
+      if(last_message_sent != null && network != null)
+         network.release_packet(last_message_sent);
       retry_count = 0;
       watch_dog = null;
       last_message_sent = null;
@@ -505,6 +555,13 @@ public abstract class TransactionBase
     * the last message in units of milli-seconds.
     */
    protected int round_trip_time;
+   
+   
+   /**
+    * Specifies the neighbour through which this transaction was given focus.
+    * Will be null if this transaction does not have focus.
+    */
+   Neighbour focus_neighbour;
 }
 
 
@@ -12,6 +12,10 @@
 
 package com.campbellsci.pakbus;
 
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Random;
+
 
 /**
  * Defines static methods of general usefulness.  
@@ -21,6 +25,18 @@ package com.campbellsci.pakbus;
  */
 final public class Utils 
 {
+   /**
+    * Holds the result of rotating each possible byte value left by one bit.
+    * The signature algorithm needs this for every byte that it considers.
+    */
+   private static final int[] sig_rotate = new int[256];
+   static
+   {
+      for(int i = 0; i < 256; ++i)
+         sig_rotate[i] = ((i << 1) | (i >> 7)) & 0xff;
+   }
+   
+   
    /**
     * Calculates the signature of an arbitrary array of bytes.  This version
     * can continue the calculation previously started
@@ -35,19 +51,77 @@ final public class Utils
        byte[] buff,
        int len,
        int seed)
+   { return calc_sig(buff, 0, len, seed); }
+   
+   
+   /**
+    * Calculates the signature of a range of bytes in an array.  This version
+    * can continue the calculation previously started.
+    * 
+    * @param buff    Reference to the byte buffer
+    * @param offset  Specifies the position of the first byte to consider
+    * @param len     Specifies the number of bytes to consider
+    * @param seed    Specifies the result of previous calculations.  Should be
+    *                0xAAAA for a new seqeunce.
+    * @return        The signature of the sequence.  This will be in the range of 0 - 65535
+    */
+   static public int calc_sig(
+      byte[] buff,
+      int offset,
+      int len,
+      int seed)
    {
-      int i, j;
-      int rtn = seed;
-      for(i = 0; i < len && i < buff.length; ++i)
+      // each step moves the low byte of the signature into the high byte and
+      // forms the new low byte from the rotated low byte, the old high byte,
+      // and the data byte.  The loop is unrolled so that four bytes are
+      // considered in each pass.
+      int end = offset + Math.min(len, buff.length - offset);
+      int hi = (seed >> 8) & 0xff;
+      int lo = seed & 0xff;
+      int i = offset;
+      int temp;
+      while(i + 4 <= end)
+      {
+         temp = (sig_rotate[lo] + hi + buff[i]) & 0xff;
+         hi = lo;
+         lo = temp;
+         temp = (sig_rotate[lo] + hi + buff[i + 1]) & 0xff;
+         hi = lo;
+         lo = temp;
+         temp = (sig_rotate[lo] + hi + buff[i + 2]) & 0xff;
+         hi = lo;
+         lo = temp;
+         temp = (sig_rotate[lo] + hi + buff[i + 3]) & 0xff;
+         hi = lo;
+         lo = temp;
+         i += 4;
+      }
+      while(i < end)
       {
-         j = rtn;
-         rtn = (rtn << 1) & 0x01FF;
-         if(rtn >= 0x100)
-            ++rtn;
-         rtn = ((rtn + (j >> 8) + buff[i]) & 0xFF) | (j << 8); 
+         temp = (sig_rotate[lo] + hi + buff[i++]) & 0xff;
+         hi = lo;
+         lo = temp;
       }
-      return rtn & 0x0000FFFF;
+      return (hi << 8) | lo;
    } // calc_sig
+   
+   
+   /**
+    * Continues a signature calculation with a single byte.  This allows the
+    * signature to be maintained as each byte of a frame is received.
+    * 
+    * @param sig   Specifies the signature calculated so far.  Should be 0xAAAA
+    * for a new sequence.
+    * @param value Specifies the byte to consider
+    * @return the new signature
+    */
+   static public int calc_sig_byte(
+      int sig,
+      int value)
+   {
+      int lo = sig & 0xff;
+      return (lo << 8) | ((sig_rotate[lo] + (sig >> 8) + value) & 0xff);
+   } // calc_sig_byte
 
 
    /**
@@ -60,8 +134,7 @@ final public class Utils
    static public int calc_sig(
       byte[] buff,
       int buff_len)
-   { return Utils.calc_sig(buff,buff_len,(char)0xAAAA); }
-      
+   { return Utils.calc_sig(buff,0,buff_len,0xAAAA); }
    
    
    /**
@@ -74,38 +147,93 @@ final public class Utils
    static public int calc_sig_nullifier(
       int sig)
    {
-      // calculate the value for the most significant byte. Then run this value
-      // through the signature algorithm using the specified signature as
-      // seed. The calculation is designed to cause the least significant byte
-      // in the signature to become zero.
-      int new_seed = (sig << 1) & 0x1ff;
-      byte[] null1 = new byte[1];
-      int new_sig;
-
-      if(new_seed >= 0x0100)
-         new_seed++;
-      null1[0] = (byte)(0x0100 - (new_seed + (sig >> 8)));
-      new_sig = calc_sig(null1,1,sig);
-
-      // now perform the same calculation for the most significant byte in the
-      // signature. This time we will use the signature that was calculated
-      // using the first null byte
-      int null2;
-
-      new_seed = (new_sig << 1) & 0x01FF;
-      if(new_seed >= 0x0100)
-         new_seed++;
-      null2 = 0x0100 - (new_seed + (new_sig >> 8));
+      // each null byte is chosen so that the new low byte of the signature
+      // becomes zero.  The first is calculated using the specified signature
+      // and the second using the signature that results from the first.
+      int null1 = (0x100 - sig_rotate[sig & 0xff] - (sig >> 8)) & 0xff;
+      int new_sig = calc_sig_byte(sig, null1);
+      int null2 = (0x100 - sig_rotate[new_sig & 0xff] - (new_sig >> 8)) & 0xff;
 
       // now form the return value placing null1 one in the most signicant byte
       // location
-      int rtn = null1[0] & 0xff;
-      rtn <<= 8;
-      rtn += (null2 & 0xff);
-      return rtn;
+      return (null1 << 8) | null2;
    } // calc_sig_nullifier
    
    
+   /**
+    * Converts a span of bytes received from a datalogger into a string.  The
+    * bytes are interpreted as UTF-8 unless they do not form valid UTF-8, in
+    * which case they are taken to be ISO-8859-1 (the way that older versions
+    * of this API read them).  Plain ASCII spans are converted directly.
+    *
+    * @param buff  Specifies the buffer that holds the bytes
+    * @param offset  Specifies the position of the first byte
+    * @param len  Specifies the number of bytes to convert
+    * @return the converted string
+    */
+   static public String decode_string(
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      String rtn;
+      int end = offset + len;
+      int i = offset;
+      while(i < end && buff[i] >= 0)
+         ++i;
+      if(i == end || !is_utf8(buff, i, end - i))
+         rtn = new String(buff, offset, len, latin1_charset);
+      else
+         rtn = new String(buff, offset, len, utf8_charset);
+      return rtn;
+   } // decode_string
+   
+   
+   /**
+    * @return true if the specified span of bytes is a well formed sequence of
+    * UTF-8 characters
+    */
+   static boolean is_utf8(
+      byte[] buff,
+      int offset,
+      int len)
+   {
+      boolean rtn = true;
+      int end = offset + len;
+      int i = offset;
+      while(rtn && i < end)
+      {
+         int lead = buff[i++] & 0xff;
+         int following = 0;
+         if(lead >= 0xc2 && lead <= 0xdf)
+            following = 1;
+         else if(lead >= 0xe0 && lead <= 0xef)
+            following = 2;
+         else if(lead >= 0xf0 && lead <= 0xf4)
+            following = 3;
+         else if(lead >= 0x80)
+            rtn = false;
+         if(i + following > end)
+            rtn = false;
+         while(rtn && following-- > 0)
+            rtn = (buff[i++] & 0xc0) == 0x80;
+      }
+      return rtn;
+   } // is_utf8
+   
+   
+   /**
+    * Used to convert strings that are encoded as UTF-8
+    */
+   static final Charset utf8_charset = Charset.forName("UTF-8");
+   
+   
+   /**
+    * Used to convert strings that are not valid UTF-8
+    */
+   static final Charset latin1_charset = Charset.forName("ISO-8859-1");
+   
+   
    static final long neg_nan_min = 0xFFF0000000000001L;
    static final long neg_nan_max = 0xFFFFFFFFFFFFFFFFL;
    static final long pos_nan_min = 0x7FF0000000000001L;
@@ -138,54 +266,322 @@ final public class Utils
       boolean specials_as_numbers)
    {
       StringBuilder rtn = new StringBuilder();
+      csi_float_to_string(val, precision, specials_in_quotes, specials_as_numbers, rtn);
+      return rtn.toString();
+   } // csi_float_to_string
+
+
+   /**
+    * Formats a floating point number in the same way as
+    * {@link #csi_float_to_string(double, int, boolean, boolean)} but appends
+    * the result to the specified buffer rather than creating a new string.
+    * The characters are formatted in a buffer kept for the calling thread so
+    * nothing is allocated unless the precision is greater than 17.
+    *
+    * @param  val   the value to be formatted
+    * @param  precision  Specifies the number of significant digits
+    * @param  specials_in_quotes   Specifies that special values should be enclosed
+    * in quotation marks.
+    * @param  specials_as_numbers  Specifies the the "special" values should be
+    * formatted as numbers.
+    * @param  dest  Specifies the buffer to which the result will be appended
+    */
+   static public void csi_float_to_string(
+      double val,
+      int precision,
+      boolean specials_in_quotes,
+      boolean specials_as_numbers,
+      StringBuilder dest)
+   {
+      byte[] temp;
+      if(precision <= max_fast_precision)
+      {
+         temp = float_scratch.get();
+         if(temp == null)
+         {
+            temp = new byte[max_fast_precision + 8];
+            float_scratch.set(temp);
+         }
+      }
+      else
+         temp = new byte[precision + 8];
+      int len = csi_float_to_bytes(
+         val, precision, specials_in_quotes, specials_as_numbers, temp, 0);
+      for(int i = 0; i < len; ++i)
+         dest.append((char)temp[i]);
+   } // csi_float_to_string
+
+
+   /**
+    * Formats a floating point number in the same way as
+    * {@link #csi_float_to_string(double, int, boolean, boolean)} but writes
+    * the result as ASCII characters into the specified buffer.  This is
+    * intended for applications that write large amounts of data to files or
+    * sockets.
+    *
+    * @param  val   the value to be formatted
+    * @param  precision  Specifies the number of significant digits
+    * @param  specials_in_quotes   Specifies that special values should be enclosed
+    * in quotation marks.
+    * @param  specials_as_numbers  Specifies the the "special" values should be
+    * formatted as numbers.
+    * @param  dest  Specifies the buffer that will receive the characters.  There
+    * must be room for at least precision + 8 bytes following the offset.
+    * @param  offset  Specifies the position of the first character
+    * @return the position following the last character written
+    */
+   static public int csi_float_to_bytes(
+      double val,
+      int precision,
+      boolean specials_in_quotes,
+      boolean specials_as_numbers,
+      byte[] dest,
+      int offset)
+   {
+      int pos = offset;
       long bits = Double.doubleToLongBits(val);
+      String special = null;
       if((bits >= neg_nan_min && bits <= neg_nan_max) ||
          (bits >= pos_nan_min && bits <= pos_nan_max))
+         special = specials_as_numbers ? "7999" : "NAN";
+      else if(bits == pos_inf_val)
+         special = specials_as_numbers ? "7999" : "INF";
+      else if(bits == neg_inf_val)
+         special = specials_as_numbers ? "-7999" : "-INF";
+      if(special != null)
       {
-         if(!specials_as_numbers)
+         boolean quoted = specials_in_quotes && !specials_as_numbers;
+         if(quoted)
+            dest[pos++] = '\"';
+         for(int i = 0; i < special.length(); ++i)
+            dest[pos++] = (byte)special.charAt(i);
+         if(quoted)
+            dest[pos++] = '\"';
+      }
+      else if(precision <= max_fast_precision)
+         pos = format_general(val, Math.max(precision, 1), dest, pos);
+      else
+      {
+         String temp = String.format(Locale.ENGLISH, "%1$." + precision + "G", val);
+         for(int i = 0; i < temp.length(); ++i)
+            dest[pos++] = (byte)temp.charAt(i);
+      }
+      return pos;
+   } // csi_float_to_bytes
+
+
+   /**
+    * Formats a finite value with the specified number of significant digits
+    * using the same rules as the %G conversion of java.util.Formatter: the
+    * decimal digits are rounded half up and scientific notation is used if
+    * the rounded value is less than 10^-4 or not less than 10^precision.
+    * Values that can be scaled exactly by a power of ten and that are not
+    * close to a rounding boundary are handled with double and long
+    * arithmetic.  All others are rounded from the digits given by
+    * Double.toString(), which are the digits that Formatter uses.
+    */
+   private static int format_general(
+      double val,
+      int precision,
+      byte[] dest,
+      int pos)
+   {
+      long mantissa = 0;
+      int exponent = 0;
+      double abs = Math.abs(val);
+      if(Double.compare(val, 0.0) < 0)
+         dest[pos++] = '-';
+      if(abs != 0)
+      {
+         boolean rounded = false;
+         if(precision <= 15 && abs >= Double.MIN_NORMAL)
          {
-            if(specials_in_quotes)
-               rtn.append('\"');
-            rtn.append("NAN");
-            if(specials_in_quotes)
-               rtn.append('\"');
+            exponent = (int)Math.floor(Math.log10(abs));
+            double scaled = scale_pow10(abs, precision - 1 - exponent);
+            if(scaled < long_pow10[precision - 1])
+               scaled = scale_pow10(abs, precision - 1 - --exponent);
+            else if(scaled >= long_pow10[precision])
+               scaled = scale_pow10(abs, precision - 1 - ++exponent);
+            if(scaled >= 0)
+            {
+               // the digits that Formatter rounds can differ from the
+               // binary value by as much as half of its ulp.  We will
+               // only trust our own rounding if the fraction is well away
+               // from one half.
+               double whole = Math.floor(scaled);
+               double fraction = scaled - whole;
+               if(Math.abs(fraction - 0.5) > 4 * Math.ulp(scaled))
+               {
+                  mantissa = (long)whole;
+                  if(fraction > 0.5)
+                     ++mantissa;
+                  rounded =
+                     mantissa >= long_pow10[precision - 1] &&
+                     mantissa <= long_pow10[precision];
+               }
+            }
+         }
+         if(!rounded)
+         {
+            String text = Double.toString(abs);
+            int exponent_pos = text.indexOf('E');
+            int end = exponent_pos >= 0 ? exponent_pos : text.length();
+            int power = text.indexOf('.') - 1;
+            int count = 0;
+            boolean round_up = false;
+            mantissa = 0;
+            for(int i = 0; i < end; ++i)
+            {
+               char ch = text.charAt(i);
+               if(ch != '.')
+               {
+                  int digit = ch - '0';
+                  if(count == 0 && digit == 0)
+                     --power;
+                  else
+                  {
+                     if(count == 0)
+                        exponent = power;
+                     if(count < precision)
+                        mantissa = mantissa * 10 + digit;
+                     else if(count == precision)
+                        round_up = digit >= 5;
+                     ++count;
+                  }
+               }
+            }
+            for(; count < precision; ++count)
+               mantissa *= 10;
+            if(round_up)
+               ++mantissa;
+            if(exponent_pos >= 0)
+               exponent += Integer.parseInt(text.substring(exponent_pos + 1));
+         }
+         if(mantissa == long_pow10[precision])
+         {
+            mantissa /= 10;
+            ++exponent;
          }
-         else
-            rtn.append("7999");
       }
-      else if(bits == pos_inf_val)
+
+      // we can now lay out the digits
+      if(exponent >= -4 && exponent < precision)
       {
-         if(!specials_as_numbers)
+         int decimals = precision - 1 - exponent;
+         if(exponent < 0)
          {
-            if(specials_in_quotes)
-               rtn.append('\"');
-            rtn.append("INF");
-            if(specials_in_quotes)
-               rtn.append('\"');
+            dest[pos++] = '0';
+            dest[pos++] = '.';
+            for(int i = exponent + 1; i < 0; ++i)
+               dest[pos++] = '0';
+            pos = put_digits(mantissa, precision, dest, pos);
          }
          else
-            rtn.append("7999");
+         {
+            pos = put_digits(mantissa / long_pow10[decimals], exponent + 1, dest, pos);
+            if(decimals > 0)
+            {
+               dest[pos++] = '.';
+               pos = put_digits(mantissa % long_pow10[decimals], decimals, dest, pos);
+            }
+         }
       }
-      else if(bits == neg_inf_val)
+      else
       {
-         if(!specials_as_numbers)
+         pos = put_digits(mantissa / long_pow10[precision - 1], 1, dest, pos);
+         if(precision > 1)
+         {
+            dest[pos++] = '.';
+            pos = put_digits(mantissa % long_pow10[precision - 1], precision - 1, dest, pos);
+         }
+         dest[pos++] = 'E';
+         if(exponent < 0)
          {
-            if(specials_in_quotes)
-               rtn.append('\"');
-            rtn.append("-INF");
-            if(specials_in_quotes)
-               rtn.append('\"');
+            dest[pos++] = '-';
+            exponent = -exponent;
          }
          else
-            rtn.append("-7999");
+            dest[pos++] = '+';
+         pos = put_digits(exponent, exponent < 100 ? 2 : 3, dest, pos);
       }
-      else
+      return pos;
+   } // format_general
+
+
+   /**
+    * Multiplies the value by the specified power of ten
+    *
+    * @return the scaled value or -1 if the power of ten cannot be represented
+    * exactly
+    */
+   private static double scale_pow10(
+      double val,
+      int power)
+   {
+      double rtn = -1;
+      if(power >= 0 && power < double_pow10.length)
+         rtn = val * double_pow10[power];
+      else if(power < 0 && -power < double_pow10.length)
+         rtn = val / double_pow10[-power];
+      return rtn;
+   } // scale_pow10
+
+
+   /**
+    * Writes the specified number of decimal digits of a value, including
+    * leading zeroes, to the buffer
+    *
+    * @return the position following the last digit
+    */
+   private static int put_digits(
+      long val,
+      int count,
+      byte[] dest,
+      int pos)
+   {
+      for(int i = pos + count - 1; i >= pos; --i)
       {
-         String format_spec = "%1$." + precision + "G";
-         rtn.append(String.format(format_spec, val));   
+         dest[i] = (byte)('0' + val % 10);
+         val /= 10;
       }
-      return rtn.toString();
-   } // csi_float_to_string
+      return pos + count;
+   } // put_digits
+
+
+   /**
+    * Specifies the largest precision that will be formatted without using
+    * java.util.Formatter
+    */
+   private static final int max_fast_precision = 17;
+
+
+   /**
+    * Holds the buffer, for each thread, into which csi_float_to_string()
+    * formats the characters that it appends to a StringBuilder
+    */
+   private static final ThreadLocal<byte[]> float_scratch = new ThreadLocal<byte[]>();
+
+
+   /**
+    * Holds the powers of ten that can be represented exactly as double
+    */
+   private static final double[] double_pow10 =
+   {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+      1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+   };
+
+
+   /**
+    * Holds the powers of ten that can be used to split a mantissa
+    */
+   private static final long[] long_pow10 =
+   {
+      1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+      100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L,
+      10000000000000L, 100000000000000L, 1000000000000000L,
+      10000000000000000L, 100000000000000000L, 1000000000000000000L
+   };
    
    
    /**
@@ -224,15 +620,50 @@ final public class Utils
       long d)
    {
       long[] rtn = new long[2];
-      rtn[0] = n/d;
-      rtn[1] = n%d;
-      if(rtn[1] < 0)
-      {
-         rtn[0] += 1;
-         rtn[1] += d;
-      }
+      rtn[0] = floor_div(n, d);
+      rtn[1] = n - rtn[0] * d;
       return rtn;
    } // truediv
+
+
+   /**
+    * Calculates the quotient of "true division" (rounded towards negative
+    * infinity) without allocating the array returned by truediv().  The
+    * denominator is expected to be positive.
+    *
+    * @param n  specifies the numerator
+    * @param d  specifies the denominator
+    * @return the quotient
+    */
+   public static long floor_div(
+      long n,
+      long d)
+   {
+      long rtn = n / d;
+      if(n % d < 0)
+         --rtn;
+      return rtn;
+   } // floor_div
+
+
+   /**
+    * Calculates the remainder of "true division" without allocating the
+    * array returned by truediv().  The denominator is expected to be
+    * positive.
+    *
+    * @param n  specifies the numerator
+    * @param d  specifies the denominator
+    * @return the remainder in the range [0, d)
+    */
+   public static long floor_mod(
+      long n,
+      long d)
+   {
+      long rtn = n % d;
+      if(rtn < 0)
+         rtn += d;
+      return rtn;
+   } // floor_mod
    
    
    public static void main(String[] args) throws Exception
@@ -248,5 +679,47 @@ final public class Utils
       int signature_null = calc_sig_nullifier(signature);
       if(signature_null != 0x9d00)
          throw new Exception("invalid signature nullifier");
+      
+      // the incremental signature must agree with the block signature for
+      // any length and seed and the nullifier must clear either one.
+      Random random = new Random(1);
+      byte[] test_buff = new byte[4096];
+      random.nextBytes(test_buff);
+      for(int i = 0; i < 1000; ++i)
+      {
+         int len = random.nextInt(test_buff.length);
+         int seed = random.nextInt(0x10000);
+         int sig = calc_sig(test_buff, 0, len, seed);
+         int incremental = seed;
+         for(int j = 0; j < len; ++j)
+            incremental = calc_sig_byte(incremental, test_buff[j]);
+         if(incremental != sig)
+            throw new Exception("incremental signature does not match");
+         int sig_null = calc_sig_nullifier(sig);
+         byte[] null_bytes = { (byte)(sig_null >> 8), (byte)sig_null };
+         if(calc_sig(null_bytes, 0, 2, sig) != 0)
+            throw new Exception("nullifier does not clear the signature");
+      }
+
+      // the float formatter must give the same results as Formatter for
+      // finite values.  We will check a mix of IEEE4 and FP2 values.
+      double[] test_values = new double[20000];
+      for(int i = 0; i < test_values.length; ++i)
+      {
+         do
+         {
+            if(i % 2 == 0)
+               test_values[i] = Float.intBitsToFloat(random.nextInt());
+            else
+            {
+               byte[] fp2 = { (byte)random.nextInt(), (byte)random.nextInt() };
+               test_values[i] = RecordLayout.read_fp2(fp2, 0);
+            }
+         }
+         while(Double.isNaN(test_values[i]) || Double.isInfinite(test_values[i]));
+         String expected = String.format(Locale.ENGLISH, "%1$.7G", test_values[i]);
+         if(!csi_float_to_string(test_values[i], 7, false, false).equals(expected))
+            throw new Exception("float format does not match: " + expected);
+      }
    } // main
 }
@@ -0,0 +1,157 @@
+/* ValueAccessor.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+
+/**
+ * <p>Defines an object that reads one value, given by name, from the records
+ * of a table.  An accessor is obtained from {@link TableDef#get_accessor(String)}
+ * which resolves the name to a value index once.  Each get_xxx() method then
+ * reads the value directly from a record without parsing the name or creating
+ * the record's value objects.</p>
+ *
+ * <p>An accessor is only valid for the table definition signature that it was
+ * created for.  If the table definitions are read again and the signature
+ * changes, a new accessor must be obtained.  An accessor does not change once
+ * it has been created and can be shared by any number of threads.</p>
+ */
+public class ValueAccessor
+{
+   /**
+    * Constructor
+    *
+    * @param table_def_  Specifies the table that owns the value
+    * @param layout_  Specifies the layout of the table's records
+    * @param value_  Specifies the value index
+    */
+   ValueAccessor(
+      TableDef table_def_,
+      RecordLayout layout_,
+      int value_)
+   {
+      table_def = table_def_;
+      layout = layout_;
+      value = value_;
+   } // constructor
+
+
+   /**
+    * @return the table definition
+    */
+   public TableDef get_table_def()
+   { return table_def; }
+
+
+   /**
+    * @return the index of the value in the table's records
+    */
+   public int get_value_index()
+   { return value; }
+
+
+   /**
+    * @return the formatted name, with array index, for the value
+    */
+   public String get_value_name()
+   { return layout.get_value_name(value); }
+
+
+   /**
+    * @return the column definition to which the value belongs
+    */
+   public ColumnDef get_column_def()
+   { return layout.columns[value]; }
+
+
+   /**
+    * @return the table definition signature that this accessor was created for
+    */
+   public int get_def_sig()
+   { return layout.def_sig; }
+
+
+   /**
+    * Returns the value from the specified record as a double.  Integers and
+    * time stamps (in nano-seconds since 1990) will be converted and strings
+    * will be parsed.
+    *
+    * @param record  Specifies a record from the same table
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public double get_double(Record record) throws UnsupportedOperationException
+   {
+      check_record(record);
+      return layout.get_double(record.get_storage(), 0, value);
+   } // get_double
+
+
+   /**
+    * Returns the value from the specified record as a long.  Floating point
+    * values will be truncated and strings will be parsed.
+    *
+    * @param record  Specifies a record from the same table
+    * @return the converted value
+    * @throws UnsupportedOperationException if the value is a string that
+    * cannot be converted
+    */
+   public long get_long(Record record) throws UnsupportedOperationException
+   {
+      check_record(record);
+      return layout.get_long(record.get_storage(), 0, value);
+   } // get_long
+
+
+   /**
+    * Returns the value from the specified record as a string.  The string is
+    * the same as that returned by the format() method of the record's value
+    * object, including the precision of FP2 values and the formatting of
+    * time stamps.
+    *
+    * @param record  Specifies a record from the same table
+    * @return the value as a string
+    */
+   public String get_string(Record record)
+   {
+      check_record(record);
+      return layout.get_string(record.get_storage(), 0, value);
+   } // get_string
+
+
+   /**
+    * Makes sure that the record belongs to the table and signature for which
+    * this accessor was created
+    */
+   private void check_record(Record record)
+   {
+      if(record.get_table_def() != table_def)
+         throw new IllegalArgumentException("the record belongs to another table");
+      if(table_def.def_sig != layout.def_sig)
+         throw new IllegalStateException("the table definition has changed");
+   } // check_record
+
+
+   /**
+    * Specifies the table definition
+    */
+   private final TableDef table_def;
+
+
+   /**
+    * Describes the values in the table's records
+    */
+   private final RecordLayout layout;
+
+
+   /**
+    * Specifies the value index
+    */
+   private final int value;
+}
@@ -24,12 +24,11 @@ public class ValueAscii extends ValueBase
    @Override
    public String format()
    {
-      StringBuilder rtn = new StringBuilder();
-      for(int i = 0; 
-          i < column_def.dims.back() && record_buff[i + record_buff_offset] != 0; 
-          ++i)
-         rtn.append((char)record_buff[i + record_buff_offset]);
-      return rtn.toString();
+      int len = RecordLayout.string_length(
+         record_buff,
+         record_buff_offset,
+         column_def.dims.back());
+      return Utils.decode_string(record_buff, record_buff_offset, len);
    }
 
    @Override
@@ -53,14 +52,10 @@ public class ValueAscii extends ValueBase
    @Override
    public int to_int() throws UnsupportedOperationException
    {
-      int rtn = 0;
-      try
-      {
-         rtn = Integer.parseInt(format());
-      }
-      catch(NumberFormatException e)
-      { throw new UnsupportedOperationException(); }
-      return rtn;
+      long rtn = to_long();
+      if(rtn < Integer.MIN_VALUE || rtn > Integer.MAX_VALUE)
+         throw new UnsupportedOperationException();
+      return (int)rtn;
    }
 
    @Override
@@ -69,7 +64,10 @@ public class ValueAscii extends ValueBase
       long rtn = 0;
       try
       {
-         rtn = Long.parseLong(format());
+         rtn = RecordLayout.parse_long(
+            record_buff,
+            record_buff_offset,
+            column_def.dims.back());
       }
       catch(NumberFormatException e)
       { throw new UnsupportedOperationException(); }
@@ -27,28 +27,47 @@ public class ValueFp2 extends ValueBase
    public String format()
    {
       StringBuilder rtn = new StringBuilder();
-      int b0 = record_buff[record_buff_offset] & 0xff;
-      int b1 = record_buff[record_buff_offset + 1] & 0xff;
-      if(b0 == 0x9f && b1 == 0xfe)
-         rtn.append("NAN");
-      else if(b0 == 0x9f && b1 == 0xff)
-         rtn.append("-INF");
-      else if(b0 == 0x1f && b1 == 0xff)
-         rtn.append("INF");
+      format(
+         RecordLayout.read_fp2(record_buff, record_buff_offset),
+         RecordLayout.read_fp2_decimals(record_buff, record_buff_offset),
+         rtn);
+      return rtn.toString();
+   } // format
+
+
+   /**
+    * Formats a decoded FP2 value with the number of decimal places given by
+    * its decimal locator.  This is shared with {@link RecordLayout} so that
+    * values read without a value object are formatted in the same way.
+    *
+    * @param value  Specifies the decoded value
+    * @param decimal_locator  Specifies the number of decimal places (0 to 3)
+    * @param dest  Specifies the buffer to which the value will be appended
+    */
+   static void format(
+      double value,
+      int decimal_locator,
+      StringBuilder dest)
+   {
+      if(Double.isNaN(value))
+         dest.append("NAN");
+      else if(value == Double.NEGATIVE_INFINITY)
+         dest.append("-INF");
+      else if(value == Double.POSITIVE_INFINITY)
+         dest.append("INF");
       else
       {
-         int mantissa = ((b0 & 0x1f) << 8) | b1;
-         boolean is_negative = (b0 & 0x80) != 0;
-         int decimal_locator = (b0 & 0x60) >> 5;
-         rtn.append(mantissa);
-         while(rtn.length() < decimal_locator)
-            rtn.insert(0, '0');
+         int mantissa = (int)Math.round(Math.abs(value) * scales[decimal_locator]);
+         StringBuilder digits = new StringBuilder();
+         digits.append(mantissa);
+         while(digits.length() < decimal_locator)
+            digits.insert(0, '0');
          if(decimal_locator > 0)
-            rtn.insert(rtn.length() - decimal_locator,'.');
-         if(is_negative && mantissa != 0)
-            rtn.insert(0,'-');
+            digits.insert(digits.length() - decimal_locator, '.');
+         if(value < 0 && mantissa != 0)
+            dest.append('-');
+         dest.append(digits);
       }
-      return rtn.toString();
    } // format
    
 
@@ -59,20 +78,31 @@ public class ValueFp2 extends ValueBase
 
    @Override
    public float to_float() throws UnsupportedOperationException
-   { return Utils.csi_string_to_float(format()).floatValue(); }
+   { return RecordLayout.read_fp2_float(record_buff, record_buff_offset); }
+      
+   
+   @Override
+   public double to_double() throws UnsupportedOperationException
+   { return RecordLayout.read_fp2(record_buff, record_buff_offset); }
       
    
    @Override
    public int to_int() throws UnsupportedOperationException
-   { return Utils.csi_string_to_float(format()).intValue(); }
+   { return (int)to_double(); }
       
 
    @Override
    public long to_long() throws UnsupportedOperationException
-   { return Utils.csi_string_to_float(format()).longValue(); }
+   { return (long)to_double(); }
       
 
    @Override
    public Object clone()
    { return new ValueFp2(column_def,array_offset); }
+
+
+   /**
+    * Used to recover the mantissa from a decoded value
+    */
+   private static final double[] scales = { 1.0, 10.0, 100.0, 1000.0 };
 }
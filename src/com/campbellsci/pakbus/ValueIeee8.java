@@ -27,7 +27,7 @@ public class ValueIeee8 extends ValueBase
    public String format()
    { 
       return Utils.csi_float_to_string(
-         to_float(), 
+         to_double(), 
          15, 
          false, 
          false);
@@ -47,15 +47,7 @@ public class ValueIeee8 extends ValueBase
    @Override
    public double to_double() throws UnsupportedOperationException
    {
-      long float_pattern =
-         ((record_buff[record_buff_offset + 0] << 56) & 0xff00000000000000L) |
-         ((record_buff[record_buff_offset + 1] << 48) & 0x00ff000000000000L) |
-         ((record_buff[record_buff_offset + 2] << 36) & 0x0000ff0000000000L) |
-         ((record_buff[record_buff_offset + 3] << 32) & 0x000000ff00000000L) |
-         ((record_buff[record_buff_offset + 4] << 24) & 0x00000000ff000000L) |
-         ((record_buff[record_buff_offset + 5] << 16) & 0x0000000000ff0000L) |
-         ((record_buff[record_buff_offset + 6] <<  8) & 0x000000000000ff00L) |
-          (record_buff[record_buff_offset + 7]        & 0x00000000000000ffL);
+      long float_pattern = RecordLayout.read_int8(record_buff, record_buff_offset);
       return Double.longBitsToDouble(float_pattern);
    } // to_double
 
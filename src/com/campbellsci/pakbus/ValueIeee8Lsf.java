@@ -28,7 +28,7 @@ public class ValueIeee8Lsf extends ValueBase
    public String format()
    { 
       return Utils.csi_float_to_string(
-         to_float(), 
+         to_double(), 
          15, 
          false, 
          false);
@@ -48,15 +48,7 @@ public class ValueIeee8Lsf extends ValueBase
    @Override
    public double to_double() throws UnsupportedOperationException
    {
-      long float_pattern =
-         ((record_buff[record_buff_offset + 7] << 56) & 0xff00000000000000L) |
-         ((record_buff[record_buff_offset + 6] << 48) & 0x00ff000000000000L) |
-         ((record_buff[record_buff_offset + 5] << 36) & 0x0000ff0000000000L) |
-         ((record_buff[record_buff_offset + 4] << 32) & 0x000000ff00000000L) |
-         ((record_buff[record_buff_offset + 3] << 24) & 0x00000000ff000000L) |
-         ((record_buff[record_buff_offset + 2] << 16) & 0x0000000000ff0000L) |
-         ((record_buff[record_buff_offset + 1] <<  8) & 0x000000000000ff00L) |
-          (record_buff[record_buff_offset + 0]        & 0x00000000000000ffL);
+      long float_pattern = RecordLayout.read_int8_lsf(record_buff, record_buff_offset);
       return Double.longBitsToDouble(float_pattern);
    } // to_double
 
@@ -38,9 +38,7 @@ public class ValueInt2 extends ValueBase
    @Override
    public int to_int() throws UnsupportedOperationException
    {
-      return 
-         ((record_buff[record_buff_offset + 0] << 8) & 0xff00) |
-          (record_buff[record_buff_offset + 1])      & 0x00ff;
+      return (short)RecordLayout.read_uint2(record_buff, record_buff_offset);
    }
 
 
@@ -39,9 +39,7 @@ public class ValueInt2Lsf extends ValueBase
    @Override
    public int to_int() throws UnsupportedOperationException
    {
-      return 
-         ((record_buff[record_buff_offset + 1] << 8) & 0xff00) |
-          (record_buff[record_buff_offset + 0])      & 0x00ff;
+      return (short)RecordLayout.read_uint2_lsf(record_buff, record_buff_offset);
    }
 
 
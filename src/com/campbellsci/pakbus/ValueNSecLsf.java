@@ -49,13 +49,7 @@ class ValueNSecLsf extends ValueNSec
    @Override
    public long to_long() throws UnsupportedOperationException
    {
-      long seconds = to_int();
-      long nsec =
-         ((record_buff[record_buff_offset + 7] << 24) & 0xFF000000) |
-         ((record_buff[record_buff_offset + 6] << 16) & 0x00FF0000) |
-         ((record_buff[record_buff_offset + 5] <<  8) & 0x0000FF00) |
-          (record_buff[record_buff_offset + 4]        & 0x000000FF);
-      return nsec * LoggerDate.nsec_per_sec + seconds;
+      return RecordLayout.read_nsec_lsf(record_buff, record_buff_offset);
    } // to_long
 };
 
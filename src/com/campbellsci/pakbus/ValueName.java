@@ -97,25 +97,17 @@ public class ValueName
             case '.':
                if(temp.length() == 0)
                   throw new Exception("value name syntax error");
-               if(column_name.length() == 0)
-                  column_name = temp.toString();
-               else if(table_name.length() == 0)
-               {
-                  table_name = column_name;
-                  column_name = temp.toString();
-               }
-               else if(station_name.length() == 0)
-               {
-                  station_name = table_name;
-                  table_name = column_name;
-                  column_name = temp.toString();
-               }
-               else
-                  throw new Exception("invalid value name syntax");
+               add_name(temp.toString());
                temp.delete(0,temp.length());
                break;
 
             case '(':
+               // the name must be taken before the subscripts are read
+               // into the same buffer
+               if(temp.length() == 0)
+                  throw new Exception("value name syntax error");
+               add_name(temp.toString());
+               temp.delete(0,temp.length());
                state = state_type.before_subscript;
                break;
 
@@ -132,6 +124,7 @@ public class ValueName
             {
             case '0':
             case '1':
+            case '2':
             case '3':
             case '4':
             case '5':
@@ -157,11 +150,12 @@ public class ValueName
                if(temp.length() > 0)
                {
                   array_address.add(
-                     Integer.decode(temp.toString()));
+                     Integer.parseInt(temp.toString()));
                }
                else
                   throw new Exception("Invalid value name syntax");
                temp.delete(0,temp.length());
+               state = state_type.before_subscript;
                break;
 
             case ')':
@@ -169,7 +163,8 @@ public class ValueName
                {
                   state = state_type.complete;
                   array_address.add(
-                     Integer.decode(temp.toString())); 
+                     Integer.parseInt(temp.toString())); 
+                  temp.delete(0,temp.length());
                }
                else
                   throw new Exception("Invalid value name syntax");
@@ -182,25 +177,35 @@ public class ValueName
          if(advance_i)
             ++i;
       }
+      if(state == state_type.in_subscript || state == state_type.after_subscript)
+         throw new Exception("Invalid value name syntax");
       if (temp.length() > 0) 
-      {
-         if (column_name.length() == 0)
-            column_name = temp.toString();
-         else if (table_name.length() == 0) 
-         {
-            table_name = column_name;
-            column_name = temp.toString();
-         } 
-         else if (station_name.length() == 0) 
-         {
-            station_name = table_name;
-            table_name = column_name;
-            column_name = temp.toString();
-         } 
-         else
-            throw new Exception("invalid value name syntax");
-      }
+         add_name(temp.toString());
    } // parse
+
+
+   /**
+    * Stores a name that has been parsed.  Each name that follows a period
+    * shifts the names that preceded it up to the table and station names.
+    */
+   private void add_name(String name) throws Exception
+   {
+      if (column_name.length() == 0)
+         column_name = name;
+      else if (table_name.length() == 0) 
+      {
+         table_name = column_name;
+         column_name = name;
+      } 
+      else if (station_name.length() == 0) 
+      {
+         station_name = table_name;
+         table_name = column_name;
+         column_name = name;
+      } 
+      else
+         throw new Exception("invalid value name syntax");
+   } // add_name
    
    
    /**
@@ -48,11 +48,7 @@ public class ValueUInt4Lsf extends ValueBase
    @Override
    public long to_long() throws UnsupportedOperationException
    {
-      return
-         ((record_buff[record_buff_offset + 3] << 24) & 0xff000000) |
-         ((record_buff[record_buff_offset + 3] << 16) & 0x00ff0000) |
-         ((record_buff[record_buff_offset + 1] <<  8) & 0x0000ff00) |
-          (record_buff[record_buff_offset + 0]        & 0x000000ff);
+      return RecordLayout.read_int4_lsf(record_buff, record_buff_offset) & 0xffffffffL;
    } // to_int
 
 
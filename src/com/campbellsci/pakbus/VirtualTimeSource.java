@@ -0,0 +1,62 @@
+/* VirtualTimeSource.java
+
+   Written by: agent
+   Date Begun: Friday 16 October 2026
+   Last Change: Saturday 17 October 2026
+
+*/
+
+package com.campbellsci.pakbus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Defines a time source that only changes when the application advances it.
+ * This can be installed with {@link Timer#set_time_source(TimeSource)} so that
+ * simulations and benchmarks can exercise the time sensitive parts of the
+ * network without having to wait for real time to pass.
+ */
+public final class VirtualTimeSource implements TimeSource
+{
+   /**
+    * Constructor
+    *
+    * @param msec_  Specifies the initial time in msec
+    */
+   public VirtualTimeSource(long msec_)
+   { msec = new AtomicLong(msec_); }
+
+
+   /**
+    * Default constructor.  The time will begin at zero.
+    */
+   public VirtualTimeSource()
+   { msec = new AtomicLong(0); }
+
+
+   public long get_msec()
+   { return msec.get(); }
+
+
+   /**
+    * Moves the time forward.  This can be called by any number of threads at
+    * once and each call will advance the time by its full interval.
+    *
+    * @param interval  Specifies the number of msec to advance.  This value
+    * must not be negative.
+    */
+   public void advance(long interval)
+   {
+      if(interval < 0)
+         throw new IllegalArgumentException("virtual time cannot move backward");
+      msec.addAndGet(interval);
+   } // advance
+
+
+   /**
+    * Keeps the current time.  This is atomic so that the time can be advanced
+    * by threads other than the one that is servicing the network.
+    */
+   private final AtomicLong msec;
+}